@@ -5,12 +5,43 @@ CREATE TABLE players (
   id INT AUTO_INCREMENT PRIMARY KEY,
   username VARCHAR(100) NOT NULL UNIQUE,
   password VARCHAR(255) NOT NULL,
-  total_wins INT DEFAULT 0
+  total_wins INT DEFAULT 0,
+  INDEX idx_players_total_wins (total_wins)
 );
 
 CREATE TABLE races (
   race_id INT AUTO_INCREMENT PRIMARY KEY,
   winner_id INT,
   race_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  INDEX idx_races_winner_date (winner_id, race_date),
   FOREIGN KEY (winner_id) REFERENCES players(id) ON DELETE SET NULL
 );
+
+-- Wins per player and UTC day / week (starting Monday), kept up to date with each saved race
+-- so leaderboards never have to count rows in races.
+CREATE TABLE player_daily_wins (
+  day DATE NOT NULL,
+  player_id INT NOT NULL,
+  wins INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (day, player_id),
+  INDEX idx_daily_wins_rank (day, wins),
+  FOREIGN KEY (player_id) REFERENCES players(id) ON DELETE CASCADE
+);
+
+CREATE TABLE player_weekly_wins (
+  week_start DATE NOT NULL,
+  player_id INT NOT NULL,
+  wins INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (week_start, player_id),
+  INDEX idx_weekly_wins_rank (week_start, wins),
+  FOREIGN KEY (player_id) REFERENCES players(id) ON DELETE CASCADE
+);
+
+-- When adding the summary tables to an existing database, fill them once from the races already recorded.
+INSERT INTO player_daily_wins (day, player_id, wins)
+  SELECT DATE(race_date), winner_id, COUNT(*) FROM races WHERE winner_id IS NOT NULL
+  GROUP BY DATE(race_date), winner_id;
+
+INSERT INTO player_weekly_wins (week_start, player_id, wins)
+  SELECT DATE(race_date) - INTERVAL WEEKDAY(race_date) DAY, winner_id, COUNT(*) FROM races WHERE winner_id IS NOT NULL
+  GROUP BY DATE(race_date) - INTERVAL WEEKDAY(race_date) DAY, winner_id;
@@ -0,0 +1,103 @@
+package game.bench;
+
+import game.server.ClientManager;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code ConnectionBenchmark} class measures how server memory and thread
+ * count grow with the number of idle client connections. It starts the server
+ * in-process, opens connections in steps, and prints one row per step.
+ * Run it once per execution model and compare the rows:
+ * <pre>
+ *   java -Dgame.server.io=thread  game.bench.ConnectionBenchmark 250 500 1000 2000
+ *   java -Dgame.server.io=virtual game.bench.ConnectionBenchmark 250 500 1000 2000
+ *   java -Dgame.server.io=nio     game.bench.ConnectionBenchmark 250 500 1000 2000
+ * </pre>
+ * Each connection uses two file descriptors in this process, so raise
+ * {@code ulimit -n} for large counts.
+ */
+public class ConnectionBenchmark {
+
+    // Constants.
+    private static final String HOST = "localhost";
+    private static final int SERVER_PORT = 5000;
+    private static final long SETTLE_MS = 1000;
+    private static final int[] DEFAULT_STEPS = { 100, 250, 500, 1000 };
+
+    // Prevent object creation from the implicit public constructor.
+    private ConnectionBenchmark() {
+        throw new IllegalStateException("Tried to instantiate the ConnectionBenchmark utility class");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] steps = DEFAULT_STEPS;
+        if (args.length > 0) {
+            steps = new int[args.length];
+            for (int i = 0; i < args.length; i++) steps[i] = Integer.parseInt(args[i]);
+        }
+
+        Thread server = new Thread(ClientManager::establishConnection, "Benchmark-Server");
+        server.setDaemon(true);
+        server.start();
+        Thread.sleep(SETTLE_MS);
+
+        String mode = System.getProperty("game.server.io", "nio");
+        System.out.println("mode=" + mode + " java=" + System.getProperty("java.version"));
+        System.out.printf("%12s %10s %12s %12s %12s%n", "connections", "threads", "heapMB", "nonHeapMB", "rssMB");
+        printRow(0);
+
+        List<Socket> clients = new ArrayList<>();
+        try {
+            for (int target : steps) {
+                while (clients.size() < target) {
+                    clients.add(new Socket(HOST, SERVER_PORT));
+                }
+                Thread.sleep(SETTLE_MS);
+                printRow(clients.size());
+            }
+        } catch (IOException e) {
+            System.err.println("[Bench] Stopped at " + clients.size() + " connections: " + e.getMessage());
+            printRow(clients.size());
+        } finally {
+            for (Socket client : clients) {
+                try { client.close(); } catch (IOException ignored) {}
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void printRow(int connections) {
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        System.out.printf("%12d %10d %12.1f %12.1f %12s%n", connections, threads,
+                toMegabytes(memory.getHeapMemoryUsage().getUsed()),
+                toMegabytes(memory.getNonHeapMemoryUsage().getUsed()),
+                readResidentSetMegabytes());
+    }
+
+    // Thread stacks live outside the Java heap, so resident set size is the figure to compare.
+    private static String readResidentSetMegabytes() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    long kilobytes = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                    return String.format("%.1f", kilobytes / 1024.0);
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {}
+        return "n/a";
+    }
+
+    private static double toMegabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
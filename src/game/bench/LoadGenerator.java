@@ -0,0 +1,610 @@
+package game.bench;
+
+import game.common.LatencyHistogram;
+import game.common.ProtocolReader;
+import game.common.ProtocolWriter;
+import game.common.WriteStats;
+import game.simulation.KartInput;
+import game.simulation.KartPhysics;
+import game.simulation.Race;
+import game.simulation.Track;
+import game.simulation.TrackLoader;
+
+import java.awt.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code LoadGenerator} class load-tests a running game server with
+ * headless bot players. Each bot opens its own socket and speaks the text
+ * protocol like the real client: it registers and logs in, joins a lobby,
+ * readies up once the room is full or has waited long enough, then races.
+ * During a race it drives laps on the simulated track, sends
+ * {@code SEND_KART_DATA} at a fixed rate, reports collisions with the other
+ * karts and sends {@code RACE_WON} when it finishes first, after which it
+ * rejoins a lobby for the next race.
+ * <pre>
+ *   java -Djava.awt.headless=true game.bench.LoadGenerator [bots] [seconds] [kart-data-hz]
+ * </pre>
+ * The server address is set with {@code -Dgame.load.host} and {@code -Dgame.load.port}.
+ * Start the server with {@code -Dgame.server.db=memory} to run without MySQL.
+ * Every few seconds it prints message rates, connected and racing bots and
+ * disconnects; at the end it prints the latency percentiles in microseconds
+ * for logins, heartbeats (answered straight away) and kart data
+ * acknowledgements (answered on the next server tick).
+ */
+public class LoadGenerator {
+
+    // Constants.
+    private static final String HOST = System.getProperty("game.load.host", "localhost");
+    private static final int PORT = Integer.getInteger("game.load.port", 5000);
+    private static final int DEFAULT_BOTS = 60;
+    private static final int DEFAULT_SECONDS = 60;
+    private static final int DEFAULT_KART_DATA_RATE = 30;
+    private static final String PASSWORD = "loadtest";
+    private static final int ROOM_SIZE = 6;
+    private static final int MAP_COUNT = 3;
+    private static final long STEP_MS = KartPhysics.STEP_MS; // The client's frame time.
+    private static final long CONNECT_SPREAD_MS = 5000;    // Bots connect evenly over this time.
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final long HEARTBEAT_MS = 5000;
+    private static final long LOBBY_WAIT_MS = 3000;        // Ready up after this long even if the room is not full.
+    private static final long RESULTS_MS = 2000;           // Time on the results screen before rejoining a lobby.
+    private static final long AUTH_RETRY_MS = 1000;        // Wait before retrying a login the server turned away.
+    private static final long RACE_TIMEOUT_MS = 180_000;
+    private static final long REPORT_INTERVAL_MS = 5000;
+    private static final int SEQUENCE_WINDOW = 1024;
+
+    // Results shared by every bot.
+    private static final LatencyHistogram loginLatency = new LatencyHistogram();
+    private static final LatencyHistogram heartbeatLatency = new LatencyHistogram();
+    private static final LatencyHistogram kartAckLatency = new LatencyHistogram();
+    private static final WriteStats sent = new WriteStats("[Load]");
+    private static final LongAdder received = new LongAdder();
+    private static final LongAdder disconnects = new LongAdder();
+    private static final LongAdder connectFailures = new LongAdder();
+    private static final LongAdder loginFailures = new LongAdder();
+    private static final LongAdder authRetries = new LongAdder();
+    private static final LongAdder racesStarted = new LongAdder();
+    private static final LongAdder racesWon = new LongAdder();
+    private static final LongAdder collisionsSent = new LongAdder();
+    private static final AtomicInteger connectedBots = new AtomicInteger();
+    private static final AtomicInteger racingBots = new AtomicInteger();
+
+    private static final Map<Integer, Track> tracks = new ConcurrentHashMap<>();
+    private static final Map<Integer, List<Point>> routes = new ConcurrentHashMap<>();
+
+    // Prevent object creation from the implicit public constructor.
+    private LoadGenerator() {
+        throw new IllegalStateException("Tried to instantiate the LoadGenerator utility class");
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int botCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOTS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int kartDataRate = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_KART_DATA_RATE;
+        long kartDataIntervalMs = Math.max(1, 1000 / Math.max(1, kartDataRate));
+
+        // Loading the tracks up front keeps the mask builds out of the measurements.
+        for (int map = 0; map < MAP_COUNT; map++) tracks.put(map, TrackLoader.load(map));
+
+        System.out.println("[Load] " + botCount + " bots against " + HOST + ":" + PORT + " for " + seconds
+                + " s, kart data at " + (1000 / kartDataIntervalMs) + " Hz");
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "LoadGenerator-Tick");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.currentTimeMillis();
+        long deadline = start + seconds * 1000L;
+        List<Bot> bots = new ArrayList<>();
+        long spreadMs = Math.min(CONNECT_SPREAD_MS, seconds * 1000L / 4);
+        for (int i = 0; i < botCount; i++) {
+            Bot bot = new Bot(i, scheduler, kartDataIntervalMs, deadline);
+            bots.add(bot);
+            scheduler.schedule(bot::start, spreadMs * i / Math.max(1, botCount), TimeUnit.MILLISECONDS);
+        }
+
+        long lastReport = start;
+        long lastSent = 0;
+        long lastReceived = 0;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(Math.min(REPORT_INTERVAL_MS, Math.max(1, deadline - System.currentTimeMillis())));
+            long now = System.currentTimeMillis();
+            double elapsedSec = Math.max(1, now - lastReport) / 1000.0;
+            long sentNow = sent.getMessages();
+            long receivedNow = received.sum();
+            System.out.printf("[Load] t=%3ds connected=%d racing=%d sent/s=%.0f received/s=%.0f"
+                            + " ack p50=%dus p99=%dus disconnects=%d%n",
+                    (now - start) / 1000, connectedBots.get(), racingBots.get(),
+                    (sentNow - lastSent) / elapsedSec, (receivedNow - lastReceived) / elapsedSec,
+                    kartAckLatency.getValueAtPercentile(50), kartAckLatency.getValueAtPercentile(99),
+                    disconnects.sum());
+            lastReport = now;
+            lastSent = sentNow;
+            lastReceived = receivedNow;
+        }
+
+        for (Bot bot : bots) bot.stop();
+        scheduler.shutdownNow();
+        double totalSec = (System.currentTimeMillis() - start) / 1000.0;
+        System.out.println("[Load] Finished after " + String.format("%.1f", totalSec) + " s");
+        System.out.printf("[Load] messages sent=%d (%.0f/s) received=%d (%.0f/s)%n",
+                sent.getMessages(), sent.getMessages() / totalSec, received.sum(), received.sum() / totalSec);
+        System.out.println("[Load] races started=" + racesStarted.sum() + " won=" + racesWon.sum()
+                + " collisions sent=" + collisionsSent.sum());
+        System.out.println("[Load] connect failures=" + connectFailures.sum() + " login failures="
+                + loginFailures.sum() + " (retried " + authRetries.sum() + " busy or rate limited) disconnects=" + disconnects.sum());
+        System.out.println("[Load] login     " + loginLatency.summary("us"));
+        System.out.println("[Load] heartbeat " + heartbeatLatency.summary("us"));
+        System.out.println("[Load] kart ack  " + kartAckLatency.summary("us"));
+    }
+
+    // Waypoints for one lap: each checkpoint's centre, with a corner point between two checkpoints that cannot see each other.
+    static List<Point> routeFor(int map) {
+        return routes.computeIfAbsent(map, key -> {
+            Track track = tracks.computeIfAbsent(key, TrackLoader::load);
+            List<Rectangle> checkpoints = track.getCheckpoints();
+            List<Point> route = new ArrayList<>();
+            for (int i = 0; i < checkpoints.size(); i++) {
+                Point from = centreOf(checkpoints.get((i + checkpoints.size() - 1) % checkpoints.size()));
+                Point to = centreOf(checkpoints.get(i));
+                if (!isClear(track, from, to)) {
+                    Point corner = new Point(to.x, from.y);
+                    if (!isClear(track, from, corner) || !isClear(track, corner, to)) corner = new Point(from.x, to.y);
+                    route.add(corner);
+                }
+                route.add(to);
+            }
+            return route;
+        });
+    }
+
+    private static Point centreOf(Rectangle rectangle) {
+        return new Point((int) rectangle.getCenterX(), (int) rectangle.getCenterY());
+    }
+
+    private static boolean isClear(Track track, Point from, Point to) {
+        int probe = KartPhysics.KART_SIZE / 2;
+        double length = from.distance(to);
+        Rectangle box = new Rectangle(probe, probe);
+        for (double travelled = 0; travelled <= length; travelled += probe / 2.0) {
+            double t = (length == 0) ? 0 : travelled / length;
+            box.setLocation((int) (from.x + (to.x - from.x) * t) - probe / 2, (int) (from.y + (to.y - from.y) * t) - probe / 2);
+            if (!track.contains(box)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Steers one kart around the route: full throttle, turning towards the
+     * next waypoint, with a little randomness so bots spread out, and
+     * reversing out when it is stuck against a wall.
+     */
+    static class Driver {
+
+        // Constants.
+        private static final float REACHED_DISTANCE = 45f;
+        private static final float DEGREES_PER_ROTATION = 360f / KartPhysics.TURN_CIRCLE;
+        private static final int STUCK_STEPS = 20;
+        private static final int REVERSE_STEPS = 25;
+
+        // Object properties.
+        private final List<Point> route;
+        private final Random random;
+        private final int lineOffset;
+        private int waypoint = 0;
+        private int crashedSteps = 0;
+        private int reverseSteps = 0;
+
+        Driver(List<Point> route, Random random) {
+            this.route = route;
+            this.random = random;
+            // Each bot takes its own line through the corners.
+            lineOffset = random.nextInt(31) - 15;
+        }
+
+        // The KartInput bits for the next step.
+        int nextInput(KartPhysics kart) {
+            Rectangle hitBox = kart.getHitBox();
+            float x = (float) hitBox.getCenterX();
+            float y = (float) hitBox.getCenterY();
+            Point target = route.get(waypoint);
+            float dx = target.x + lineOffset - x;
+            float dy = target.y + lineOffset - y;
+            if (dx * dx + dy * dy < REACHED_DISTANCE * REACHED_DISTANCE) {
+                waypoint = (waypoint + 1) % route.size();
+            }
+
+            crashedSteps = kart.hasCrashed() ? crashedSteps + 1 : 0;
+            if (crashedSteps > STUCK_STEPS) reverseSteps = REVERSE_STEPS;
+            if (reverseSteps > 0) {
+                reverseSteps--;
+                return KartInput.BACKWARD | KartInput.LEFT;
+            }
+
+            // Rotation 0 faces up and increases clockwise.
+            float wanted = (float) Math.toDegrees(Math.atan2(dx, -dy)) / DEGREES_PER_ROTATION;
+            float turn = wanted - kart.getRotation();
+            while (turn > KartPhysics.TURN_CIRCLE / 2f) turn -= KartPhysics.TURN_CIRCLE;
+            while (turn < -KartPhysics.TURN_CIRCLE / 2f) turn += KartPhysics.TURN_CIRCLE;
+
+            boolean sharpTurn = Math.abs(turn) > 20;
+            boolean left = turn < -2 || (random.nextInt(40) == 0);
+            boolean right = !left && turn > 2;
+            // Lift off through sharp turns, and sometimes use nitro on the straights.
+            boolean forward = !sharpTurn || random.nextBoolean();
+            boolean nitro = !sharpTurn && kart.getNitroCapacity() > 50 && random.nextInt(100) == 0;
+            return KartInput.of(forward, false, left, right, false, nitro || (kart.isNitroActive() && !sharpTurn));
+        }
+    }
+
+    private enum Stage { CONNECTING, LOGGING_IN, JOINING, LOBBY, RACING, RESULTS, CLOSED }
+
+    /**
+     * One bot player with its own connection. The reader thread and the
+     * scheduled steps both work under the bot's lock.
+     */
+    private static class Bot {
+
+        // Object properties.
+        private final int id;
+        private final String username;
+        private final ScheduledExecutorService scheduler;
+        private final long kartDataIntervalMs;
+        private final long deadline;
+        private final Random random;
+        private final ReentrantLock lock = new ReentrantLock();
+        private Socket socket;
+        private ProtocolWriter writer;
+        private ScheduledFuture<?> stepTask;
+        private volatile boolean stopping = false;
+
+        private Stage stage = Stage.CONNECTING;
+        private long loginSentAt;
+        private final ArrayDeque<Long> heartbeatsSentAt = new ArrayDeque<>();
+        private long nextHeartbeat;
+        private final int[] sentSequences = new int[SEQUENCE_WINDOW];
+        private final long[] sentAt = new long[SEQUENCE_WINDOW];
+        private int sequence = 0;
+
+        private int playerNumber;
+        private int map;
+        private final Set<Integer> opponents = new HashSet<>();
+        private long lobbyJoinedAt;
+        private boolean readySent;
+        private long rejoinAt;
+
+        private Race<KartPhysics> race;
+        private KartPhysics kart;
+        private final Map<Integer, KartPhysics> opponentKarts = new HashMap<>();
+        private Driver driver;
+        private long raceStartedAt;
+        private long nextKartData;
+
+        Bot(int id, ScheduledExecutorService scheduler, long kartDataIntervalMs, long deadline) {
+            this.id = id;
+            this.username = "loadbot" + id;
+            this.scheduler = scheduler;
+            this.kartDataIntervalMs = kartDataIntervalMs;
+            this.deadline = deadline;
+            this.random = new Random(id);
+        }
+
+        void start() {
+            Thread reader = new Thread(this::connectAndRead, "LoadGenerator-Bot-" + id);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void connectAndRead() {
+            try {
+                socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(HOST, PORT), CONNECT_TIMEOUT_MS);
+            } catch (IOException e) {
+                connectFailures.increment();
+                System.err.println("[Load] Bot " + id + " failed to connect: " + e.getMessage());
+                close();
+                return;
+            }
+
+            try (ProtocolReader reader = new ProtocolReader(socket.getInputStream())) {
+                writer = new ProtocolWriter(socket.getOutputStream(), sent);
+                connectedBots.incrementAndGet();
+                lock.lock();
+                try {
+                    stage = Stage.LOGGING_IN;
+                    nextHeartbeat = System.currentTimeMillis() + HEARTBEAT_MS;
+                    // Registration fails harmlessly if the account exists from an earlier run.
+                    send("REGISTER_REQUEST " + username + " " + PASSWORD);
+                } finally {
+                    lock.unlock();
+                }
+                stepTask = scheduler.scheduleAtFixedRate(this::step, STEP_MS, STEP_MS, TimeUnit.MILLISECONDS);
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    received.increment();
+                    lock.lock();
+                    try {
+                        handle(line);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                if (!stopping) {
+                    disconnects.increment();
+                    System.err.println("[Load] Bot " + id + " was disconnected by the server");
+                }
+            } catch (IOException e) {
+                if (!stopping) {
+                    disconnects.increment();
+                    System.err.println("[Load] Bot " + id + " lost its connection: " + e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("[Load] Bot " + id + " failed: " + e);
+            } finally {
+                close();
+            }
+        }
+
+        void stop() {
+            stopping = true;
+            lock.lock();
+            try {
+                if (stage != Stage.CLOSED && writer != null) send("END_CONNECTION");
+            } finally {
+                lock.unlock();
+            }
+            close();
+        }
+
+        private void close() {
+            lock.lock();
+            try {
+                if (stage == Stage.CLOSED) return;
+                if (stage == Stage.RACING) racingBots.decrementAndGet();
+                if (writer != null) connectedBots.decrementAndGet();
+                stage = Stage.CLOSED;
+            } finally {
+                lock.unlock();
+            }
+            if (stepTask != null) stepTask.cancel(false);
+            try {
+                if (socket != null) socket.close();
+            } catch (IOException ignored) {}
+        }
+
+        private void send(String line) {
+            writer.writeLine(line);
+        }
+
+        private void handle(String line) {
+            String[] data = line.split(" ");
+            // "LOGIN_FAILURE BUSY" or "... RATE_LIMITED": the server did not check the attempt, so try again.
+            if (data.length > 1 && (data[0].equals("LOGIN_FAILURE") || data[0].equals("REGISTER_FAILURE"))) {
+                authRetries.increment();
+                String retry = data[0].equals("LOGIN_FAILURE") ? "LOGIN_REQUEST " : "REGISTER_REQUEST ";
+                scheduler.schedule(() -> {
+                    lock.lock();
+                    try {
+                        // Still logging in, so not closed meanwhile.
+                        if (stage != Stage.LOGGING_IN) return;
+                        if (retry.startsWith("LOGIN")) loginSentAt = System.nanoTime();
+                        send(retry + username + " " + PASSWORD);
+                    } finally {
+                        lock.unlock();
+                    }
+                }, AUTH_RETRY_MS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            switch (data[0]) {
+                case "REGISTER_SUCCESS", "REGISTER_FAILURE" -> {
+                    loginSentAt = System.nanoTime();
+                    send("LOGIN_REQUEST " + username + " " + PASSWORD);
+                }
+                case "LOGIN_SUCCESS" -> {
+                    loginLatency.record((System.nanoTime() - loginSentAt) / 1000);
+                    joinLobby();
+                }
+                case "LOGIN_FAILURE" -> {
+                    loginFailures.increment();
+                    System.err.println("[Load] Bot " + id + " could not log in as " + username);
+                    stopping = true;
+                    send("END_CONNECTION");
+                }
+                case "RESPOND_PL_LOBBY_DATA" -> {
+                    // RESPOND_PL_LOBBY_DATA <playerNumber> <kartChoice> <mapChoice> <username> <wins>
+                    playerNumber = Integer.parseInt(data[1]);
+                    map = Integer.parseInt(data[3]);
+                    stage = Stage.LOBBY;
+                    lobbyJoinedAt = System.currentTimeMillis();
+                    readySent = false;
+                }
+                case "RESPOND_PL_LOBBY_DATA_FAILURE" -> waitToRejoin(LOBBY_WAIT_MS);
+                case "PLAYER_JOINED"         -> opponents.add(Integer.parseInt(data[1]));
+                case "OP_REMOVE"             -> removeOpponent(Integer.parseInt(data[1]));
+                case "UPDATE_MAP_CHOICE"     -> map = Integer.parseInt(data[1]);
+                case "REQUEST_START_GAME"    -> startRace();
+                case "SEND_OP_KART_SNAPSHOT" -> updateOpponents(data);
+                case "SEND_PL_KART_ACK"      -> acknowledgeKartData(Integer.parseInt(data[1]));
+                case "HEARTBEAT_ACK"         -> {
+                    Long heartbeatSentAt = heartbeatsSentAt.poll();
+                    if (heartbeatSentAt != null) heartbeatLatency.record((System.nanoTime() - heartbeatSentAt) / 1000);
+                }
+                case "BROADCAST_COLLISION"   -> scheduleCollision(data);
+                case "RACE_LOST"             -> finishRace();
+                case "END_CONNECTION"        -> close();
+            }
+        }
+
+        // Runs every STEP_MS on the scheduler.
+        private void step() {
+            lock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                if (stage == Stage.CLOSED || stage == Stage.CONNECTING) return;
+                if (now >= deadline) return; // main() stops every bot together.
+                if (now >= nextHeartbeat) {
+                    heartbeatsSentAt.add(System.nanoTime());
+                    send("HEARTBEAT");
+                    nextHeartbeat = now + HEARTBEAT_MS;
+                }
+                switch (stage) {
+                    case LOBBY -> {
+                        boolean roomFull = opponents.size() + 1 >= ROOM_SIZE;
+                        if (!readySent && (roomFull || now - lobbyJoinedAt >= LOBBY_WAIT_MS)) {
+                            send("PLAYER_READY");
+                            readySent = true;
+                        }
+                    }
+                    case RACING -> drive(now);
+                    case RESULTS -> {
+                        if (now >= rejoinAt) joinLobby();
+                    }
+                    default -> {}
+                }
+            } catch (RuntimeException e) {
+                // Never let an exception cancel the scheduled step.
+                System.err.println("[Load] Bot " + id + " step failed: " + e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void joinLobby() {
+            opponents.clear();
+            stage = Stage.JOINING;
+            send("REQUEST_PL_LOBBY_DATA");
+        }
+
+        private void waitToRejoin(long delayMs) {
+            if (stage == Stage.RACING) racingBots.decrementAndGet();
+            stage = Stage.RESULTS;
+            rejoinAt = System.currentTimeMillis() + delayMs;
+        }
+
+        private void startRace() {
+            Track track = tracks.computeIfAbsent(map, TrackLoader::load);
+            race = new Race<>(track, new Random(random.nextLong()));
+            Point start = track.getStartPosition(playerNumber);
+            kart = new KartPhysics(playerNumber, track.getStartDirection(), start.x, start.y, track);
+            race.addKart(kart);
+            opponentKarts.clear();
+            driver = new Driver(routeFor(map), random);
+            race.setListener(new Race.Listener<>() {
+                @Override
+                public void onFinished(KartPhysics finished) {
+                    if (finished != kart) return;
+                    send("RACE_WON");
+                    // The game stays active on the server until a player ends it.
+                    send("END_GAME");
+                    racesWon.increment();
+                    finishRace();
+                }
+
+                @Override
+                public void onKartCollision(KartPhysics first, KartPhysics second, long scheduledStart,
+                                            float firstSpeed, float secondSpeed) {
+                    if (first != kart && second != kart) return;
+                    send("SEND_COLLISION " + first.getKartNumber() + " " + second.getKartNumber() + " "
+                            + scheduledStart + " " + firstSpeed + " " + secondSpeed);
+                    collisionsSent.increment();
+                }
+            });
+            raceStartedAt = System.currentTimeMillis();
+            nextKartData = raceStartedAt;
+            stage = Stage.RACING;
+            racesStarted.increment();
+            racingBots.incrementAndGet();
+        }
+
+        private void drive(long now) {
+            if (now - raceStartedAt > RACE_TIMEOUT_MS) {
+                System.err.println("[Load] Bot " + id + " gave up on a race after " + RACE_TIMEOUT_MS / 1000 + " s");
+                send("END_GAME");
+                finishRace();
+                return;
+            }
+            int input = driver.nextInput(kart);
+            // Opponents only move with the server's snapshots.
+            race.step(kartNumber -> kartNumber == playerNumber ? input : 0);
+            if (stage != Stage.RACING || now < nextKartData) return;
+
+            nextKartData += kartDataIntervalMs;
+            if (nextKartData < now) nextKartData = now + kartDataIntervalMs;
+            int slot = sequence & (SEQUENCE_WINDOW - 1);
+            sentSequences[slot] = sequence;
+            sentAt[slot] = System.nanoTime();
+            send("SEND_KART_DATA " + playerNumber + " " + kart.getRotation() + " " + kart.getSpeed() + " "
+                    + kart.getPosition().x + " " + kart.getPosition().y + " " + sequence);
+            sequence++;
+        }
+
+        private void finishRace() {
+            if (stage != Stage.RACING) return;
+            waitToRejoin(RESULTS_MS);
+            race = null;
+            kart = null;
+            opponentKarts.clear();
+        }
+
+        private void acknowledgeKartData(int acknowledged) {
+            int slot = acknowledged & (SEQUENCE_WINDOW - 1);
+            // Only the newest report per tick is acknowledged; older ones are never answered.
+            if (sentSequences[slot] == acknowledged && sentAt[slot] != 0) {
+                kartAckLatency.record((System.nanoTime() - sentAt[slot]) / 1000);
+                sentAt[slot] = 0;
+            }
+        }
+
+        // SEND_OP_KART_SNAPSHOT <count> (<kart> <rot> <speed> <x> <y>)*
+        private void updateOpponents(String[] data) {
+            if (stage != Stage.RACING) return;
+            int count = Integer.parseInt(data[1]);
+            for (int i = 0; i < count; i++) {
+                int base = 2 + i * 5;
+                int kartNumber = Integer.parseInt(data[base]);
+                if (kartNumber == playerNumber) continue;
+                KartPhysics opponent = opponentKarts.get(kartNumber);
+                if (opponent == null) {
+                    opponent = new KartPhysics(kartNumber, 0, 0, 0, race.getTrack());
+                    opponentKarts.put(kartNumber, opponent);
+                    race.addKart(opponent);
+                }
+                opponent.applyRemoteState(Float.parseFloat(data[base + 1]), Float.parseFloat(data[base + 2]),
+                        Float.parseFloat(data[base + 3]), Float.parseFloat(data[base + 4]));
+            }
+        }
+
+        private void removeOpponent(int opponentNumber) {
+            opponents.remove(opponentNumber);
+            if (opponentKarts.remove(opponentNumber) != null) race.removeKart(opponentNumber);
+        }
+
+        // BROADCAST_COLLISION <kart1> <kart2> <timestamp> <origSpeed1> <origSpeed2>
+        private void scheduleCollision(String[] data) {
+            if (stage != Stage.RACING) return;
+            int kart1 = Integer.parseInt(data[1]);
+            int kart2 = Integer.parseInt(data[2]);
+            long timestamp = Long.parseLong(data[3]);
+            if (kart.getPendingCollisionStart() > 0) return;
+            if (kart1 == playerNumber) kart.scheduleCollision(timestamp, Float.parseFloat(data[4]));
+            else if (kart2 == playerNumber) kart.scheduleCollision(timestamp, Float.parseFloat(data[5]));
+        }
+    }
+}
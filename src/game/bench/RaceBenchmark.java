@@ -0,0 +1,260 @@
+package game.bench;
+
+import game.simulation.KartInput;
+import game.simulation.KartPhysics;
+import game.simulation.Race;
+import game.simulation.Track;
+import game.simulation.TrackLoader;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The {@code RaceBenchmark} class measures the hot paths of the headless race
+ * engine: kart movement, the wrong-way and checkpoint tests, kart collisions
+ * and whole race ticks. It follows the JMH recipe without the dependency:
+ * each case is warmed up, then timed over several fixed-length iterations,
+ * and reports the mean time per operation with its spread and the bytes
+ * allocated per operation. Races run on a simulated clock advanced one
+ * 15 ms step per tick, with seeded inputs, so runs are repeatable.
+ * <pre>
+ *   java -Djava.awt.headless=true game.bench.RaceBenchmark [case-prefix] [warmups] [iterations] [ms-per-iteration]
+ * </pre>
+ * The {@code tick.*} cases are the baseline for engine optimizations: six
+ * karts with nitro, banana slips and collisions as in a normal race, and a
+ * synthetic 64-kart field spread over the whole track.
+ */
+public class RaceBenchmark {
+
+    // Constants.
+    private static final int DEFAULT_WARMUPS = 3;
+    private static final int DEFAULT_ITERATIONS = 5;
+    private static final long DEFAULT_ITERATION_MS = 1000;
+    private static final int BATCH = 256;
+    private static final long STEP_MS = KartPhysics.STEP_MS;
+    private static final long SEED = 42;
+    private static final int STRESS_KARTS = 64;
+    private static final int SLIP_EVERY_TICKS = 200;
+    private static final long SLIP_MS = 1000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Stops the JIT from discarding results as dead code.
+    private static long sink;
+
+    // Prevent object creation from the implicit public constructor.
+    private RaceBenchmark() {
+        throw new IllegalStateException("Tried to instantiate the RaceBenchmark utility class");
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        int warmups = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WARMUPS;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+        long iterationMs = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_ITERATION_MS;
+
+        Track track = TrackLoader.load(0);
+        List<Case> cases = List.of(
+                new Case("kart.updatePosition", () -> updatePositionCase(track)),
+                new Case("kart.isGoingWrongWay", () -> wrongWayCase(track)),
+                new Case("race.checkCheckpoints", () -> checkpointCase(track)),
+                new Case("race.collide", () -> collideCase(track)),
+                new Case("race.checkCollisions.6", () -> collisionSweepCase(track, false)),
+                new Case("race.checkCollisions.64", () -> collisionSweepCase(track, true)),
+                new Case("tick.6karts", () -> tickCase(track, false)),
+                new Case("tick.64karts", () -> tickCase(track, true)));
+
+        System.out.println("java=" + System.getProperty("java.version") + " warmups=" + warmups
+                + " iterations=" + iterations + " iterationMs=" + iterationMs);
+        System.out.printf("%-26s %12s %10s %14s%n", "case", "ns/op", "+/-", "bytes/op");
+        for (Case benchmark : cases) {
+            if (!benchmark.name.startsWith(filter)) continue;
+            run(benchmark, warmups, iterations, iterationMs);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static void run(Case benchmark, int warmups, int iterations, long iterationMs) {
+        Runnable operation = benchmark.setup.get();
+        for (int i = 0; i < warmups; i++) measure(operation, iterationMs);
+
+        double[] nanosPerOp = new double[iterations];
+        double bytesPerOp = 0;
+        for (int i = 0; i < iterations; i++) {
+            double[] result = measure(operation, iterationMs);
+            nanosPerOp[i] = result[0];
+            bytesPerOp += result[1] / iterations;
+        }
+        double mean = 0;
+        for (double value : nanosPerOp) mean += value / iterations;
+        double variance = 0;
+        for (double value : nanosPerOp) variance += (value - mean) * (value - mean) / Math.max(1, iterations - 1);
+        System.out.printf("%-26s %12.1f %10.1f %14.1f%n", benchmark.name, mean, Math.sqrt(variance), bytesPerOp);
+    }
+
+    // One timed iteration: nanoseconds and bytes allocated per operation.
+    private static double[] measure(Runnable operation, long iterationMs) {
+        long thread = Thread.currentThread().getId();
+        long deadline = System.nanoTime() + iterationMs * 1_000_000;
+        long operations = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long now;
+        do {
+            for (int i = 0; i < BATCH; i++) operation.run();
+            operations += BATCH;
+            now = System.nanoTime();
+        } while (now < deadline);
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        return new double[] { (double) (now - start) / operations, (double) bytes / operations };
+    }
+
+    private static Runnable updatePositionCase(Track track) {
+        SimulatedClock clock = new SimulatedClock();
+        List<KartPhysics> karts = gridKarts(track, clock, null);
+        for (KartPhysics kart : karts) kart.setSpeed(1.5f);
+        int[] next = { 0 };
+        return () -> {
+            KartPhysics kart = karts.get(next[0]++ % karts.size());
+            if (kart.hasCrashed()) kart.updateRotation(KartPhysics.TURN_LEFT);
+            kart.updatePosition();
+            clock.time += 1;
+            sink += (long) kart.getPosition().x;
+        };
+    }
+
+    private static Runnable wrongWayCase(Track track) {
+        List<KartPhysics> karts = scatteredKarts(track, new SimulatedClock(), STRESS_KARTS, null);
+        int[] next = { 0 };
+        return () -> {
+            if (karts.get(next[0]++ & (STRESS_KARTS - 1)).isGoingWrongWay()) sink++;
+        };
+    }
+
+    private static Runnable checkpointCase(Track track) {
+        Race<KartPhysics> race = new Race<>(track, new Random(SEED));
+        List<KartPhysics> karts = scatteredKarts(track, new SimulatedClock(), STRESS_KARTS, race);
+        int[] next = { 0 };
+        return () -> {
+            KartPhysics kart = karts.get(next[0]++ & (STRESS_KARTS - 1));
+            race.checkCheckpoints(kart);
+            sink += race.getLap(kart);
+        };
+    }
+
+    // Two overlapping karts, reset before every call so each one takes the full bounce path.
+    private static Runnable collideCase(Track track) {
+        SimulatedClock clock = new SimulatedClock();
+        Race<KartPhysics> race = new Race<>(track, new Random(SEED));
+        Point start = track.getStartPosition(1);
+        KartPhysics first = new KartPhysics(1, track.getStartDirection(), start.x, start.y,
+                KartPhysics.KART_SIZE, KartPhysics.KART_SIZE, track, clock);
+        KartPhysics second = new KartPhysics(2, track.getStartDirection(), start.x + 10, start.y + 5,
+                KartPhysics.KART_SIZE, KartPhysics.KART_SIZE, track, clock);
+        return () -> {
+            first.applyRemoteState(first.getRotation(), 1f, start.x, start.y);
+            second.applyRemoteState(second.getRotation(), 1f, start.x + 10, start.y + 5);
+            first.scheduleCollision(0, 0f);
+            second.scheduleCollision(0, 0f);
+            if (race.collide(first, second)) sink++;
+        };
+    }
+
+    private static Runnable collisionSweepCase(Track track, boolean stress) {
+        SimulatedClock clock = new SimulatedClock();
+        Race<KartPhysics> race = new Race<>(track, new Random(SEED));
+        if (stress) scatteredKarts(track, clock, STRESS_KARTS, race);
+        else gridKarts(track, clock, race);
+        return () -> {
+            // Keep the karts able to collide again, as if their slow-downs had worn off.
+            for (KartPhysics kart : race.getKarts()) kart.scheduleCollision(0, kart.getSpeed());
+            race.checkCollisions();
+        };
+    }
+
+    // A whole race tick: inputs, nitro, checkpoints, movement and collisions for every kart.
+    private static Runnable tickCase(Track track, boolean stress) {
+        SimulatedClock clock = new SimulatedClock();
+        Race<KartPhysics> race = new Race<>(track, new Random(SEED));
+        List<KartPhysics> karts = stress ? scatteredKarts(track, clock, STRESS_KARTS, race) : gridKarts(track, clock, race);
+        int[] inputs = new int[karts.size() + 1];
+        Random random = new Random(SEED);
+        long[] tick = { 0 };
+        IntUnaryOperator inputOf = kartNumber -> inputs[kartNumber];
+        return () -> {
+            tick[0]++;
+            clock.time += STEP_MS;
+            // Each kart holds the throttle, steers in bursts and sometimes uses nitro.
+            for (KartPhysics kart : karts) {
+                int number = kart.getKartNumber();
+                if (random.nextInt(32) == 0) {
+                    inputs[number] = KartInput.of(true, false, random.nextBoolean(), random.nextBoolean(),
+                            random.nextInt(8) == 0, random.nextInt(6) == 0);
+                }
+                if (kart.hasCrashed()) inputs[number] |= KartInput.LEFT;
+            }
+            // A banana somewhere on the track every few seconds.
+            if (tick[0] % SLIP_EVERY_TICKS == 0) {
+                karts.get(random.nextInt(karts.size())).startSlip(clock.time, SLIP_MS);
+            }
+            race.step(inputOf);
+        };
+    }
+
+    // The normal start grid.
+    private static List<KartPhysics> gridKarts(Track track, SimulatedClock clock, Race<KartPhysics> race) {
+        List<KartPhysics> karts = new ArrayList<>();
+        for (int number = 1; number <= track.getGridSize(); number++) {
+            Point start = track.getStartPosition(number);
+            KartPhysics kart = new KartPhysics(number, track.getStartDirection(), start.x, start.y,
+                    KartPhysics.KART_SIZE, KartPhysics.KART_SIZE, track, clock);
+            karts.add(kart);
+            if (race != null) race.addKart(kart);
+        }
+        return karts;
+    }
+
+    // Karts at random places on the track, facing random ways.
+    private static List<KartPhysics> scatteredKarts(Track track, SimulatedClock clock, int count, Race<KartPhysics> race) {
+        Random random = new Random(SEED);
+        int width = track.getDefinition().getWidth() - KartPhysics.KART_SIZE;
+        int height = track.getDefinition().getHeight() - KartPhysics.KART_SIZE;
+        List<KartPhysics> karts = new ArrayList<>();
+        while (karts.size() < count) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            KartPhysics kart = new KartPhysics(karts.size() + 1, random.nextInt(16), x, y,
+                    KartPhysics.KART_SIZE, KartPhysics.KART_SIZE, track, clock);
+            if (!track.contains(kart.getHitBox())) continue;
+            karts.add(kart);
+            if (race != null) race.addKart(kart);
+        }
+        return karts;
+    }
+
+    private static class SimulatedClock implements LongSupplier {
+        private long time = 0;
+
+        @Override
+        public long getAsLong() {
+            return time;
+        }
+    }
+
+    private static class Case {
+        private final String name;
+        private final Supplier<Runnable> setup;
+
+        Case(String name, Supplier<Runnable> setup) {
+            this.name = name;
+            this.setup = setup;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package game.bench;
+
+import game.common.TrackMask;
+import game.simulation.Track;
+import game.simulation.TrackLoader;
+
+import java.awt.*;
+import java.awt.geom.Area;
+import java.util.Random;
+
+/**
+ * The {@code TrackCollisionBenchmark} class compares the kart boundary test
+ * done with {@code Area.contains} against the rasterized {@link TrackMask}.
+ * Both are run over the same random kart-sized hit boxes spread across the
+ * track, and the table shows the cost per test and how often they disagree
+ * (only possible within a pixel of a diagonal wall):
+ * <pre>
+ *   java -Djava.awt.headless=true game.bench.TrackCollisionBenchmark [tests] [rounds]
+ * </pre>
+ */
+public class TrackCollisionBenchmark {
+
+    // Constants.
+    private static final int DEFAULT_TESTS = 200_000;
+    private static final int DEFAULT_ROUNDS = 5;
+    private static final int HIT_BOX_SIZE = 30;
+    private static final long SEED = 42;
+
+    // Stops the JIT from discarding the loops as dead code.
+    private static int sink;
+
+    // Prevent object creation from the implicit public constructor.
+    private TrackCollisionBenchmark() {
+        throw new IllegalStateException("Tried to instantiate the TrackCollisionBenchmark utility class");
+    }
+
+    public static void main(String[] args) {
+        int tests = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TESTS;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        long buildStart = System.nanoTime();
+        Track track = TrackLoader.load(0);
+        System.out.printf("track and mask loaded in %.1f ms%n", (System.nanoTime() - buildStart) / 1e6);
+        Area area = track.getDefinition().createPlayableArea();
+        TrackMask mask = track.getMask();
+
+        Random random = new Random(SEED);
+        Rectangle[] hitBoxes = new Rectangle[tests];
+        for (int i = 0; i < tests; i++) {
+            hitBoxes[i] = new Rectangle(random.nextInt(mask.getWidth() - HIT_BOX_SIZE),
+                    random.nextInt(mask.getHeight() - HIT_BOX_SIZE), HIT_BOX_SIZE, HIT_BOX_SIZE);
+        }
+
+        int disagreements = 0;
+        for (Rectangle hitBox : hitBoxes) {
+            if (area.contains(hitBox) != mask.contains(hitBox)) disagreements++;
+        }
+        System.out.printf("tests=%d disagreements=%d (%.3f%%)%n", tests, disagreements, 100.0 * disagreements / tests);
+        System.out.printf("%6s %16s %16s %10s%n", "round", "area ns/test", "mask ns/test", "speedup");
+
+        for (int round = 1; round <= rounds; round++) {
+            long areaNanos = timeArea(area, hitBoxes);
+            long maskNanos = timeMask(mask, hitBoxes);
+            System.out.printf("%6d %16.1f %16.1f %9.1fx%n", round,
+                    (double) areaNanos / tests, (double) maskNanos / tests, (double) areaNanos / Math.max(1, maskNanos));
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static long timeArea(Area area, Rectangle[] hitBoxes) {
+        int inside = 0;
+        long start = System.nanoTime();
+        for (Rectangle hitBox : hitBoxes) {
+            if (area.contains(hitBox)) inside++;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += inside;
+        return elapsed;
+    }
+
+    private static long timeMask(TrackMask mask, Rectangle[] hitBoxes) {
+        int inside = 0;
+        long start = System.nanoTime();
+        for (Rectangle hitBox : hitBoxes) {
+            if (mask.contains(hitBox)) inside++;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += inside;
+        return elapsed;
+    }
+}
@@ -0,0 +1,179 @@
+package game.client;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code ActiveRenderer} class draws displays that support it from a
+ * dedicated thread. Each frame goes into an accelerated {@code VolatileImage}
+ * back buffer, which is then copied to the panel in one blit, so the frame rate
+ * no longer depends on the Swing repaint timer. Enable it with
+ * {@code -Dgame.client.render=active}. {@code -Dgame.client.fps} sets the pace:
+ * {@code vsync} (the default) paces to the display refresh rate, {@code uncapped}
+ * does not wait, and a number sets the target rate. Displays that do not support
+ * it, or a failure to create the back buffer, fall back to passive repaints.
+ */
+public class ActiveRenderer implements Runnable {
+
+    // Constants.
+    private static final String RENDER_MODE = System.getProperty("game.client.render", "passive");
+    private static final String FPS_SETTING = System.getProperty("game.client.fps", "vsync");
+    private static final boolean LOG_FPS = Boolean.getBoolean("game.client.render.stats");
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    private static final long IDLE_SLEEP_MS = 10;
+    private static final long FPS_LOG_INTERVAL_NANOS = 5_000_000_000L;
+
+    // Object properties.
+    private final BaseDisplay panel;
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private VolatileImage backBuffer;
+    private volatile boolean running = false;
+    private long frameNanos;
+    private int framesSinceLog = 0;
+    private long lastLogTime;
+
+    public static boolean isRequested() {
+        return "active".equalsIgnoreCase(RENDER_MODE) && !GraphicsEnvironment.isHeadless();
+    }
+
+    // Constructor.
+    public ActiveRenderer(BaseDisplay panel) {
+        this.panel = panel;
+    }
+
+    public void start() {
+        frameNanos = resolveFrameNanos();
+        running = true;
+        Thread thread = new Thread(this, "ActiveRenderer");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Active rendering enabled (" + (frameNanos == 0 ? "uncapped"
+                : Math.round(1_000_000_000.0 / frameNanos) + " FPS target") + ")");
+    }
+
+    // True while this thread owns drawing of the given display; Swing must not call its update then.
+    public boolean isRendering(Display display) {
+        return running && display != null && display.supportsActiveRendering();
+    }
+
+    @Override
+    public void run() {
+        lastLogTime = System.nanoTime();
+        while (running) {
+            Display display = panel.getCurrentDisplay();
+            if (display == null || !display.supportsActiveRendering() || !panel.isShowing()) {
+                sleepMillis(IDLE_SLEEP_MS);
+                continue;
+            }
+            long frameStart = System.nanoTime();
+            try {
+                renderFrame(display);
+            } catch (Exception e) {
+                // Anything wrong with the accelerated path hands drawing back to Swing for good.
+                System.err.println("Active rendering failed, falling back to repaints: " + e.getMessage());
+                running = false;
+                return;
+            }
+            countFrame(frameStart);
+            pace(frameStart);
+        }
+    }
+
+    // Swing asked for a repaint (window exposed or resized): show the last finished frame.
+    public void paintLastFrame(Graphics g) {
+        bufferLock.lock();
+        try {
+            if (backBuffer != null && !backBuffer.contentsLost()) g.drawImage(backBuffer, 0, 0, null);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void renderFrame(Display display) {
+        GraphicsConfiguration config = panel.getGraphicsConfiguration();
+        if (config == null) return;
+        int width = Math.max(1, panel.getWidth());
+        int height = Math.max(1, panel.getHeight());
+
+        bufferLock.lock();
+        try {
+            if (backBuffer == null || backBuffer.getWidth() != width || backBuffer.getHeight() != height
+                    || backBuffer.validate(config) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (backBuffer != null) backBuffer.flush();
+                backBuffer = config.createCompatibleVolatileImage(width, height);
+            }
+            Graphics2D g = backBuffer.createGraphics();
+            try {
+                g.setColor(panel.getBackground());
+                g.fillRect(0, 0, width, height);
+                // The game advances its own simulation clock here, once per frame.
+                display.update(g);
+            } finally {
+                g.dispose();
+            }
+            // A lost buffer is simply redrawn next frame; the simulation must not run twice.
+            if (backBuffer.contentsLost()) return;
+
+            Graphics screen = panel.getGraphics();
+            if (screen == null) return;
+            try {
+                screen.drawImage(backBuffer, 0, 0, null);
+            } finally {
+                screen.dispose();
+            }
+        } finally {
+            bufferLock.unlock();
+        }
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void pace(long frameStart) {
+        if (frameNanos == 0) {
+            Thread.yield();
+            return;
+        }
+        long remaining = frameNanos - (System.nanoTime() - frameStart);
+        if (remaining > 0) LockSupport.parkNanos(remaining);
+    }
+
+    private void countFrame(long now) {
+        if (!LOG_FPS) return;
+        framesSinceLog++;
+        long elapsed = now - lastLogTime;
+        if (elapsed >= FPS_LOG_INTERVAL_NANOS) {
+            System.out.printf("[Render] %.1f FPS%n", framesSinceLog * 1_000_000_000.0 / elapsed);
+            framesSinceLog = 0;
+            lastLogTime = now;
+        }
+    }
+
+    // Java2D has no portable vsync, so "vsync" paces to the screen's refresh rate.
+    private long resolveFrameNanos() {
+        if ("uncapped".equalsIgnoreCase(FPS_SETTING)) return 0;
+        int rate;
+        if ("vsync".equalsIgnoreCase(FPS_SETTING)) {
+            rate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+            if (rate == DisplayMode.REFRESH_RATE_UNKNOWN) rate = DEFAULT_REFRESH_RATE;
+        }
+        else {
+            try {
+                rate = Integer.parseInt(FPS_SETTING);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid game.client.fps value: " + FPS_SETTING);
+                rate = DEFAULT_REFRESH_RATE;
+            }
+        }
+        return rate <= 0 ? 0 : 1_000_000_000L / rate;
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
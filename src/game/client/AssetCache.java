@@ -0,0 +1,215 @@
+package game.client;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code AssetCache} utility class loads each image once and hands out
+ * shared references to every display and kart. Still images are decoded into
+ * images compatible with the screen so Java2D can keep them accelerated;
+ * animated GIFs are left to the toolkit so they keep animating. The sixteen
+ * direction sprites of each kart style are packed side by side into one atlas.
+ * Entries are evicted least recently used first once the cache exceeds its
+ * memory budget, set in megabytes with {@code -Dgame.client.assetCacheMB}.
+ */
+public class AssetCache {
+
+    // Constants.
+    private static final long DEFAULT_BUDGET_MB = 64;
+    private static final long BUDGET_BYTES = Math.max(1,
+            Long.getLong("game.client.assetCacheMB", DEFAULT_BUDGET_MB)) * 1024 * 1024;
+    private static final int KART_DIRECTIONS = 16;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cachedBytes = 0;
+    private static int decodeCount = 0;
+
+    // Prevent object creation from the implicit public constructor.
+    private AssetCache() {
+        throw new IllegalStateException("Tried to instantiate the AssetCache utility class");
+    }
+
+    // Number of images decoded so far; stays constant once every screen has been visited.
+    public static int getDecodeCount() {
+        lock.lock();
+        try {
+            return decodeCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static long getCachedBytes() {
+        lock.lock();
+        try {
+            return cachedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Shared icon for an image under game/client; throws NullPointerException if it does not exist.
+    public static ImageIcon getIcon(String path) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(path);
+            if (entry != null) return (ImageIcon) entry.value;
+            ImageIcon icon = loadIcon(path);
+            put(path, icon, (long) icon.getIconWidth() * icon.getIconHeight() * BYTES_PER_PIXEL);
+            return icon;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The sixteen direction sprites of a kart style, drawn from one shared atlas.
+    public static ImageIcon[] getKartSprites(int style) {
+        String key = "kart-atlas/" + style;
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                ImageIcon[] sprites = loadKartAtlas(style);
+                long bytes = 0;
+                for (ImageIcon sprite : sprites) bytes += (long) sprite.getIconWidth() * sprite.getIconHeight() * BYTES_PER_PIXEL;
+                entry = put(key, sprites, bytes);
+            }
+            // Callers get their own array, but the icons and atlas behind it are shared.
+            return ((ImageIcon[]) entry.value).clone();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held.
+    private static Entry put(String key, Object value, long bytes) {
+        Entry entry = new Entry(value, bytes);
+        entries.put(key, entry);
+        cachedBytes += bytes;
+        // Evicted images stay valid for whoever still holds them; they are just decoded again next time.
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > BUDGET_BYTES && entries.size() > 1) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            if (evicted.getValue() == entry) continue;
+            cachedBytes -= evicted.getValue().bytes;
+            eldest.remove();
+        }
+        return entry;
+    }
+
+    private static ImageIcon loadIcon(String path) {
+        URL url = Objects.requireNonNull(AssetCache.class.getResource(path));
+        decodeCount++;
+        // Animated GIFs must stay toolkit images to keep animating.
+        if (path.endsWith(".gif")) return new ImageIcon(url);
+        BufferedImage image = decode(url);
+        return image != null ? new ImageIcon(image) : new ImageIcon(url);
+    }
+
+    private static ImageIcon[] loadKartAtlas(int style) {
+        BufferedImage[] frames = new BufferedImage[KART_DIRECTIONS];
+        int width = 0;
+        int height = 0;
+        for (int i = 0; i < KART_DIRECTIONS; i++) {
+            URL url = Objects.requireNonNull(AssetCache.class.getResource("images/kart/style" + style + "/kart" + i + ".png"));
+            decodeCount++;
+            frames[i] = decode(url);
+            if (frames[i] == null) throw new NullPointerException("Unreadable kart sprite: " + url);
+            width += frames[i].getWidth();
+            height = Math.max(height, frames[i].getHeight());
+        }
+
+        BufferedImage atlas = createCompatibleImage(width, height);
+        ImageIcon[] sprites = new ImageIcon[KART_DIRECTIONS];
+        Graphics2D g = atlas.createGraphics();
+        try {
+            int x = 0;
+            for (int i = 0; i < KART_DIRECTIONS; i++) {
+                g.drawImage(frames[i], x, 0, null);
+                sprites[i] = new AtlasIcon(atlas, x, frames[i].getWidth(), frames[i].getHeight());
+                x += frames[i].getWidth();
+            }
+        } finally {
+            g.dispose();
+        }
+        return sprites;
+    }
+
+    // Decode and convert to the screen's pixel layout; null if the file cannot be read.
+    private static BufferedImage decode(URL url) {
+        try {
+            BufferedImage decoded = ImageIO.read(url);
+            if (decoded == null) return null;
+            BufferedImage image = createCompatibleImage(decoded.getWidth(), decoded.getHeight());
+            Graphics2D g = image.createGraphics();
+            try {
+                g.drawImage(decoded, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            return image;
+        } catch (IOException e) {
+            System.err.println("Failed to decode image " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static BufferedImage createCompatibleImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * One sprite of a kart atlas. Painting copies the region straight from the
+     * atlas so the shared, accelerated image is used rather than a copy.
+     */
+    private static class AtlasIcon extends ImageIcon {
+        private static final long serialVersionUID = 1L;
+        private final transient BufferedImage atlas;
+        private final int offsetX;
+        private final int width;
+        private final int height;
+
+        AtlasIcon(BufferedImage atlas, int offsetX, int width, int height) {
+            // The sub-image shares the atlas pixels; it is only used by callers that need an Image.
+            super(atlas.getSubimage(offsetX, 0, width, height));
+            this.atlas = atlas;
+            this.offsetX = offsetX;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int getIconWidth() { return width; }
+
+        @Override
+        public int getIconHeight() { return height; }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.drawImage(atlas, x, y, x + width, y + height, offsetX, 0, offsetX + width, height, null);
+        }
+    }
+}
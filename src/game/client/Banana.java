@@ -13,24 +13,14 @@ public class Banana {
 
     public Banana(Racetrack racetrack, float x, float y) {
         this.racetrack = racetrack;
-        // Try relative resource first
-        java.net.URL res = getClass().getResource("images/racetrack/Banana.gif");
-        if (res == null) {
-            // Try absolute resource path
-            res = getClass().getResource("/game/client/images/racetrack/Banana.gif");
-        }
-        if (res != null) {
-            this.image = new ImageIcon(res);
-        } else {
-            // Fallback to file system path (useful when running from IDE)
-            java.io.File f = new java.io.File("src/game/client/images/racetrack/Banana.gif");
-            if (f.exists()) {
-                this.image = new ImageIcon(f.getAbsolutePath());
-            } else {
-                System.err.println("[Banana] Resource not found (resource and file): images/racetrack/Banana.gif");
-                this.image = new ImageIcon();
-            }
+        ImageIcon icon;
+        try {
+            icon = AssetCache.getIcon("images/racetrack/Banana.gif");
+        } catch (NullPointerException e) {
+            System.err.println("[Banana] Resource not found: images/racetrack/Banana.gif");
+            icon = new ImageIcon();
         }
+        this.image = icon;
         this.x = x;
         this.y = y;
         int w = Math.max(16, image.getIconWidth());
@@ -20,9 +20,12 @@ public class BaseDisplay extends JPanel implements ActionListener, KeyListener {
     public static BaseDisplay getInstance() { return instance; }
 
     // Object properties.
-    private Display currentDisplay;
+    private volatile Display currentDisplay;
+    private ActiveRenderer activeRenderer;
 
     // Property access methods.
+    public Display getCurrentDisplay() { return currentDisplay; }
+
     public void setCurrentDisplay(Display newDisplay) {
         currentDisplay = newDisplay;
         requestFocus();
@@ -38,13 +41,25 @@ public class BaseDisplay extends JPanel implements ActionListener, KeyListener {
 
         setCurrentDisplay(new MenuDisplay());
 
-        new Timer(REFRESH_RATE, e -> repaint()).start();
+        if (ActiveRenderer.isRequested()) {
+            activeRenderer = new ActiveRenderer(this);
+            activeRenderer.start();
+        }
+        new Timer(REFRESH_RATE, e -> {
+            if (!isActivelyRendered()) repaint();
+        }).start();
+    }
+
+    private boolean isActivelyRendered() {
+        return activeRenderer != null && activeRenderer.isRendering(currentDisplay);
     }
 
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        currentDisplay.update(g);
+        // The render thread owns the display's update while it is active; just show its last frame.
+        if (isActivelyRendered()) activeRenderer.paintLastFrame(g);
+        else currentDisplay.update(g);
     }
 
     @Override
@@ -14,4 +14,7 @@ public interface Display {
     void update(Graphics g);
     void buttonHandler(Object button);
     void keyHandler(int keyCode, boolean keyActivated);
+
+    // Whether update may be called from the ActiveRenderer thread instead of the Swing repaint.
+    default boolean supportsActiveRendering() { return false; }
 }
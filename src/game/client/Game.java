@@ -1,5 +1,7 @@
 package game.client;
 
+import game.simulation.Race;
+
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
@@ -11,9 +13,6 @@ import java.util.List;
  */
 public class Game {
 
-    // Constants.
-    private static final int TOTAL_LAPS = 3;
-
     // Types of game over.
     private static final int RACE_WON       = 0;
     private static final int KART_CRASHED   = 1;
@@ -24,24 +23,21 @@ public class Game {
     private Racetrack racetrack;
     private ControlledPlayer mainPlayer;
     private List<Player> opponents;
-    private List<Rectangle> gameCheckpoints;
     private int trackType;
     private boolean isBadWeather;
     private boolean isGameOver;
-    private int currentLap;
-    private int nextCheckpoint;
     private int gameEndType;
     private String gameEndReason;
     private final Timer gameTimer;
     private int gameTimeInSecondsTotal;
-    
+    private Race<Kart> race;
 
     // Property access methods.
     public Racetrack getRacetrack()         { return racetrack; }
     public List<Player> getOpponents()      { return opponents; }
     public int getGameEndType()             { return gameEndType; }
     public String getGameEndReason()        { return gameEndReason; }
-    public int getCurrentLap()              { return currentLap; }
+    public int getCurrentLap()              { return race.getLap(mainPlayer.getKart()); }
     public ControlledPlayer getMainPlayer() { return mainPlayer; }
     public int getTrackType()               { return trackType; }
     public boolean getWeatherForecast()     { return isBadWeather; }
@@ -53,9 +49,6 @@ public class Game {
         for (Player player : opponents) assignKartToPlayer(player, options);
         assignKartToPlayer(mainPlayer, options);
 
-        currentLap = 1;
-        nextCheckpoint = 0;
-
         gameTimeInSecondsTotal = 0;
         gameTimer = new Timer(1000, e -> gameTimeInSecondsTotal++);
 
@@ -66,12 +59,30 @@ public class Game {
         trackType = options.getGameMap();
         isBadWeather = options.getWeather();
         racetrack = new Racetrack(trackType);
-        gameCheckpoints = racetrack.getCheckpoints();
         opponents = options.getOpponents();
         mainPlayer = options.getMainPlayer();
+        race = new Race<>(racetrack.getTrack());
+        race.setListener(new Race.Listener<>() {
+            @Override
+            public void onLapCompleted(Kart kart, int lap) {
+                AudioManager.playSound("NEW_LAP", false);
+            }
+
+            @Override
+            public void onFinished(Kart kart) {
+                winGame(kart.getOwner());
+            }
+
+            @Override
+            public void onKartCollision(Kart first, Kart second, long scheduledStart, float firstSpeed, float secondSpeed) {
+                // Tell the server so it can broadcast the collision with the same start time and speeds.
+                ServerHandler handler = ServerManager.getHandler();
+                if (handler != null) {
+                    handler.sendCollision(first.getKartNumber(), second.getKartNumber(), scheduledStart, firstSpeed, secondSpeed);
+                }
+            }
+        });
     }
-    
-   
 
     public void startGameTimer() {
         // Reset nitro for all players when a new race starts
@@ -81,6 +92,7 @@ public class Game {
 
     public void removeOpponent(int opponentNumber) {
         opponents.removeIf(opponent -> opponent.getPlayerNumber() == opponentNumber);
+        race.removeKart(opponentNumber);
     }
 
     public void assignKartToPlayer(Player player, GameOptions options) {
@@ -92,6 +104,7 @@ public class Game {
         // Create the kart and provide it to the player.
         var kart = new Kart(startDirection, startPosition, player, kartType, racetrack);
         player.setKart(kart);
+        race.addKart(kart);
     }
 
     public void winGame(Player winner) {
@@ -112,7 +125,7 @@ public class Game {
         gameTimer.stop();
         gameEndType = RACE_WON;
         gameEndReason = "Player " + winner.getPlayerNumber() + " has won the game!";
-        BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this));
+        showGameOverDisplay();
     }
 
     public void loseGame(String[] data) {
@@ -131,55 +144,7 @@ public class Game {
         }
         // Ensure nitro reset at end
         resetNitroForAll();
-        BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this));
-    }
-
-    public void kartCollision(Player victim1, Player victim2) {
-        // Apply bounce: push both karts away from collision point for a small distance
-        Kart k1 = victim1.getKart();
-        Kart k2 = victim2.getKart();
-        if (k1 == null || k2 == null) return;
-
-        // Prevent retrigger while a collision is pending or active
-        long now = System.currentTimeMillis();
-        if (k1.getPendingCollisionStart() > 0 || k2.getPendingCollisionStart() > 0) return;
-        if (now < k1.getSlowUntil() || now < k2.getSlowUntil()) return;
-
-        // Compute vector from k2 -> k1
-        float dx = (float) (k1.getPosition().x - k2.getPosition().x);
-        float dy = (float) (k1.getPosition().y - k2.getPosition().y);
-        float len = (float) Math.sqrt(dx*dx + dy*dy);
-        if (len < 1e-3f) {
-            // Positions coincide -- use a small random vector
-            dx = (float) (Math.random() - 0.5f);
-            dy = (float) (Math.random() - 0.5f);
-            len = (float) Math.sqrt(dx*dx + dy*dy);
-            if (len == 0f) { dx = 1f; len = 1f; }
-        }
-        // Normalize and scale bounce distance
-        // Improve bounce: scale based on approach speed but cap it
-        float approach = Math.min(1.5f, Math.abs(k1.getSpeed()) + Math.abs(k2.getSpeed()));
-        float bounceDistance = 10f + approach * 10f; // base 10px + scaled
-        float nx = dx / len;
-        float ny = dy / len;
-
-        // Apply bounce in opposite directions
-        k1.applyBounce(nx * bounceDistance, ny * bounceDistance);
-        k2.applyBounce(-nx * bounceDistance, -ny * bounceDistance);
-
-        // Schedule slowdown/flash to start after a short delay (1 second)
-        long scheduledStart = now + 1000; // 1 second delay
-        float orig1 = k1.getSpeed();
-        float orig2 = k2.getSpeed();
-        k1.scheduleCollision(scheduledStart, orig1);
-        k2.scheduleCollision(scheduledStart, orig2);
-
-        // Notify server so it can broadcast a synchronized collision event with the scheduled timestamp and original speeds
-        ServerHandler handler = ServerManager.getHandler();
-        if (handler != null) {
-            handler.sendCollision(k1.getKartNumber(), k2.getKartNumber(), scheduledStart, orig1, orig2);
-        }
-        // Play collision sound handled in Kart.onKartCollision (will play when collision actually begins)
+        showGameOverDisplay();
     }
 
     public void endGame() {
@@ -189,45 +154,21 @@ public class Game {
         gameEndReason = "No opponents left in the race!";
         // Reset nitro at end
         resetNitroForAll();
-        BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this));
+        showGameOverDisplay();
+    }
+
+    // The race ends on the render or network thread, but Swing components are built on the event thread.
+    private void showGameOverDisplay() {
+        SwingUtilities.invokeLater(() -> BaseDisplay.getInstance().setCurrentDisplay(new GameOverDisplay(this)));
     }
 
     // Collision detection between other karts, boundaries, and checkpoints.
     public boolean isKartValid(Kart kart) {
-        checkRaceCheckpoints(kart);
-        checkCollisionWithOtherKart(kart);
+        race.checkCheckpoints(kart);
+        race.checkCollisions();
         return !kart.hasCrashed();
     }
 
-    public void checkCollisionWithOtherKart(Kart playerKart) {
-        for (Player opponent : opponents) {
-            Kart kart = opponent.getKart();
-            if (playerKart.equals(kart)) continue;
-            if (playerKart.getHitBox().intersects(kart.getHitBox())) {
-                kartCollision(playerKart.getOwner(), opponent);
-            }
-        }
-    }
-
-    public void checkRaceCheckpoints(Kart kart) {
-        boolean kartGoingRightWay = !kart.isGoingWrongWay();
-        boolean kartPassedNextCheckpoint = kart.getHitBox().intersects(gameCheckpoints.get(nextCheckpoint));
-
-        if (kartPassedNextCheckpoint && kartGoingRightWay) {
-            nextCheckpoint++;
-            if (nextCheckpoint == gameCheckpoints.size()) completedLap(kart);
-        }
-    }
-
-    private void completedLap(Kart kart) {
-        if (currentLap < TOTAL_LAPS) {
-            currentLap++;
-            nextCheckpoint = 0; // Reset checkpoints.
-            AudioManager.playSound("NEW_LAP", false);
-        }
-        else winGame(kart.getOwner());
-    }
-
     // Format the game time to use "00:00".
     public String getGameTimeFormatted() {
         int gameTimeInMinutes = gameTimeInSecondsTotal / 60;
@@ -1,19 +1,30 @@
 package game.client;
 
+import game.common.ProtocolReader;
+import game.common.ProtocolWriter;
+import game.common.WriteStats;
+
 import java.io.*;
 import java.net.Socket;
 
 public class GameClient {
     private Socket socket;
-    private PrintWriter writer;
-    private BufferedReader reader;
+    private ProtocolWriter writer;
+    private ProtocolReader reader;
+    private final WriteStats writeStats = new WriteStats("[Client]");
+
+    public GameClient() {
+        // Once per client; the stats carry over when the connection is reopened.
+        writeStats.startReporting();
+    }
 
     private void ensureConnection() throws IOException {
         if (socket == null || socket.isClosed()) {
             socket = new Socket("localhost", 5000);
-            // On utilise PrintWriter et BufferedReader comme dans le reste de l'appli
-            writer = new PrintWriter(socket.getOutputStream(), true);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            // Messages are coalesced by ProtocolWriter, so Nagle would only add latency.
+            socket.setTcpNoDelay(true);
+            writer = new ProtocolWriter(socket.getOutputStream(), writeStats);
+            reader = new ProtocolReader(socket.getInputStream());
         }
     }
 
@@ -24,7 +35,7 @@ public class GameClient {
             // On envoie une ligne de texte : "LOGIN_REQUEST user pass"
             String request = "LOGIN_REQUEST " + username + " " + password;
             System.out.println("[Client] Sending: " + request);
-            writer.println(request);
+            writer.writeLine(request);
 
             // On lit la réponse du serveur
             String response = reader.readLine();
@@ -44,7 +55,7 @@ public class GameClient {
 
             String request = "REGISTER_REQUEST " + username + " " + password;
             System.out.println("[Client] Sending: " + request);
-            writer.println(request);
+            writer.writeLine(request);
 
             String response = reader.readLine();
             System.out.println("[Client] Received: " + response);
@@ -58,6 +69,6 @@ public class GameClient {
     
  // Dans GameClient.java, ajoute ces getters :
     public Socket getSocket() { return socket; }
-    public PrintWriter getWriter() { return writer; }
-    public BufferedReader getReader() { return reader; }
+    public ProtocolWriter getWriter() { return writer; }
+    public ProtocolReader getReader() { return reader; }
 }
\ No newline at end of file
@@ -1,11 +1,16 @@
 package game.client;
 
+import game.common.WriteBatch;
+import game.simulation.KartInput;
+
 import javax.swing.*;
 import javax.swing.Timer;
 import java.awt.*;
 import java.awt.event.KeyEvent;
+import java.awt.geom.Point2D;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The {@code GameDisplay} class is a concrete implementation
@@ -20,12 +25,6 @@ import java.util.List;
  */
 public class GameDisplay implements Display {
 
-    // Constants.
-    private static final int RIGHT      = 0;
-    private static final int LEFT       = 1;
-    private static final int FORWARD    = 1;
-    private static final int BACKWARD   = -1;
-
     // Image sets.
     private final ImageIcon[] raceCountdown = new ImageIcon[4];
     private final ImageIcon[] lapImages = new ImageIcon[3];
@@ -38,13 +37,13 @@ public class GameDisplay implements Display {
     private int keyBackward;
     private int keyNitro; // added nitro key
 
-    // Player control states.
-    private boolean keyForwardActive;
-    private boolean keyBackwardActive;
-    private boolean keyLeftActive;
-    private boolean keyRightActive;
-    private boolean keyBrakeActive; // space bar brake
-    private boolean keyNitroActive; // N key nitro
+    // Player control states, set on the event thread and applied to the kart by whichever thread simulates.
+    private volatile boolean keyForwardActive;
+    private volatile boolean keyBackwardActive;
+    private volatile boolean keyLeftActive;
+    private volatile boolean keyRightActive;
+    private volatile boolean keyBrakeActive; // space bar brake
+    private volatile boolean keyNitroActive; // N key nitro
 
     // Images.
     private ImageIcon wrongWayMessage;
@@ -54,6 +53,7 @@ public class GameDisplay implements Display {
     private ImageIcon spectators2;
     private ImageIcon weather;
     private ImageIcon playerPointer;
+    private TrackLayer trackLayer;
 
     // Object properties.
     private Racetrack racetrack;
@@ -68,6 +68,17 @@ public class GameDisplay implements Display {
     private boolean hasRaceStarted;
     private long lastKartSendTime = 0;
     private static final long KART_SEND_INTERVAL_MS = 100; // 10 updates per second
+    // Received opponent states, written by the network thread and sampled while drawing.
+    private final Map<Integer, SnapshotBuffer> opponentSnapshots = new ConcurrentHashMap<>();
+    private final SnapshotBuffer.State sampledState = new SnapshotBuffer.State();
+    // Local kart inputs, kept until the server acknowledges them.
+    private final KartPredictor predictor = new KartPredictor(this::stepPlayerKart);
+    // Physics runs in fixed steps; frames draw the local kart between its last two positions.
+    private final SimulationClock clock = new SimulationClock();
+    private float previousPlayerX;
+    private float previousPlayerY;
+    private int renderPlayerX;
+    private int renderPlayerY;
 
     private final ServerHandler connection = ServerManager.getHandler();
 
@@ -95,6 +106,8 @@ public class GameDisplay implements Display {
         opponents = activeGame.getOpponents();
         mainPlayer = activeGame.getMainPlayer();
         mainPlayerKart = mainPlayer.getKart();
+        previousPlayerX = mainPlayerKart.getPosition().x;
+        previousPlayerY = mainPlayerKart.getPosition().y;
         isBadWeather = activeGame.getWeatherForecast();
     }
 
@@ -108,20 +121,22 @@ public class GameDisplay implements Display {
 
     private void loadImages() {
         try {
-            Arrays.setAll(raceCountdown, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/racetrack/raceCountdown" + i + ".png"))));
-            Arrays.setAll(lapImages, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/lap" + i + ".png"))));
-            Arrays.setAll(weatherImages, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/racetrack/weather" + i + ".gif"))));
+            Arrays.setAll(raceCountdown, i -> AssetCache.getIcon("images/racetrack/raceCountdown" + i + ".png"));
+            Arrays.setAll(lapImages, i -> AssetCache.getIcon("images/ui/lap" + i + ".png"));
+            Arrays.setAll(weatherImages, i -> AssetCache.getIcon("images/racetrack/weather" + i + ".gif"));
 
             racetrackBackground = racetrack.getImage();
-            wrongWayMessage = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/wrongWay.png")));
-            spectators0 = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/racetrack/spectators0.gif")));
-            spectators1 = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/racetrack/spectators1.gif")));
-            spectators2 = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/racetrack/spectators2.gif")));
-            playerPointer = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/playerPointer.gif")));
+            wrongWayMessage = AssetCache.getIcon("images/ui/wrongWay.png");
+            spectators0 = AssetCache.getIcon("images/racetrack/spectators0.gif");
+            spectators1 = AssetCache.getIcon("images/racetrack/spectators1.gif");
+            spectators2 = AssetCache.getIcon("images/racetrack/spectators2.gif");
+            playerPointer = AssetCache.getIcon("images/ui/playerPointer.gif");
             weather = weatherImages[activeGame.getTrackType()];
+            // The weather overlay animates above the karts, so only the track and stands are cached.
+            trackLayer = TrackLayer.forTrack(racetrackBackground,
+                    new TrackLayer.Decoration(spectators0, 173, 59),
+                    new TrackLayer.Decoration(spectators1, 214, 449),
+                    new TrackLayer.Decoration(spectators2, 571, 447));
         }
         catch (NullPointerException e) {
             System.err.println("Failed to locate a necessary image file.");
@@ -138,16 +153,52 @@ public class GameDisplay implements Display {
 
     @Override
     public void update(Graphics g) {
+        // Everything sent while drawing this frame (kart state, collisions) goes out in one write.
+        WriteBatch.begin();
+        try {
+            simulate();
+            render(g, clock.getAlpha());
+        }
+        finally {
+            WriteBatch.end();
+        }
+    }
+
+    // Run the fixed steps due by now. The pause menu calls this too, since the race goes on behind it.
+    void simulate() {
+        WriteBatch.begin();
+        try {
+            int steps = clock.advance(System.nanoTime());
+            for (int i = 0; i < steps; i++) simulateStep();
+        }
+        finally {
+            WriteBatch.end();
+        }
+    }
+
+    @Override
+    public boolean supportsActiveRendering() {
+        return true;
+    }
+
+    // One fixed step of gameplay, independent of how often the screen is painted.
+    private void simulateStep() {
+        // Correct the local kart if the server disagreed with an earlier prediction.
+        predictor.reconcile(mainPlayerKart);
         // Throttle kart updates to avoid network congestion
         long now = System.currentTimeMillis();
         if (now - lastKartSendTime >= KART_SEND_INTERVAL_MS) {
-            connection.sendKart(mainPlayerKart);
+            connection.sendKart(mainPlayerKart, predictor.getLastSequence());
             lastKartSendTime = now;
         }
+        updateOtherKarts();
+        updatePlayerKart();
+    }
+
+    private void render(Graphics g, float alpha) {
         drawRacetrack(g);
-        updateOtherKarts(g);
-        updatePlayerKart(g);
-        processKeyInputs();
+        drawOtherKarts(g);
+        drawPlayerKart(g, alpha);
 
         if (isBadWeather) weather.paintIcon(baseDisplay, g, 0, 0);
 
@@ -166,44 +217,110 @@ public class GameDisplay implements Display {
         raceCountdownStage++;
     }
 
+    // Opponent karts are drawn from these snapshots, slightly in the past, rather than moved directly.
     public void updateOpponentKart(int kartNumber, float rotation, float speed, float positionX, float positionY) {
-        for (Player opponent : opponents) {
-            if (opponent.getPlayerNumber() == kartNumber) {
-                Kart kart = opponent.getKart();
-                kart.setRotation(rotation);
-                kart.setSpeed(speed);
-                kart.setPosition(positionX, positionY);
-                break;
-            }
-        }
+        opponentSnapshots.computeIfAbsent(kartNumber, k -> new SnapshotBuffer())
+                .add(currentTimeMillis(), rotation, speed, positionX, positionY);
+    }
+
+    // Monotonic, so snapshot timing is unaffected by wall clock adjustments.
+    private static long currentTimeMillis() {
+        return System.nanoTime() / 1_000_000;
     }
 
     private void drawRacetrack(Graphics g) {
+        if (trackLayer != null) {
+            trackLayer.paint(g);
+            return;
+        }
         racetrackBackground.paintIcon(baseDisplay, g, 0,0);
         spectators0.paintIcon(baseDisplay, g, 173, 59);
         spectators1.paintIcon(baseDisplay, g, 214, 449);
         spectators2.paintIcon(baseDisplay, g, 571, 447);
     }
 
-    private void updatePlayerKart(Graphics g) {
+    // The local kart moves straight away; the server's view of it arrives later through the predictor.
+    private void updatePlayerKart() {
         Kart kart = mainPlayer.getKart();
+        previousPlayerX = kart.getPosition().x;
+        previousPlayerY = kart.getPosition().y;
+        // Only this thread touches the kart; the key handler just sets the flag.
+        if (keyNitroActive && !kart.isNitroActive()) kart.startNitro();
+        else if (!keyNitroActive && kart.isNitroActive()) kart.stopNitro();
+        int input = KartInput.of(keyForwardActive, keyBackwardActive, keyLeftActive, keyRightActive,
+                keyBrakeActive, kart.isNitroActive());
+        predictor.step(kart, input);
+    }
+
+    // One step of the local kart, run live and again when the predictor replays inputs after a correction.
+    private boolean stepPlayerKart(Kart kart, int input, boolean replaying) {
+        KartInput.apply(kart, input);
         if (kart.isMoving()) kart.reduceSpeed();
-        if (!activeGame.isKartValid(kart)) suspendForwardMovement();
-        drawSingleKart(g, kart);
+        // Checkpoints and collisions were already counted live; a replay only needs the wall hit.
+        boolean valid = replaying ? !kart.hasCrashed() : activeGame.isKartValid(kart);
+        if (!valid && !replaying) suspendForwardMovement();
+        try {
+            if (replaying) kart.replayPosition(KartInput.isSet(input, KartInput.NITRO));
+            else kart.updatePosition();
+        } catch (Exception e) {
+            System.err.println("Error updating kart on GameDisplay: " + e.getMessage());
+        }
+        return valid;
     }
 
-    private void updateOtherKarts(Graphics g) {
+    private void drawPlayerKart(Graphics g, float alpha) {
+        Kart kart = mainPlayer.getKart();
+        Point2D.Float position = kart.getPosition();
+        renderPlayerX = (int) (previousPlayerX + (position.x - previousPlayerX) * alpha);
+        renderPlayerY = (int) (previousPlayerY + (position.y - previousPlayerY) * alpha);
+        drawKartImage(g, kart, renderPlayerX, renderPlayerY);
+    }
+
+    // Called by the network thread with the server's state for the local kart.
+    public void acknowledgePlayerKart(int sequence, float rotation, float speed, float positionX, float positionY) {
+        predictor.acknowledge(sequence, rotation, speed, positionX, positionY);
+    }
+
+    private void updateOtherKarts() {
         if (opponents == null) return;
+        long now = currentTimeMillis();
         // iterate a snapshot to avoid concurrent modification if server removes opponents during rendering
         for (Player opponent : new ArrayList<>(opponents)) {
             if (opponent == null) continue;
             Kart kart = opponent.getKart();
             if (kart == null) continue;
-            activeGame.checkCollisionWithOtherKart(kart);
-            drawSingleKart(g, kart);
+            if (!sampleOpponentKart(kart, now)) {
+                // Nothing received yet, so move the kart locally as before.
+                try {
+                    kart.updatePosition();
+                } catch (Exception e) {
+                    System.err.println("Error updating kart on GameDisplay: " + e.getMessage());
+                }
+            }
         }
     }
 
+    private void drawOtherKarts(Graphics g) {
+        if (opponents == null) return;
+        long now = currentTimeMillis();
+        for (Player opponent : new ArrayList<>(opponents)) {
+            if (opponent == null) continue;
+            Kart kart = opponent.getKart();
+            if (kart == null) continue;
+            // Re-sample at paint time so opponents move smoothly between simulation steps.
+            sampleOpponentKart(kart, now);
+            drawKartImage(g, kart);
+        }
+    }
+
+    private boolean sampleOpponentKart(Kart kart, long now) {
+        SnapshotBuffer snapshots = opponentSnapshots.get(kart.getKartNumber());
+        if (snapshots == null || !snapshots.sample(now - snapshots.getRenderDelay(), sampledState)) return false;
+        kart.applyRemoteState(sampledState.rotation, sampledState.speed,
+                sampledState.positionX, sampledState.positionY);
+        return true;
+    }
+
     // Simple particle representation for collision effects
     private static class Particle {
         float x, y; // relative to kart position
@@ -219,13 +336,15 @@ public class GameDisplay implements Display {
     // Map of active particles per kart
     private final Map<Integer, List<Particle>> kartParticles = new HashMap<>();
 
-    private void drawSingleKart(Graphics g, Kart kart) {
-        if (kart == null) return;
+    private void drawKartImage(Graphics g, Kart kart) {
+        drawKartImage(g, kart, (int) kart.getPosition().x, (int) kart.getPosition().y);
+    }
+
+    private void drawKartImage(Graphics g, Kart kart, int x, int y) {
         try {
-            kart.updatePosition();
             kart.updateImage();
             ImageIcon img = kart.getImage();
-            if (img != null) img.paintIcon(baseDisplay, g, (int) kart.getPosition().x, (int) kart.getPosition().y);
+            if (img != null) img.paintIcon(baseDisplay, g, x, y);
         } catch (Exception e) {
             // Protect UI from exceptions in kart drawing so a bad kart state doesn't freeze UI
             System.err.println("Error drawing kart on GameDisplay: " + e.getMessage());
@@ -304,7 +423,7 @@ public class GameDisplay implements Display {
         // Display an arrow above the player's head for easier identification.
         if (mainPlayerKart != null && playerPointer != null) {
             ImageIcon pointer = playerPointer;
-            pointer.paintIcon(baseDisplay, g, (int) mainPlayerKart.getPosition().x, (int) mainPlayerKart.getPosition().y);
+            pointer.paintIcon(baseDisplay, g, renderPlayerX, renderPlayerY);
         }
 
         // Draw opponent names above their karts
@@ -329,30 +448,9 @@ public class GameDisplay implements Display {
         }
     }
 
+    // Called from the network thread when the connection drops.
     public void sendPlayerToMenu() {
-        baseDisplay.setCurrentDisplay(new MenuDisplay());
-    }
-
-    private void processKeyInputs() {
-        Kart kart = mainPlayer.getKart();
-
-        // If player is slipping, block applying inputs to the kart but keep key flags intact
-        if (kart.isSlipping()) {
-            // allow brake to still function if desired
-            if (keyBrakeActive) kart.applyBrake();
-            return;
-        }
-
-        if (keyRightActive) kart.updateRotation(RIGHT);
-        else if (keyLeftActive) kart.updateRotation(LEFT);
-
-        if (keyForwardActive) kart.updateSpeed(FORWARD);
-        else if (keyBackwardActive) kart.updateSpeed(BACKWARD);
-
-        // Brake (space) - strong deceleration while active
-        if (keyBrakeActive) {
-            kart.applyBrake();
-        }
+        SwingUtilities.invokeLater(() -> baseDisplay.setCurrentDisplay(new MenuDisplay()));
     }
 
     @Override
@@ -369,19 +467,26 @@ public class GameDisplay implements Display {
             else if (keyCode == keyForward) keyForwardActive = keyActivated;
             else if (keyCode == keyBackward) keyBackwardActive = keyActivated;
             else if (keyCode == KeyEvent.VK_SPACE) keyBrakeActive = keyActivated;
-            else if (keyCode == keyNitro) {
-                keyNitroActive = keyActivated;
-                if (keyActivated) mainPlayer.getKart().startNitro();
-                else mainPlayer.getKart().stopNitro();
-            }
+            else if (keyCode == keyNitro) keyNitroActive = keyActivated;
         }
 
-        // Open the pause menu once the player presses "Esc".
+        // Open the pause menu once the player presses "Esc". Its key releases never reach this display,
+        // so let go of every key rather than keep driving behind the menu.
         if (keyCode == KeyEvent.VK_ESCAPE) {
+            releaseKeys();
             baseDisplay.setCurrentDisplay(new GamePauseDisplay(activeGame, this));
         }
     }
 
+    private void releaseKeys() {
+        keyForwardActive = false;
+        keyBackwardActive = false;
+        keyLeftActive = false;
+        keyRightActive = false;
+        keyBrakeActive = false;
+        keyNitroActive = false;
+    }
+
     private void drawNitroBars(Graphics g) {
         // Draw main player nitro bar at bottom-left
         int baseX = 10;
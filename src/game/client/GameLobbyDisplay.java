@@ -75,28 +75,23 @@ public class GameLobbyDisplay implements Display {
 
     private void loadImages() {
         try {
-            Arrays.setAll(allOptionsKart, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/kart/kartOption" + i + ".png"))));
-            Arrays.setAll(allOptionsMap, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/racetrack/mapOption" + i + ".png"))));
-            Arrays.setAll(allPlayerLabelsActive, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/p" + (i + 1) + "Active.png"))));
-            Arrays.setAll(allPlayerLabelsInactive, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/p" + (i + 1) + "Inactive.png"))));
-            Arrays.setAll(allPlayerLabelsCurrent, i -> new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource("images/ui/p" + (i + 1) + "Current.png"))));
-
-            imageLobbyBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gameLobbyBackground.png")));
-            imageArrowLeft = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/arrowLeft.png")));
-            imageArrowRight = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/arrowRight.png")));
-            imageBack = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonBack.png")));
-            imageReady = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/playerReady.png")));
-            imageUnready = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/playerUnready.png")));
-            imageSymbolReady = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/readySymbol.png")));
-            imageSymbolNotReady = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/notReadySymbol.png")));
-            imageSymbolReadyHidden = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/hiddenSymbol.png")));
-            imageMapLabel = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/map.png")));
-            imageInactiveKart = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/inactiveKart.png")));
+            Arrays.setAll(allOptionsKart, i -> AssetCache.getIcon("images/kart/kartOption" + i + ".png"));
+            Arrays.setAll(allOptionsMap, i -> AssetCache.getIcon("images/racetrack/mapOption" + i + ".png"));
+            Arrays.setAll(allPlayerLabelsActive, i -> AssetCache.getIcon("images/ui/p" + (i + 1) + "Active.png"));
+            Arrays.setAll(allPlayerLabelsInactive, i -> AssetCache.getIcon("images/ui/p" + (i + 1) + "Inactive.png"));
+            Arrays.setAll(allPlayerLabelsCurrent, i -> AssetCache.getIcon("images/ui/p" + (i + 1) + "Current.png"));
+
+            imageLobbyBackground = AssetCache.getIcon("images/ui/bg/gameLobbyBackground.png");
+            imageArrowLeft = AssetCache.getIcon("images/ui/arrowLeft.png");
+            imageArrowRight = AssetCache.getIcon("images/ui/arrowRight.png");
+            imageBack = AssetCache.getIcon("images/ui/buttonBack.png");
+            imageReady = AssetCache.getIcon("images/ui/playerReady.png");
+            imageUnready = AssetCache.getIcon("images/ui/playerUnready.png");
+            imageSymbolReady = AssetCache.getIcon("images/ui/readySymbol.png");
+            imageSymbolNotReady = AssetCache.getIcon("images/ui/notReadySymbol.png");
+            imageSymbolReadyHidden = AssetCache.getIcon("images/ui/hiddenSymbol.png");
+            imageMapLabel = AssetCache.getIcon("images/ui/map.png");
+            imageInactiveKart = AssetCache.getIcon("images/ui/inactiveKart.png");
 
             Arrays.setAll(allDisplayedPlayerLabels, i -> allDisplayedPlayerLabels[i] = allPlayerLabelsInactive[i]);
             Arrays.setAll(allDisplayedPlayerKarts, i -> allDisplayedPlayerKarts[i] = imageInactiveKart);
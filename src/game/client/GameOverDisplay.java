@@ -3,7 +3,6 @@ package game.client;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
-import java.util.Objects;
 import java.util.Collections;
 import java.util.ArrayList;
 
@@ -64,7 +63,7 @@ public class GameOverDisplay implements Display {
         this.altReason = reason;
         // minimal image setup
         try {
-            returnToMenu = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMainMenu.png")));
+            returnToMenu = AssetCache.getIcon("images/ui/buttonMainMenu.png");
         } catch (Exception e) {
             returnToMenu = null;
         }
@@ -75,9 +74,9 @@ public class GameOverDisplay implements Display {
 
     private void loadImages() {
         try {
-            returnToMenu = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMainMenu.png")));
+            returnToMenu = AssetCache.getIcon("images/ui/buttonMainMenu.png");
             if (currentGame != null) {
-                gameOverBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gameOverBackground" + currentGame.getGameEndType() + ".png")));
+                gameOverBackground = AssetCache.getIcon("images/ui/bg/gameOverBackground" + currentGame.getGameEndType() + ".png");
                 racetrackBackground = currentGame.getRacetrack().getImage();
             }
         }
@@ -3,7 +3,6 @@ package game.client;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * The {@code GamePauseDisplay} class is a concrete implementation
@@ -47,11 +46,11 @@ public class GamePauseDisplay implements Display {
 
     private void loadImages() {
         try {
-            gamePausedBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gamePausedBackground.png")));
-            returnToMenu = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMainMenu.png")));
-            resumeGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonResume.png")));
-            muteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMute.png")));
-            unmuteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonUnmute.png")));
+            gamePausedBackground = AssetCache.getIcon("images/ui/bg/gamePausedBackground.png");
+            returnToMenu = AssetCache.getIcon("images/ui/buttonMainMenu.png");
+            resumeGame = AssetCache.getIcon("images/ui/buttonResume.png");
+            muteGame = AssetCache.getIcon("images/ui/buttonMute.png");
+            unmuteGame = AssetCache.getIcon("images/ui/buttonUnmute.png");
             racetrackBackground = currentGame.getRacetrack().getImage();
         }
         catch (NullPointerException e) {
@@ -68,29 +67,22 @@ public class GamePauseDisplay implements Display {
 
     @Override
     public void update(Graphics g) {
+        // The race carries on behind the menu on the game's own fixed steps, with no keys held.
+        suspendedGameDisplay.simulate();
         racetrackBackground.paintIcon(baseDisplay, g, 0, 0);
-        updatePlayerKart(g);
-        updateOtherKarts(g);
+        drawSingleKart(g, currentGame.getMainPlayer().getKart());
+        drawOtherKarts(g);
         gamePausedBackground.paintIcon(baseDisplay, g, 0, 0);
     }
 
-    private void updatePlayerKart(Graphics g) {
-        Kart mainKart = currentGame.getMainPlayer().getKart();
-        if (mainKart.isMoving()) mainKart.reduceSpeed();
-        if (!currentGame.isKartValid(mainKart)) suspendedGameDisplay.suspendForwardMovement();
-        drawSingleKart(g, mainKart);
-    }
-
-    private void updateOtherKarts(Graphics g) {
+    private void drawOtherKarts(Graphics g) {
         for (Player player : playersInGame) {
             Kart kart = player.getKart();
-            currentGame.checkCollisionWithOtherKart(kart);
             drawSingleKart(g, kart);
         }
     }
 
     private void drawSingleKart(Graphics g, Kart kart) {
-        kart.updatePosition();
         kart.updateImage();
         kart.getImage().paintIcon(baseDisplay, g, (int) kart.getPosition().x, (int) kart.getPosition().y);
     }
@@ -0,0 +1,145 @@
+package game.client;
+
+import game.simulation.KartInput;
+import game.simulation.KartPhysics;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code KartPredictor} class lets the local kart respond to input at once
+ * while the server stays in charge of where it really is. Every frame's input
+ * is stored in a ring buffer under a sequence number, along with the state it
+ * produced. When the server acknowledges a sequence number with its own state
+ * for the kart, that state is compared with the prediction. On a mismatch the
+ * kart is rewound to the server's state and the inputs the server has not seen
+ * yet are replayed on top of it, through the same {@link Stepper} as the live
+ * frames.
+ * <p>
+ * Corrections only happen once the server simulates the kart from its inputs.
+ * For now clients report states, not inputs, and the server acknowledges the
+ * reported state after checking it against the track, so the prediction
+ * almost always matches and the replay path runs only when the server had to
+ * pull a kart back.
+ */
+public class KartPredictor {
+
+    // Constants.
+    // Frames of history; at the 15 ms simulation step this covers almost four seconds of round trip.
+    private static final int CAPACITY = 256;
+    // Differences below these are quantization noise from the wire formats, not divergence.
+    private static final float POSITION_TOLERANCE = 0.1f;
+    private static final float ROTATION_TOLERANCE = 0.05f;
+    private static final float SPEED_TOLERANCE    = 0.01f;
+
+    /**
+     * One fixed step of the local kart. Replayed steps must not play sounds,
+     * count laps or report collisions, since the live frame already did.
+     */
+    public interface Stepper {
+        // Advance the kart with the input; false if it hit a wall, which releases the forward key.
+        boolean step(Kart kart, int input, boolean replaying);
+    }
+
+    // Object properties.
+    private final Stepper stepper;
+    private final int[] inputs = new int[CAPACITY];
+    private final float[] rotations = new float[CAPACITY];
+    private final float[] speeds = new float[CAPACITY];
+    private final float[] positionsX = new float[CAPACITY];
+    private final float[] positionsY = new float[CAPACITY];
+    private int lastSequence = 0;
+    private int corrections = 0;
+
+    // The newest acknowledgement, written by the network thread and applied on the next frame.
+    private final ReentrantLock ackLock = new ReentrantLock();
+    private int ackSequence = -1;
+    private float ackRotation;
+    private float ackSpeed;
+    private float ackPositionX;
+    private float ackPositionY;
+
+    // Property access methods.
+    public int getLastSequence() { return lastSequence; }
+    public int getCorrections()  { return corrections; }
+
+    // Constructor.
+    public KartPredictor(Stepper stepper) {
+        this.stepper = stepper;
+    }
+
+    // Run one frame through the stepper and remember the input and its result.
+    public int step(Kart kart, int input) {
+        stepper.step(kart, input, false);
+        int sequence = ++lastSequence;
+        store(sequence, input, kart);
+        return sequence;
+    }
+
+    // Network thread: the server's state for the kart after it applied the given sequence number.
+    public void acknowledge(int sequence, float rotation, float speed, float positionX, float positionY) {
+        ackLock.lock();
+        try {
+            if (sequence <= ackSequence) return;
+            ackSequence = sequence;
+            ackRotation = rotation;
+            ackSpeed = speed;
+            ackPositionX = positionX;
+            ackPositionY = positionY;
+        } finally {
+            ackLock.unlock();
+        }
+    }
+
+    // Frame thread: check the newest acknowledgement and correct the kart if the prediction was off.
+    public void reconcile(Kart kart) {
+        int sequence;
+        float rotation, speed, positionX, positionY;
+        ackLock.lock();
+        try {
+            if (ackSequence < 0) return;
+            sequence = ackSequence;
+            rotation = ackRotation;
+            speed = ackSpeed;
+            positionX = ackPositionX;
+            positionY = ackPositionY;
+            ackSequence = -1;
+        } finally {
+            ackLock.unlock();
+        }
+        // Too old to replay from, or from before this predictor started.
+        if (sequence > lastSequence || lastSequence - sequence >= CAPACITY) return;
+
+        int slot = sequence % CAPACITY;
+        if (matches(slot, rotation, speed, positionX, positionY)) return;
+
+        corrections++;
+        kart.applyRemoteState(rotation, speed, positionX, positionY);
+        store(sequence, inputs[slot], kart);
+        boolean forwardReleased = false;
+        for (int replay = sequence + 1; replay <= lastSequence; replay++) {
+            int input = inputs[replay % CAPACITY];
+            // A wall hit in the replay releases the forward key for the following steps, as it would have live.
+            if (forwardReleased) input &= ~KartInput.FORWARD;
+            forwardReleased = !stepper.step(kart, input, true);
+            store(replay, input, kart);
+        }
+    }
+
+    private boolean matches(int slot, float rotation, float speed, float positionX, float positionY) {
+        float turn = Math.abs(rotations[slot] - rotation);
+        turn = Math.min(turn, Math.abs(turn - KartPhysics.TURN_CIRCLE));
+        return turn <= ROTATION_TOLERANCE
+                && Math.abs(speeds[slot] - speed) <= SPEED_TOLERANCE
+                && Math.abs(positionsX[slot] - positionX) <= POSITION_TOLERANCE
+                && Math.abs(positionsY[slot] - positionY) <= POSITION_TOLERANCE;
+    }
+
+    private void store(int sequence, int input, Kart kart) {
+        int slot = sequence % CAPACITY;
+        inputs[slot] = input;
+        rotations[slot] = kart.getRotation();
+        speeds[slot] = kart.getSpeed();
+        positionsX[slot] = kart.getPosition().x;
+        positionsY[slot] = kart.getPosition().y;
+    }
+}
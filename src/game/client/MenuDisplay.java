@@ -2,7 +2,6 @@ package game.client;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.Objects;
 
 /**
  * The {@code MenuDisplay} class is a concrete implementation
@@ -42,11 +41,11 @@ public class MenuDisplay implements Display {
 
     private void loadImages() {
         try {
-            menuBackground = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/bg/gameMenuBackground.png")));
-            gameStart = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/gameStart.png")));
-            gameExit = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/gameExit.png")));
-            muteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonMute.png")));
-            unmuteGame = new ImageIcon(Objects.requireNonNull(getClass().getResource("images/ui/buttonUnmute.png")));
+            menuBackground = AssetCache.getIcon("images/ui/bg/gameMenuBackground.png");
+            gameStart = AssetCache.getIcon("images/ui/gameStart.png");
+            gameExit = AssetCache.getIcon("images/ui/gameExit.png");
+            muteGame = AssetCache.getIcon("images/ui/buttonMute.png");
+            unmuteGame = AssetCache.getIcon("images/ui/buttonUnmute.png");
         }
         catch (NullPointerException e) {
             System.err.println("Failed to locate a necessary image file.");
@@ -1,5 +1,10 @@
 package game.client;
 
+import game.common.KartFrameCodec;
+import game.common.ProtocolReader;
+import game.common.ProtocolWriter;
+import game.common.WriteBatch;
+
 import java.io.*;
 import java.net.Socket;
 import java.net.UnknownHostException;
@@ -17,8 +22,8 @@ public class ServerHandler implements Runnable {
 
     // connection components
     private Socket clientSocket = null;
-    private PrintWriter outputStreamToServer;
-    private BufferedReader inputStreamFromServer = null;
+    private ProtocolWriter outputStreamToServer;
+    private ProtocolReader inputStreamFromServer = null;
     private String messageFromServer;
     private final String serverHostAddress;
 
@@ -43,6 +48,7 @@ public class ServerHandler implements Runnable {
     private boolean isServerFull = false;
     private boolean loginResult = false;
     private boolean authResponseReceived = false;
+    private volatile boolean binaryFramesEnabled = false;
     private GameClient authClient;
 
     // Property access methods.
@@ -153,19 +159,25 @@ public class ServerHandler implements Runnable {
         
         if (isConnectionSetupValid()) {
             connectionActive = true;
-          
+            // Ask for binary in-race frames; servers that don't know the command ignore it.
+            sendCommand("REQUEST_BINARY_FRAMES " + KartFrameCodec.PROTOCOL_VERSION);
         }
     }
     private void handleServerCommand() {
         messageFromServer = listenForCommand();
 
         if (serverCommandReceived()) {
+            // Any replies to this command go out in one write.
+            WriteBatch.begin();
             try {
                 respondToServerCommands();
             }
             catch (IllegalStateException e) {
                 System.err.println(e.getMessage());
             }
+            finally {
+                WriteBatch.end();
+            }
         }
     }
 
@@ -223,6 +235,9 @@ public class ServerHandler implements Runnable {
             case "UPDATE_MAP_CHOICE"        -> updateChosenMap(messageData);
             case "UPDATE_WEATHER"           -> updateWeather(messageData);
             case "SEND_OP_KART_DATA"        -> updateOpponentKartData(messageData);
+            case "SEND_OP_KART_SNAPSHOT"    -> updateKartSnapshot(messageData);
+            case "SEND_PL_KART_ACK"         -> acknowledgePlayerKart(messageData);
+            case "BINARY_FRAMES_ENABLED"    -> binaryFramesEnabled = true;
             case "BROADCAST_COLLISION"      -> handleBroadcastCollision(messageData);
             case "END_GAME"                 -> endGame();
             case "RACE_LOST"                -> {
@@ -270,7 +285,8 @@ public class ServerHandler implements Runnable {
         if (connectionActive) sendCommand("END_CONN_INVALID");
     }
 
-    public void sendKart(Kart kart) {
+    // The sequence number is the last input frame applied to the kart; the server echoes it back.
+    public void sendKart(Kart kart, int sequence) {
         if (!isGameActive) return; // don't send kart updates if game is not active
         if (kart == null) return;
         int kartNumber = kart.getKartNumber();
@@ -280,7 +296,14 @@ public class ServerHandler implements Runnable {
         float positionY = kart.getPosition().y;
         // Delta-send: only send when significant change from last sent
         if (shouldSendKartUpdate(kartNumber, rotation, speed, positionX, positionY)) {
-            sendCommand("SEND_KART_DATA " + kartNumber + " " + rotation + " " + speed + " " + positionX + " " + positionY);
+            if (binaryFramesEnabled) {
+                sendFrame(new KartFrameCodec.Builder()
+                        .sequence(sequence)
+                        .add(kartNumber, rotation, speed, positionX, positionY)
+                        .build());
+            }
+            else sendCommand("SEND_KART_DATA " + kartNumber + " " + rotation + " " + speed + " " + positionX + " " + positionY
+                    + " " + sequence);
             updateLastSentKart(kartNumber, rotation, speed, positionX, positionY);
         }
     }
@@ -327,6 +350,60 @@ public class ServerHandler implements Runnable {
         }
     }
 
+    // SEND_OP_KART_SNAPSHOT <count> (<kart> <rot> <speed> <x> <y>)*, sent once per server tick.
+    private void updateKartSnapshot(String[] data) {
+        if (gameDisplay == null) return;
+        try {
+            int count = Integer.parseInt(data[1]);
+            for (int i = 0; i < count; i++) {
+                int offset = 2 + i * 5;
+                if (offset + 4 >= data.length) break;
+                int kartNumber = Integer.parseInt(data[offset]);
+                if (kartNumber == playerNumber) continue; // Our own kart is simulated locally.
+                gameDisplay.updateOpponentKart(kartNumber,
+                        Float.parseFloat(data[offset + 1]),
+                        Float.parseFloat(data[offset + 2]),
+                        Float.parseFloat(data[offset + 3]),
+                        Float.parseFloat(data[offset + 4]));
+            }
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Type conversion error when updating the kart snapshot: " + e.getMessage());
+        }
+    }
+
+    // SEND_PL_KART_ACK <sequence> <rot> <speed> <x> <y>: the server's state for our kart after that input frame.
+    private void acknowledgePlayerKart(String[] data) {
+        GameDisplay display = gameDisplay;
+        if (display == null) return;
+        try {
+            display.acknowledgePlayerKart(Integer.parseInt(data[1]),
+                    Float.parseFloat(data[2]),
+                    Float.parseFloat(data[3]),
+                    Float.parseFloat(data[4]),
+                    Float.parseFloat(data[5]));
+        }
+        catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid kart acknowledgement from server: " + e.getMessage());
+        }
+    }
+
+    // Binary equivalent of SEND_OP_KART_SNAPSHOT, or of SEND_PL_KART_ACK when the frame is sequenced.
+    private void handleFrame(byte[] payload) {
+        GameDisplay display = gameDisplay;
+        if (display == null) return;
+        try {
+            int sequence = KartFrameCodec.readSequence(payload);
+            KartFrameCodec.decode(payload, (kartNumber, rotation, speed, positionX, positionY) -> {
+                if (kartNumber != playerNumber) display.updateOpponentKart(kartNumber, rotation, speed, positionX, positionY);
+                else if (sequence >= 0) display.acknowledgePlayerKart(sequence, rotation, speed, positionX, positionY);
+            });
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Invalid kart frame from server: " + e.getMessage());
+        }
+    }
+
     private void updatePlayerLobbyData(String[] data) {
         try {
             // defend against short messages
@@ -511,17 +588,24 @@ public class ServerHandler implements Runnable {
         }
     }
 
-    private synchronized void sendCommand(String command) {
+    // Buffered by the writer; flushed straight away or at the end of the current WriteBatch.
+    private void sendCommand(String command) {
         if (outputStreamToServer != null && connectionActive) {
-            outputStreamToServer.println(command); // .println ajoute le \n automatiquement
+            outputStreamToServer.writeLine(command);
         } else {
             System.err.println("sendCommand suppressed; no active output stream or connection inactive: " + command);
         }
     }
 
+    private void sendFrame(byte[] frame) {
+        if (outputStreamToServer == null || !connectionActive) return;
+        // Lines and frames share one buffer, so they keep their order on the wire.
+        outputStreamToServer.writeFrame(frame);
+    }
+
     private String listenForCommand() {
         try {
-            return inputStreamFromServer.readLine();
+            return inputStreamFromServer.readLine(this::handleFrame);
         } catch (IOException e) {
             handleUnexpectedServerTermination();
             return null;
@@ -544,11 +628,17 @@ public class ServerHandler implements Runnable {
             }
         }
 
-        // 2. Send initialization commands in order
-        sendCommand("REQUEST_CONN_CHECK");
-        sendCommand("REQUEST_PLAYER_COUNT");
-        sendCommand("REQUEST_SERVER_STAGE");
-        sendCommand("REQUEST_PL_LOBBY_DATA");
+        // 2. Send initialization commands in order, in a single write
+        WriteBatch.begin();
+        try {
+            sendCommand("REQUEST_CONN_CHECK");
+            sendCommand("REQUEST_PLAYER_COUNT");
+            sendCommand("REQUEST_SERVER_STAGE");
+            sendCommand("REQUEST_PL_LOBBY_DATA");
+        }
+        finally {
+            WriteBatch.end();
+        }
     }
 
     private void removeOpponent(String[] data) {
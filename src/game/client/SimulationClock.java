@@ -0,0 +1,43 @@
+package game.client;
+
+import game.simulation.KartPhysics;
+
+/**
+ * The {@code SimulationClock} class converts the real time between rendered
+ * frames into a whole number of fixed simulation steps. Leftover time is
+ * carried to the next frame and exposed as a fraction of a step, so the
+ * renderer can draw between the last two simulated states. A slow frame
+ * means more steps on the next one rather than a slower race.
+ */
+public class SimulationClock {
+
+    // Constants.
+    // Kart speeds are tuned per step, so this matches the original 15 ms repaint timer.
+    public static final long STEP_MS = KartPhysics.STEP_MS;
+    private static final long STEP_NANOS = STEP_MS * 1_000_000;
+    // After a long stall (window drag, GC) drop the backlog instead of fast-forwarding through it.
+    private static final int MAX_STEPS_PER_FRAME = 8;
+
+    // Object properties.
+    private long lastTime = -1;
+    private long accumulator = 0;
+
+    // Return how many steps to simulate for a frame drawn at the given System.nanoTime().
+    public int advance(long now) {
+        if (lastTime < 0) {
+            lastTime = now;
+            return 0;
+        }
+        accumulator += Math.max(0, now - lastTime);
+        lastTime = now;
+        int steps = (int) Math.min(accumulator / STEP_NANOS, MAX_STEPS_PER_FRAME);
+        accumulator -= steps * STEP_NANOS;
+        if (accumulator >= STEP_NANOS) accumulator %= STEP_NANOS;
+        return steps;
+    }
+
+    // How far the current frame lies between the previous step and the latest one, from 0 to 1.
+    public float getAlpha() {
+        return (float) accumulator / STEP_NANOS;
+    }
+}
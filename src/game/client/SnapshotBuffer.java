@@ -0,0 +1,152 @@
+package game.client;
+
+import game.simulation.KartPhysics;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code SnapshotBuffer} class keeps the most recent kart states received
+ * for one opponent, stamped with their arrival time. The display samples it a
+ * little in the past, so it can blend between two received states instead of
+ * jumping to each one; if the next state is late, it extrapolates briefly and
+ * then holds the kart where it is.
+ */
+public class SnapshotBuffer {
+
+    // Constants.
+    private static final int CAPACITY = 32;
+    // So rotation blends the short way round.
+    private static final float TURN_CIRCLE = KartPhysics.TURN_CIRCLE;
+    // Minimum render delay, configurable with -Dgame.client.interpolationDelayMs.
+    private static final long MIN_DELAY_MS = Math.max(0,
+            Long.getLong("game.client.interpolationDelayMs", 100));
+    // Render this many arrival intervals behind, so one late snapshot still has a successor.
+    private static final float DELAY_INTERVALS = 2f;
+    private static final long MAX_EXTRAPOLATION_MS = 200;
+    // Smoothing for the average time between snapshots.
+    private static final float INTERVAL_WEIGHT = 0.1f;
+
+    // Object properties.
+    private final long[] times = new long[CAPACITY];
+    private final float[] rotations = new float[CAPACITY];
+    private final float[] speeds = new float[CAPACITY];
+    private final float[] positionsX = new float[CAPACITY];
+    private final float[] positionsY = new float[CAPACITY];
+    private final ReentrantLock lock = new ReentrantLock();
+    private int head = 0; // Index of the next slot to write.
+    private int size = 0;
+    private float averageInterval = 0f;
+
+    // Record a state received from the server.
+    public void add(long time, float rotation, float speed, float positionX, float positionY) {
+        lock.lock();
+        try {
+            if (size > 0) {
+                long previous = times[index(size - 1)];
+                if (time < previous) time = previous;
+                float interval = time - previous;
+                averageInterval = averageInterval == 0f ? interval
+                        : averageInterval + (interval - averageInterval) * INTERVAL_WEIGHT;
+            }
+            times[head] = time;
+            rotations[head] = rotation;
+            speeds[head] = speed;
+            positionsX[head] = positionX;
+            positionsY[head] = positionY;
+            head = (head + 1) % CAPACITY;
+            if (size < CAPACITY) size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // How far behind the present to render, based on how often snapshots arrive.
+    public long getRenderDelay() {
+        lock.lock();
+        try {
+            return Math.max(MIN_DELAY_MS, (long) (averageInterval * DELAY_INTERVALS));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Fill the state for the given time; returns false until a snapshot has arrived.
+    public boolean sample(long renderTime, State into) {
+        lock.lock();
+        try {
+            if (size == 0) return false;
+
+            // Before the oldest snapshot: hold it.
+            int oldest = index(0);
+            if (renderTime <= times[oldest]) {
+                copy(oldest, into);
+                return true;
+            }
+
+            // Find the pair of snapshots around the render time, newest first.
+            for (int i = size - 1; i > 0; i--) {
+                int from = index(i - 1);
+                int to = index(i);
+                if (times[from] <= renderTime && renderTime <= times[to]) {
+                    long span = times[to] - times[from];
+                    float t = span == 0 ? 1f : (float) (renderTime - times[from]) / span;
+                    blend(from, to, t, into);
+                    return true;
+                }
+            }
+
+            // Past the newest snapshot: keep moving along the last known velocity for a short while.
+            int newest = index(size - 1);
+            if (size == 1) {
+                copy(newest, into);
+                return true;
+            }
+            int previous = index(size - 2);
+            long span = times[newest] - times[previous];
+            if (span == 0) {
+                copy(newest, into);
+                return true;
+            }
+            long ahead = Math.min(renderTime - times[newest], MAX_EXTRAPOLATION_MS);
+            blend(previous, newest, 1f + (float) ahead / span, into);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Physical slot of the i-th snapshot, oldest first.
+    private int index(int i) {
+        return (head - size + i + CAPACITY) % CAPACITY;
+    }
+
+    private void copy(int slot, State into) {
+        into.rotation = rotations[slot];
+        into.speed = speeds[slot];
+        into.positionX = positionsX[slot];
+        into.positionY = positionsY[slot];
+    }
+
+    private void blend(int from, int to, float t, State into) {
+        float turn = rotations[to] - rotations[from];
+        if (turn > TURN_CIRCLE / 2) turn -= TURN_CIRCLE;
+        else if (turn < -TURN_CIRCLE / 2) turn += TURN_CIRCLE;
+        float rotation = (rotations[from] + turn * t) % TURN_CIRCLE;
+        if (rotation < 0) rotation += TURN_CIRCLE;
+        // Adding the circle to a tiny negative value can round up to a full turn.
+        into.rotation = rotation >= TURN_CIRCLE ? 0f : rotation;
+        into.speed = speeds[from] + (speeds[to] - speeds[from]) * Math.min(t, 1f);
+        into.positionX = positionsX[from] + (positionsX[to] - positionsX[from]) * t;
+        into.positionY = positionsY[from] + (positionsY[to] - positionsY[from]) * t;
+    }
+
+    /**
+     * A sampled kart state, reused between frames to avoid allocation.
+     */
+    public static class State {
+        float rotation;
+        float speed;
+        float positionX;
+        float positionY;
+    }
+}
@@ -0,0 +1,135 @@
+package game.client;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code TrackLayer} class keeps a racetrack and its animated decorations
+ * (the spectator stands) pre-composited in an opaque image compatible with the
+ * screen, so each frame starts with one accelerated copy instead of repainting
+ * the full track and every decoration. When a decoration's GIF moves on to a
+ * new frame, only that decoration's rectangle of the layer is redrawn.
+ * Layers are cached per track image, so later races on the same map reuse them.
+ */
+public class TrackLayer implements ImageObserver {
+
+    // Constants.
+    // Stop following GIF frames once the layer has not been drawn for this long.
+    private static final long IDLE_NANOS = 1_000_000_000L;
+
+    private static final Map<Image, TrackLayer> layers = new HashMap<>();
+    private static final ReentrantLock layersLock = new ReentrantLock();
+
+    // Object properties.
+    private final ImageIcon background;
+    private final Decoration[] decorations;
+    private final ReentrantLock lock = new ReentrantLock();
+    private BufferedImage layer;
+    private GraphicsConfiguration layerConfig;
+    private volatile long lastPaintTime;
+    private volatile boolean idle = true;
+
+    // Constructor.
+    private TrackLayer(ImageIcon background, Decoration[] decorations) {
+        this.background = background;
+        this.decorations = decorations;
+    }
+
+    // The layer for this track; decorations are only used the first time a track is seen.
+    public static TrackLayer forTrack(ImageIcon background, Decoration... decorations) {
+        layersLock.lock();
+        try {
+            return layers.computeIfAbsent(background.getImage(), image -> new TrackLayer(background, decorations));
+        } finally {
+            layersLock.unlock();
+        }
+    }
+
+    public void paint(Graphics g) {
+        GraphicsConfiguration config = ((Graphics2D) g).getDeviceConfiguration();
+        lock.lock();
+        try {
+            lastPaintTime = System.nanoTime();
+            if (layer == null || !config.equals(layerConfig)) {
+                compose(config);
+            }
+            else {
+                // After a pause the GIFs were no longer being followed, so bring every decoration up to date.
+                if (idle) for (Decoration decoration : decorations) decoration.dirty = true;
+                for (Decoration decoration : decorations) {
+                    if (decoration.dirty) redraw(decoration);
+                }
+            }
+            idle = false;
+            g.drawImage(layer, 0, 0, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Build the whole layer; called with the lock held.
+    private void compose(GraphicsConfiguration config) {
+        if (layer != null) layer.flush();
+        layerConfig = config;
+        layer = config.createCompatibleImage(background.getIconWidth(), background.getIconHeight(), Transparency.OPAQUE);
+        Graphics2D g = layer.createGraphics();
+        try {
+            g.drawImage(background.getImage(), 0, 0, null);
+            for (Decoration decoration : decorations) {
+                decoration.dirty = false;
+                g.drawImage(decoration.icon.getImage(), decoration.x, decoration.y, this);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Restore the track under one decoration and draw its current frame; called with the lock held.
+    private void redraw(Decoration decoration) {
+        decoration.dirty = false;
+        Graphics2D g = layer.createGraphics();
+        try {
+            g.setClip(decoration.x, decoration.y, decoration.icon.getIconWidth(), decoration.icon.getIconHeight());
+            g.drawImage(background.getImage(), 0, 0, null);
+            g.drawImage(decoration.icon.getImage(), decoration.x, decoration.y, this);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Called by the image loader whenever a decoration GIF has a new frame ready.
+    @Override
+    public boolean imageUpdate(Image image, int flags, int x, int y, int width, int height) {
+        if ((flags & (FRAMEBITS | ALLBITS)) != 0) {
+            for (Decoration decoration : decorations) {
+                if (decoration.icon.getImage() == image) decoration.dirty = true;
+            }
+        }
+        if (System.nanoTime() - lastPaintTime > IDLE_NANOS) {
+            idle = true;
+            return false;
+        }
+        return (flags & (ERROR | ABORT)) == 0;
+    }
+
+    /**
+     * An animated image drawn at a fixed place on the track.
+     */
+    public static class Decoration {
+        private final ImageIcon icon;
+        private final int x;
+        private final int y;
+        private volatile boolean dirty = true;
+
+        public Decoration(ImageIcon icon, int x, int y) {
+            this.icon = icon;
+            this.x = x;
+            this.y = y;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package game.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code KartFrameCodec} utility class encodes and decodes the binary
+ * kart-state frames used for in-race traffic once both ends have agreed
+ * on binary framing with {@code REQUEST_BINARY_FRAMES}.
+ * <p>
+ * A frame is {@code [0x00][u16 payload length][payload]}. The leading zero byte
+ * never starts a text command, so frames and lines can share one stream.
+ * A kart-state payload is {@code [u8 type][u8 count]} followed by {@code count}
+ * nine byte entries: {@code [u8 kart][u16 rotation][s16 speed][u16 x][u16 y]}.
+ * A sequenced kart-state payload carries a {@code [u32 sequence]} after the count,
+ * numbering the client input frame the state belongs to.
+ */
+public class KartFrameCodec {
+
+    // Constants.
+    public static final int PROTOCOL_VERSION    = 1;
+    public static final int FRAME_MARKER        = 0x00;
+    public static final int HEADER_BYTES        = 3;
+    public static final int TYPE_KART_STATE     = 1;
+    public static final int TYPE_SEQUENCED_KART_STATE = 2;
+    public static final int BYTES_PER_KART      = 9;
+    public static final int MAX_KARTS_PER_FRAME = 255;
+    public static final int MAX_PAYLOAD_BYTES   = 0xFFFF;
+
+    // Fixed-point scales. Rotation covers the 0-160 turn circle, positions
+    // keep 1/64 px precision up to 1024 px, speed keeps 1/1024 precision.
+    private static final float ROTATION_RANGE = 160f;
+    private static final float POSITION_SCALE = 64f;
+    private static final float POSITION_MAX   = 65535f / POSITION_SCALE;
+    private static final float SPEED_SCALE    = 1024f;
+
+    /**
+     * Receives each kart decoded from a frame.
+     */
+    public interface KartStateConsumer {
+        void accept(int kartNumber, float rotation, float speed, float positionX, float positionY);
+    }
+
+    /**
+     * Collects several karts and produces a single kart-state frame.
+     */
+    public static class Builder {
+        private final ByteBuffer payload = ByteBuffer.allocate(6 + MAX_KARTS_PER_FRAME * BYTES_PER_KART);
+        private int count = 0;
+
+        public Builder() {
+            payload.put((byte) TYPE_KART_STATE).put((byte) 0);
+        }
+
+        // Tag the frame with an input sequence number; call before adding karts.
+        public Builder sequence(int sequence) {
+            if (count > 0) throw new IllegalStateException("Sequence must be set before karts are added");
+            payload.put(0, (byte) TYPE_SEQUENCED_KART_STATE).position(2);
+            payload.putInt(sequence);
+            return this;
+        }
+
+        public Builder add(int kartNumber, float rotation, float speed, float positionX, float positionY) {
+            if (count == MAX_KARTS_PER_FRAME) throw new IllegalStateException("Kart frame is full");
+            payload.put((byte) kartNumber)
+                    .putShort(quantizeRotation(rotation))
+                    .putShort(quantizeSpeed(speed))
+                    .putShort(quantizePosition(positionX))
+                    .putShort(quantizePosition(positionY));
+            count++;
+            return this;
+        }
+
+        public int size() { return count; }
+
+        public byte[] build() {
+            int length = payload.position();
+            byte[] frame = new byte[HEADER_BYTES + length];
+            frame[0] = (byte) FRAME_MARKER;
+            frame[1] = (byte) (length >>> 8);
+            frame[2] = (byte) length;
+            System.arraycopy(payload.array(), 0, frame, HEADER_BYTES, length);
+            frame[HEADER_BYTES + 1] = (byte) count;
+            return frame;
+        }
+    }
+
+    // Prevent object creation from the implicit public constructor.
+    private KartFrameCodec() {
+        throw new IllegalStateException("Tried to instantiate the KartFrameCodec utility class");
+    }
+
+    // Decode a frame payload (without the header) and return the number of karts read.
+    public static int decode(byte[] payload, KartStateConsumer consumer) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if (buffer.remaining() < 2) throw new IllegalArgumentException("Kart frame too short: " + payload.length);
+        int type = buffer.get() & 0xFF;
+        if (type != TYPE_KART_STATE && type != TYPE_SEQUENCED_KART_STATE) {
+            throw new IllegalArgumentException("Unrecognised frame type: " + type);
+        }
+        int count = buffer.get() & 0xFF;
+        if (type == TYPE_SEQUENCED_KART_STATE) {
+            if (buffer.remaining() < 4) throw new IllegalArgumentException("Kart frame too short: " + payload.length);
+            buffer.getInt();
+        }
+        if (buffer.remaining() < count * BYTES_PER_KART) {
+            throw new IllegalArgumentException("Kart frame truncated: count=" + count + " bytes=" + payload.length);
+        }
+        for (int i = 0; i < count; i++) {
+            int kartNumber = buffer.get() & 0xFF;
+            float rotation = dequantizeRotation(buffer.getShort());
+            float speed = buffer.getShort() / SPEED_SCALE;
+            float positionX = (buffer.getShort() & 0xFFFF) / POSITION_SCALE;
+            float positionY = (buffer.getShort() & 0xFFFF) / POSITION_SCALE;
+            consumer.accept(kartNumber, rotation, speed, positionX, positionY);
+        }
+        return count;
+    }
+
+    // The input sequence number of a frame payload, or -1 if the frame carries none.
+    public static int readSequence(byte[] payload) {
+        if (payload.length < 6 || (payload[0] & 0xFF) != TYPE_SEQUENCED_KART_STATE) return -1;
+        return ByteBuffer.wrap(payload, 2, 4).getInt();
+    }
+
+    private static short quantizeRotation(float rotation) {
+        float wrapped = rotation % ROTATION_RANGE;
+        if (wrapped < 0) wrapped += ROTATION_RANGE;
+        return (short) Math.round(wrapped * (65536f / ROTATION_RANGE));
+    }
+
+    private static float dequantizeRotation(short value) {
+        return (value & 0xFFFF) * (ROTATION_RANGE / 65536f);
+    }
+
+    private static short quantizeSpeed(float speed) {
+        int scaled = Math.round(speed * SPEED_SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scaled));
+    }
+
+    private static short quantizePosition(float position) {
+        float clamped = Math.max(0f, Math.min(POSITION_MAX, position));
+        return (short) Math.round(clamped * POSITION_SCALE);
+    }
+}
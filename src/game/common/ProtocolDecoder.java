@@ -0,0 +1,102 @@
+package game.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The {@code ProtocolDecoder} class is the non-blocking counterpart of
+ * {@link ProtocolReader}. Bytes are fed in as they arrive and every complete
+ * text line or binary frame is passed to the {@link Listener}; partial input
+ * is kept until the next call.
+ */
+public class ProtocolDecoder {
+
+    /**
+     * Receives each complete message decoded from the stream.
+     */
+    public interface Listener {
+        void onLine(String line);
+        void onFrame(byte[] payload);
+    }
+
+    // Constants.
+    private static final int MAX_LINE_BYTES = 8192;
+    private static final int MESSAGE_START  = 0;
+    private static final int IN_LINE        = 1;
+    private static final int FRAME_HEADER   = 2;
+    private static final int FRAME_BODY     = 3;
+
+    // Object properties.
+    private final Listener listener;
+    private int state = MESSAGE_START;
+    private byte[] line = new byte[128];
+    private int lineLength;
+    private int frameHeaderRead;
+    private int frameLength;
+    private byte[] frame;
+    private int frameRead;
+
+    // Constructor.
+    public ProtocolDecoder(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Consume everything remaining in the buffer.
+    public void decode(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case MESSAGE_START -> {
+                    int first = buffer.get() & 0xFF;
+                    if (first == KartFrameCodec.FRAME_MARKER) {
+                        state = FRAME_HEADER;
+                        frameHeaderRead = 0;
+                        frameLength = 0;
+                    }
+                    else {
+                        state = IN_LINE;
+                        lineLength = 0;
+                        appendToLine(first);
+                    }
+                }
+                case IN_LINE -> appendToLine(buffer.get() & 0xFF);
+                case FRAME_HEADER -> {
+                    frameLength = (frameLength << 8) | (buffer.get() & 0xFF);
+                    if (++frameHeaderRead == 2) {
+                        frame = new byte[frameLength];
+                        frameRead = 0;
+                        state = FRAME_BODY;
+                        if (frameLength == 0) completeFrame();
+                    }
+                }
+                case FRAME_BODY -> {
+                    int n = Math.min(buffer.remaining(), frameLength - frameRead);
+                    buffer.get(frame, frameRead, n);
+                    frameRead += n;
+                    if (frameRead == frameLength) completeFrame();
+                }
+                default -> throw new IllegalStateException("Unrecognised decoder state: " + state);
+            }
+        }
+    }
+
+    private void appendToLine(int b) throws IOException {
+        if (b == '\n') {
+            int length = (lineLength > 0 && line[lineLength - 1] == '\r') ? lineLength - 1 : lineLength;
+            state = MESSAGE_START;
+            listener.onLine(new String(line, 0, length, StandardCharsets.UTF_8));
+            return;
+        }
+        if (lineLength == MAX_LINE_BYTES) throw new IOException("Line exceeds " + MAX_LINE_BYTES + " bytes");
+        if (lineLength == line.length) line = Arrays.copyOf(line, Math.min(MAX_LINE_BYTES, line.length * 2));
+        line[lineLength++] = (byte) b;
+    }
+
+    private void completeFrame() {
+        byte[] payload = frame;
+        frame = null;
+        state = MESSAGE_START;
+        listener.onFrame(payload);
+    }
+}
@@ -0,0 +1,80 @@
+package game.common;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@code ProtocolReader} class reads the game protocol from a socket stream.
+ * Text commands are newline-terminated lines; binary frames start with
+ * {@link KartFrameCodec#FRAME_MARKER} and are handed to a {@link FrameListener}
+ * as they are encountered, so callers keep their line-based command loop.
+ */
+public class ProtocolReader implements Closeable {
+
+    /**
+     * Receives the payload of each binary frame read from the stream.
+     */
+    public interface FrameListener {
+        void onFrame(byte[] payload);
+    }
+
+    // Object properties.
+    private final InputStream input;
+    private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(128);
+
+    // Constructor.
+    public ProtocolReader(InputStream input) {
+        this.input = new BufferedInputStream(input);
+    }
+
+    // Read the next text line, discarding any binary frames in between.
+    public String readLine() throws IOException {
+        return readLine(null);
+    }
+
+    // Read the next text line, dispatching any binary frames in between to the listener.
+    public String readLine(FrameListener frames) throws IOException {
+        while (true) {
+            int first = input.read();
+            if (first == -1) return null;
+            if (first == KartFrameCodec.FRAME_MARKER) {
+                byte[] payload = readFramePayload();
+                if (frames != null) frames.onFrame(payload);
+                continue;
+            }
+            return readRestOfLine(first);
+        }
+    }
+
+    private byte[] readFramePayload() throws IOException {
+        int high = input.read();
+        int low = input.read();
+        if (high == -1 || low == -1) throw new EOFException("Stream ended inside a frame header");
+        byte[] payload = new byte[(high << 8) | low];
+        int read = 0;
+        while (read < payload.length) {
+            int n = input.read(payload, read, payload.length - read);
+            if (n == -1) throw new EOFException("Stream ended inside a frame");
+            read += n;
+        }
+        return payload;
+    }
+
+    private String readRestOfLine(int first) throws IOException {
+        lineBuffer.reset();
+        int b = first;
+        while (b != -1 && b != '\n') {
+            lineBuffer.write(b);
+            b = input.read();
+        }
+        int length = lineBuffer.size();
+        byte[] bytes = lineBuffer.toByteArray();
+        if (length > 0 && bytes[length - 1] == '\r') length--;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,84 @@
+package game.common;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code ProtocolWriter} class is the counterpart of {@link ProtocolReader}.
+ * Lines and binary frames are collected in one buffer and handed to the socket in a
+ * single write when flushed. Inside a {@link WriteBatch} the flush waits for the end
+ * of the batch; otherwise each message is flushed as soon as it is written.
+ * Like {@code PrintWriter}, write errors are remembered rather than thrown.
+ */
+public class ProtocolWriter implements WriteBatch.Target, Closeable {
+
+    // Constants.
+    private static final int INITIAL_BUFFER_BYTES = 1024;
+
+    // Object properties.
+    private final OutputStream output;
+    private final WriteStats stats;
+    private final ReentrantLock lock = new ReentrantLock();
+    private byte[] buffer = new byte[INITIAL_BUFFER_BYTES];
+    private int count;
+    private volatile boolean error = false;
+
+    // Property access methods.
+    public WriteStats getStats() { return stats; }
+    public boolean checkError() { return error; }
+
+    // Constructor.
+    public ProtocolWriter(OutputStream output, WriteStats stats) {
+        this.output = output;
+        this.stats = stats;
+    }
+
+    public void writeLine(String line) {
+        append((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeFrame(byte[] frame) {
+        append(frame);
+    }
+
+    private void append(byte[] data) {
+        lock.lock();
+        try {
+            if (count + data.length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + data.length));
+            }
+            System.arraycopy(data, 0, buffer, count, data.length);
+            count += data.length;
+            stats.recordMessage();
+        } finally {
+            lock.unlock();
+        }
+        if (!WriteBatch.defer(this)) flush();
+    }
+
+    // Hand everything buffered to the socket in one write.
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            if (count == 0) return;
+            output.write(buffer, 0, count);
+            output.flush();
+            stats.recordFlush(1, count);
+        } catch (IOException e) {
+            error = true;
+            System.err.println("Failed to write to socket: " + e.getMessage());
+        } finally {
+            count = 0;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        output.close();
+    }
+}
@@ -0,0 +1,180 @@
+package game.common;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The {@code SpatialHash} class is a uniform grid broadphase for rectangles
+ * on a fixed-size track. Each item is listed in every cell its bounds touch,
+ * so collision checks only compare items that share a cell instead of every
+ * item with every other. Items are updated in place each tick and only move
+ * between cell lists when they cross a cell boundary.
+ * <p>
+ * An overlapping pair can share several cells; it is reported only from the
+ * cell holding the top-left corner of the overlap, so it is seen exactly once.
+ */
+public class SpatialHash<T> {
+
+    // Object properties.
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final List<List<Placement<T>>> cells;
+    private final Map<T, Placement<T>> placements = new HashMap<>();
+    private int generation = 0;
+
+    // Property access methods.
+    public int size()           { return placements.size(); }
+    public int getCellSize()    { return cellSize; }
+
+    // Constructor.
+    public SpatialHash(int width, int height, int cellSize) {
+        if (width <= 0 || height <= 0 || cellSize <= 0) {
+            throw new IllegalArgumentException("Invalid grid " + width + "x" + height + " with cell size " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cells = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) cells.add(new ArrayList<>(4));
+    }
+
+    // Add the item, or move it to its new bounds. The bounds are copied.
+    public void update(T item, Rectangle2D bounds) {
+        int minColumn = column(bounds.getMinX());
+        int maxColumn = column(bounds.getMaxX());
+        int minRow = row(bounds.getMinY());
+        int maxRow = row(bounds.getMaxY());
+
+        Placement<T> placement = placements.get(item);
+        if (placement == null) {
+            placement = new Placement<>(item);
+            placements.put(item, placement);
+        }
+        else if (placement.minColumn != minColumn || placement.maxColumn != maxColumn
+                || placement.minRow != minRow || placement.maxRow != maxRow) {
+            unlink(placement);
+        }
+        else {
+            placement.setBounds(bounds, generation);
+            return;
+        }
+        placement.minColumn = minColumn;
+        placement.maxColumn = maxColumn;
+        placement.minRow = minRow;
+        placement.maxRow = maxRow;
+        placement.setBounds(bounds, generation);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minColumn; c <= maxColumn; c++) cells.get(r * columns + c).add(placement);
+        }
+    }
+
+    public void remove(T item) {
+        Placement<T> placement = placements.remove(item);
+        if (placement != null) unlink(placement);
+    }
+
+    public void clear() {
+        for (List<Placement<T>> cell : cells) cell.clear();
+        placements.clear();
+    }
+
+    // Drop every item that has not been updated since the last call, e.g. karts of players who left.
+    public void removeStale() {
+        Iterator<Placement<T>> iterator = placements.values().iterator();
+        while (iterator.hasNext()) {
+            Placement<T> placement = iterator.next();
+            if (placement.generation != generation) {
+                unlink(placement);
+                iterator.remove();
+            }
+        }
+        generation++;
+    }
+
+    // Call the action once for every pair of items whose bounds overlap.
+    public void forEachOverlappingPair(BiConsumer<T, T> action) {
+        for (int cellIndex = 0; cellIndex < cells.size(); cellIndex++) {
+            List<Placement<T>> cell = cells.get(cellIndex);
+            for (int i = 0; i < cell.size(); i++) {
+                Placement<T> a = cell.get(i);
+                for (int j = i + 1; j < cell.size(); j++) {
+                    Placement<T> b = cell.get(j);
+                    if (a.overlaps(b.minX, b.minY, b.maxX, b.maxY)
+                            && ownerCell(Math.max(a.minX, b.minX), Math.max(a.minY, b.minY)) == cellIndex) {
+                        action.accept(a.item, b.item);
+                    }
+                }
+            }
+        }
+    }
+
+    // Call the action once for every item whose bounds overlap the given area.
+    public void forEachOverlapping(Rectangle2D area, Consumer<T> action) {
+        double minX = area.getMinX();
+        double minY = area.getMinY();
+        double maxX = area.getMaxX();
+        double maxY = area.getMaxY();
+        for (int r = row(minY); r <= row(maxY); r++) {
+            for (int c = column(minX); c <= column(maxX); c++) {
+                int cellIndex = r * columns + c;
+                for (Placement<T> placement : cells.get(cellIndex)) {
+                    if (placement.overlaps(minX, minY, maxX, maxY)
+                            && ownerCell(Math.max(minX, placement.minX), Math.max(minY, placement.minY)) == cellIndex) {
+                        action.accept(placement.item);
+                    }
+                }
+            }
+        }
+    }
+
+    private void unlink(Placement<T> placement) {
+        for (int r = placement.minRow; r <= placement.maxRow; r++) {
+            for (int c = placement.minColumn; c <= placement.maxColumn; c++) cells.get(r * columns + c).remove(placement);
+        }
+    }
+
+    private int ownerCell(double x, double y) {
+        return row(y) * columns + column(x);
+    }
+
+    // Anything off the track is kept in the border cells rather than rejected.
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+
+    private static class Placement<T> {
+        private final T item;
+        private double minX, minY, maxX, maxY;
+        private int minColumn, maxColumn, minRow, maxRow;
+        private int generation;
+
+        Placement(T item) {
+            this.item = item;
+        }
+
+        void setBounds(Rectangle2D bounds, int generation) {
+            this.minX = bounds.getMinX();
+            this.minY = bounds.getMinY();
+            this.maxX = bounds.getMaxX();
+            this.maxY = bounds.getMaxY();
+            this.generation = generation;
+        }
+
+        // Same test as Rectangle.intersects: touching edges do not count.
+        boolean overlaps(double otherMinX, double otherMinY, double otherMaxX, double otherMaxY) {
+            return otherMaxX > minX && otherMaxY > minY && otherMinX < maxX && otherMinY < maxY
+                    && maxX > minX && maxY > minY && otherMaxX > otherMinX && otherMaxY > otherMinY;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package game.common;
+
+import java.awt.*;
+import java.awt.geom.Area;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code TrackDefinition} class holds the layout of one circuit, read
+ * from a small text file so new circuits are content rather than code.
+ * One directive per line, coordinates in track pixels, {@code #} starts a
+ * comment:
+ * <pre>
+ *   size 850 650                        track image size
+ *   outer x,y x,y x,y ...               drivable outline
+ *   cutout x,y x,y x,y ...              area removed from it (repeatable)
+ *   checkpoint x1,y1 x2,y2              line to cross, in race order (repeatable)
+ *   finish x1,y1 x2,y2                  finish line, crossed after the checkpoints
+ *   wrongway bottom|right|top|left x1,y1 x2,y2
+ *                                       inner edges used to detect driving backwards
+ *   start direction x,y x,y ...         kart direction (0-15) and grid slots by player number
+ *   spawn x1,y1 x2,y2                   corners of an item spawn zone (repeatable)
+ *   item x,y                            fixed item point (repeatable)
+ * </pre>
+ * Checkpoint, finish and wrong-way lines must be horizontal or vertical; they
+ * become one pixel thick rectangles. Everything is checked when the file is
+ * parsed, so a loaded definition is always usable.
+ */
+public class TrackDefinition {
+
+    // Constants.
+    private static final String[] SIDES = { "bottom", "right", "top", "left" };
+
+    // Object properties.
+    private final String name;
+    private final int width;
+    private final int height;
+    private Polygon outline;
+    private final List<Polygon> cutouts = new ArrayList<>();
+    private final List<Rectangle> checkpoints = new ArrayList<>();
+    private Rectangle finishLine;
+    private final Rectangle[] wrongWayBounds = new Rectangle[SIDES.length];
+    private int startDirection = -1;
+    private final List<Point> startPositions = new ArrayList<>();
+    private final List<Rectangle> spawnZones = new ArrayList<>();
+    private final List<Point> itemPoints = new ArrayList<>();
+    private final StringBuilder geometry = new StringBuilder();
+
+    // Property access methods.
+    public String getName()                 { return name; }
+    public int getWidth()                   { return width; }
+    public int getHeight()                  { return height; }
+    public List<Rectangle> getCheckpoints() { return Collections.unmodifiableList(checkpoints); }
+    public int getStartDirection()          { return startDirection; }
+    public List<Point> getStartPositions()  { return Collections.unmodifiableList(startPositions); }
+    public List<Rectangle> getSpawnZones()  { return Collections.unmodifiableList(spawnZones); }
+    public List<Point> getItemPoints()      { return Collections.unmodifiableList(itemPoints); }
+    public Rectangle getWrongWayBounds(int side) {
+        if (side < 0 || side >= SIDES.length) throw new IllegalStateException("Unrecognised inner-boundary side");
+        return wrongWayBounds[side];
+    }
+
+    // Constructor.
+    private TrackDefinition(String name, int width, int height) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+    }
+
+    // A fresh copy each call, since Area is mutable.
+    public Area createPlayableArea() {
+        Area area = new Area(outline);
+        for (Polygon cutout : cutouts) area.subtract(new Area(cutout));
+        return area;
+    }
+
+    // Identifies the drivable shape only, so maps that share a layout share collision data.
+    public String getGeometryKey() {
+        CRC32 crc = new CRC32();
+        crc.update(geometry.toString().getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    // Parse and validate a track file; throws IllegalArgumentException naming the line at fault.
+    public static TrackDefinition parse(String name, List<String> lines) {
+        TrackDefinition track = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            String[] words = line.split("\\s+");
+            try {
+                if (track == null) {
+                    if (!words[0].equals("size") || words.length != 3) throw new IllegalArgumentException("the first directive must be 'size width height'");
+                    track = new TrackDefinition(name, positive(words[1]), positive(words[2]));
+                    track.geometry.append(line).append('\n');
+                }
+                else track.parseDirective(words, line);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        if (track == null) throw new IllegalArgumentException(name + ": empty track definition");
+        track.validate();
+        return track;
+    }
+
+    private void parseDirective(String[] words, String line) {
+        switch (words[0]) {
+            case "outer" -> {
+                if (outline != null) throw new IllegalArgumentException("more than one outer outline");
+                outline = polygon(words, 1);
+                geometry.append(line).append('\n');
+            }
+            case "cutout" -> {
+                cutouts.add(polygon(words, 1));
+                geometry.append(line).append('\n');
+            }
+            case "checkpoint" -> {
+                expectArguments(words, 2);
+                checkpoints.add(segment(words[1], words[2]));
+            }
+            case "finish" -> {
+                expectArguments(words, 2);
+                if (finishLine != null) throw new IllegalArgumentException("more than one finish line");
+                finishLine = segment(words[1], words[2]);
+            }
+            case "wrongway" -> {
+                expectArguments(words, 3);
+                int side = List.of(SIDES).indexOf(words[1]);
+                if (side < 0) throw new IllegalArgumentException("unknown side '" + words[1] + "'");
+                if (wrongWayBounds[side] != null) throw new IllegalArgumentException("side '" + words[1] + "' given twice");
+                wrongWayBounds[side] = segment(words[2], words[3]);
+            }
+            case "start" -> {
+                if (startDirection >= 0) throw new IllegalArgumentException("more than one start grid");
+                if (words.length < 3) throw new IllegalArgumentException("expected 'start direction x,y ...'");
+                startDirection = integer(words[1]);
+                if (startDirection < 0 || startDirection > 15) throw new IllegalArgumentException("start direction must be 0-15");
+                for (int i = 2; i < words.length; i++) startPositions.add(inBounds(point(words[i])));
+            }
+            case "spawn" -> {
+                expectArguments(words, 2);
+                Point first = inBounds(point(words[1]));
+                Point second = inBounds(point(words[2]));
+                Rectangle zone = new Rectangle(first);
+                zone.add(second);
+                if (zone.isEmpty()) throw new IllegalArgumentException("spawn zone has no area");
+                spawnZones.add(zone);
+            }
+            case "item" -> {
+                expectArguments(words, 1);
+                itemPoints.add(inBounds(point(words[1])));
+            }
+            case "size" -> throw new IllegalArgumentException("more than one size");
+            default -> throw new IllegalArgumentException("unknown directive '" + words[0] + "'");
+        }
+    }
+
+    private void validate() {
+        if (outline == null) throw new IllegalArgumentException(name + ": no outer outline");
+        if (finishLine == null) throw new IllegalArgumentException(name + ": no finish line");
+        if (startDirection < 0) throw new IllegalArgumentException(name + ": no start grid");
+        for (int side = 0; side < SIDES.length; side++) {
+            if (wrongWayBounds[side] == null) throw new IllegalArgumentException(name + ": no '" + SIDES[side] + "' wrong-way edge");
+        }
+        checkpoints.add(finishLine);
+
+        Area playable = createPlayableArea();
+        if (playable.isEmpty()) throw new IllegalArgumentException(name + ": the cut-outs leave nothing to drive on");
+        for (Rectangle checkpoint : checkpoints) {
+            if (!playable.intersects(checkpoint)) throw new IllegalArgumentException(name + ": checkpoint " + checkpoint + " is off the track");
+        }
+        for (Rectangle zone : spawnZones) {
+            if (!playable.contains(zone)) throw new IllegalArgumentException(name + ": spawn zone " + zone + " is off the track");
+        }
+        for (Point item : itemPoints) {
+            if (!playable.contains(item)) throw new IllegalArgumentException(name + ": item point " + item + " is off the track");
+        }
+    }
+
+    private Polygon polygon(String[] words, int first) {
+        if (words.length - first < 3) throw new IllegalArgumentException("a polygon needs at least three points");
+        Polygon polygon = new Polygon();
+        for (int i = first; i < words.length; i++) {
+            Point point = inBounds(point(words[i]));
+            polygon.addPoint(point.x, point.y);
+        }
+        return polygon;
+    }
+
+    // An axis-aligned line from one point to another, as a rectangle one pixel thick.
+    private Rectangle segment(String from, String to) {
+        Point start = inBounds(point(from));
+        Point end = inBounds(point(to));
+        if (start.x != end.x && start.y != end.y) throw new IllegalArgumentException("line " + from + " " + to + " is not horizontal or vertical");
+        return new Rectangle(Math.min(start.x, end.x), Math.min(start.y, end.y),
+                Math.max(1, Math.abs(end.x - start.x)), Math.max(1, Math.abs(end.y - start.y)));
+    }
+
+    private Point inBounds(Point point) {
+        if (point.x < 0 || point.y < 0 || point.x > width || point.y > height) {
+            throw new IllegalArgumentException("point " + point.x + "," + point.y + " is outside the " + width + "x" + height + " track");
+        }
+        return point;
+    }
+
+    private static Point point(String word) {
+        String[] parts = word.split(",");
+        if (parts.length != 2) throw new IllegalArgumentException("expected a point 'x,y' but found '" + word + "'");
+        return new Point(integer(parts[0]), integer(parts[1]));
+    }
+
+    private static void expectArguments(String[] words, int count) {
+        if (words.length != count + 1) throw new IllegalArgumentException("'" + words[0] + "' takes " + count + " argument(s)");
+    }
+
+    private static int positive(String word) {
+        int value = integer(word);
+        if (value <= 0) throw new IllegalArgumentException("expected a positive number but found '" + word + "'");
+        return value;
+    }
+
+    private static int integer(String word) {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected a number but found '" + word + "'");
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package game.common;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code TrackMask} class is a racetrack's drivable area rasterized once
+ * into a pixel grid, so boundary checks no longer walk the {@code Area} path
+ * geometry on every kart update. It keeps three views of the same pixels:
+ * <ul>
+ *   <li>a packed bitset of drivable pixels, for single point tests;</li>
+ *   <li>a summed-area table of blocked pixels, so testing whether a whole
+ *       rectangle is drivable takes four array reads;</li>
+ *   <li>a signed distance field (positive on the track, negative off it),
+ *       whose gradient gives the wall normal used to bounce karts away.</li>
+ * </ul>
+ * A pixel counts as drivable when its centre lies inside the area, the same
+ * rule Java2D uses to fill shapes. A finished mask can be written out and
+ * read back, so the distance field only has to be computed once per track.
+ */
+public class TrackMask {
+
+    // Constants.
+    private static final float FAR = 1e20f;
+    private static final int MAGIC = 0x544D534B; // "TMSK"
+    private static final int FORMAT_VERSION = 1;
+
+    // Object properties.
+    private final int width;
+    private final int height;
+    private final long[] drivable;
+    private final int[] blockedSums;
+    private final float[] distances;
+
+    // Property access methods.
+    public int getWidth()   { return width; }
+    public int getHeight()  { return height; }
+
+    // Constructor.
+    private TrackMask(int width, int height, boolean[] inside) {
+        this.width = width;
+        this.height = height;
+        this.drivable = new long[(width * height + 63) / 64];
+        this.blockedSums = new int[(width + 1) * (height + 1)];
+        this.distances = new float[width * height];
+
+        for (int index = 0; index < inside.length; index++) {
+            if (inside[index]) drivable[index >> 6] |= 1L << index;
+        }
+        buildBlockedSums();
+        buildDistanceField(inside);
+    }
+
+    private TrackMask(int width, int height, long[] drivable, float[] distances) {
+        this.width = width;
+        this.height = height;
+        this.drivable = drivable;
+        this.blockedSums = new int[(width + 1) * (height + 1)];
+        this.distances = distances;
+        buildBlockedSums();
+    }
+
+    // Rasterize the area over a grid of the given size, with the origin at (0, 0).
+    public static TrackMask rasterize(Shape area, int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid track size " + width + "x" + height);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.setColor(Color.WHITE);
+            g.fill(area);
+        } finally {
+            g.dispose();
+        }
+
+        Raster raster = image.getRaster();
+        int[] row = new int[width];
+        boolean[] inside = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            for (int x = 0; x < width; x++) inside[y * width + x] = row[x] != 0;
+        }
+        return new TrackMask(width, height, inside);
+    }
+
+    // Restore a mask saved with write; throws IOException if the data is not a mask of this format.
+    public static TrackMask read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) throw new IOException("Not a track mask");
+        int width = data.readInt();
+        int height = data.readInt();
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE / 4) {
+            throw new IOException("Invalid track mask size " + width + "x" + height);
+        }
+        long[] drivable = new long[(width * height + 63) / 64];
+        float[] distances = new float[width * height];
+        byte[] body = new byte[drivable.length * Long.BYTES + distances.length * Float.BYTES];
+        data.readFully(body);
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        buffer.asLongBuffer().get(drivable);
+        buffer.position(drivable.length * Long.BYTES);
+        buffer.asFloatBuffer().get(distances);
+        return new TrackMask(width, height, drivable, distances);
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+        ByteBuffer buffer = ByteBuffer.allocate(drivable.length * Long.BYTES + distances.length * Float.BYTES);
+        buffer.asLongBuffer().put(drivable);
+        buffer.position(drivable.length * Long.BYTES);
+        buffer.asFloatBuffer().put(distances);
+        data.write(buffer.array());
+        data.flush();
+    }
+
+    public boolean isDrivable(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        int index = y * width + x;
+        return (drivable[index >> 6] & (1L << index)) != 0;
+    }
+
+    // True if every pixel of the rectangle is drivable; anything reaching off the grid is not.
+    public boolean contains(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) return false;
+        if (x < 0 || y < 0 || x + w > width || y + h > height) return false;
+        int stride = width + 1;
+        int blocked = blockedSums[(y + h) * stride + x + w] - blockedSums[y * stride + x + w]
+                - blockedSums[(y + h) * stride + x] + blockedSums[y * stride + x];
+        return blocked == 0;
+    }
+
+    public boolean contains(Rectangle rectangle) {
+        return contains(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+    }
+
+    // Distance in pixels to the nearest wall: positive on the track, negative off it.
+    public float getDistance(int x, int y) {
+        x = Math.max(0, Math.min(width - 1, x));
+        y = Math.max(0, Math.min(height - 1, y));
+        return distances[y * width + x];
+    }
+
+    // Unit vector pointing away from the nearest wall at the given point; false if there is no clear direction.
+    public boolean getWallNormal(float x, float y, Point2D.Float normal) {
+        int px = Math.round(x);
+        int py = Math.round(y);
+        float dx = getDistance(px + 1, py) - getDistance(px - 1, py);
+        float dy = getDistance(px, py + 1) - getDistance(px, py - 1);
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length < 1e-6f) return false;
+        normal.setLocation(dx / length, dy / length);
+        return true;
+    }
+
+    private void buildBlockedSums() {
+        int stride = width + 1;
+        for (int y = 0; y < height; y++) {
+            int rowBlocked = 0;
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if ((drivable[index >> 6] & (1L << index)) == 0) rowBlocked++;
+                blockedSums[(y + 1) * stride + x + 1] = blockedSums[y * stride + x + 1] + rowBlocked;
+            }
+        }
+    }
+
+    // Exact Euclidean distance transform (Felzenszwalb and Huttenlocher), run once for each side of the wall.
+    private void buildDistanceField(boolean[] inside) {
+        float[] toBlocked = squaredDistances(inside, false);
+        float[] toDrivable = squaredDistances(inside, true);
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = inside[i] ? (float) Math.sqrt(toBlocked[i]) : -(float) Math.sqrt(toDrivable[i]);
+        }
+    }
+
+    // Squared distance from every pixel to the nearest pixel whose inside flag equals the target.
+    private float[] squaredDistances(boolean[] inside, boolean target) {
+        float[] grid = new float[width * height];
+        for (int i = 0; i < grid.length; i++) grid[i] = inside[i] == target ? 0f : FAR;
+
+        int longest = Math.max(width, height);
+        float[] line = new float[longest];
+        float[] result = new float[longest];
+        int[] vertices = new int[longest];
+        float[] bounds = new float[longest + 1];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) line[y] = grid[y * width + x];
+            transform(line, height, result, vertices, bounds);
+            for (int y = 0; y < height; y++) grid[y * width + x] = result[y];
+        }
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(grid, y * width, line, 0, width);
+            transform(line, width, result, vertices, bounds);
+            System.arraycopy(result, 0, grid, y * width, width);
+        }
+        return grid;
+    }
+
+    // One-dimensional pass: lower envelope of the parabolas rooted at each sample.
+    private static void transform(float[] f, int n, float[] d, int[] v, float[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = Float.NEGATIVE_INFINITY;
+        z[1] = Float.POSITIVE_INFINITY;
+        for (int q = 1; q < n; q++) {
+            float s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Float.POSITIVE_INFINITY;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) k++;
+            int p = v[k];
+            d[q] = (float) (q - p) * (q - p) + f[p];
+        }
+    }
+
+    private static float intersection(float[] f, int q, int p) {
+        return ((f[q] + (float) q * q) - (f[p] + (float) p * p)) / (2f * (q - p));
+    }
+}
@@ -0,0 +1,61 @@
+package game.common;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The {@code WriteBatch} utility class groups the messages produced in one cycle
+ * (a server tick, a batch of client commands, a rendered frame) so each connection
+ * is flushed once at the end of the cycle instead of once per message. Batches are
+ * per thread and may nest; outside a batch, writers flush immediately.
+ */
+public class WriteBatch {
+
+    /**
+     * An output that buffers messages until it is flushed.
+     */
+    public interface Target {
+        void flush();
+    }
+
+    // Batch properties.
+    private static final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
+    // Prevent object creation from the implicit public constructor.
+    private WriteBatch() {
+        throw new IllegalStateException("Tried to instantiate the WriteBatch utility class");
+    }
+
+    public static void begin() {
+        Batch batch = currentBatch.get();
+        if (batch == null) {
+            batch = new Batch();
+            currentBatch.set(batch);
+        }
+        batch.depth++;
+    }
+
+    // Flush every target written to since the outermost begin().
+    public static void end() {
+        Batch batch = currentBatch.get();
+        if (batch == null) throw new IllegalStateException("WriteBatch.end() without begin()");
+        if (--batch.depth > 0) return;
+        currentBatch.remove();
+        for (Target target : batch.targets) {
+            target.flush();
+        }
+    }
+
+    // Returns true if the flush was deferred to the end of the current batch.
+    public static boolean defer(Target target) {
+        Batch batch = currentBatch.get();
+        if (batch == null) return false;
+        batch.targets.add(target);
+        return true;
+    }
+
+    private static class Batch {
+        private final Set<Target> targets = new LinkedHashSet<>();
+        private int depth;
+    }
+}
@@ -0,0 +1,71 @@
+package game.common;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code WriteStats} class counts what the socket writers do: messages
+ * queued, flushes, write calls and bytes. Comparing messages with write calls
+ * shows how much write coalescing saves. Start the client or server with
+ * {@code -Dgame.net.stats=true} to log the counters periodically.
+ */
+public class WriteStats {
+
+    // Constants.
+    private static final long REPORT_INTERVAL_MS = 10000;
+
+    // Object properties.
+    private final String logPrefix;
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicBoolean reporting = new AtomicBoolean(false);
+
+    // Property access methods.
+    public long getMessages() { return messages.sum(); }
+    public long getFlushes()  { return flushes.sum(); }
+    public long getWrites()   { return writes.sum(); }
+    public long getBytes()    { return bytes.sum(); }
+
+    // Constructor.
+    public WriteStats(String logPrefix) {
+        this.logPrefix = logPrefix;
+    }
+
+    public void recordMessage() {
+        messages.increment();
+    }
+
+    // One flush that handed byteCount bytes to the socket in writeCount write calls.
+    public void recordFlush(int writeCount, long byteCount) {
+        flushes.increment();
+        writes.add(writeCount);
+        bytes.add(byteCount);
+    }
+
+    // Starts one reporter thread; later calls do nothing.
+    public void startReporting() {
+        if (!Boolean.getBoolean("game.net.stats") || !reporting.compareAndSet(false, true)) return;
+        Thread t = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(REPORT_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.println(logPrefix + " " + this);
+            }
+        }, "WriteStats-Reporter");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public String toString() {
+        long flushCount = getFlushes();
+        long byteCount = getBytes();
+        return "writes: messages=" + getMessages() + " flushes=" + flushCount + " syscalls=" + getWrites()
+                + " bytes=" + byteCount + " bytesPerFlush=" + (flushCount == 0 ? 0 : byteCount / flushCount);
+    }
+}
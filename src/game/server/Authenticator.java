@@ -0,0 +1,277 @@
+package game.server;
+
+import game.common.LatencyHistogram;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The {@code Authenticator} class checks logins and registrations away from
+ * the connection threads. Requests are run by a few dedicated workers behind a
+ * bounded queue, so a burst of logins waits on the database there instead of
+ * holding up the threads that relay race traffic. Requests are turned away at
+ * once, without touching the database, when:
+ * <ul>
+ *   <li>the client's address has used up its token bucket of attempts;</li>
+ *   <li>the same username and password failed within the last few seconds;</li>
+ *   <li>the queue is full, or a request waited in it too long.</li>
+ * </ul>
+ * A login the player store could not check is answered BUSY and is never
+ * remembered as a failure.
+ * The answer is handed to a callback on the worker thread.
+ */
+public class Authenticator {
+
+    // Constants.
+    // Worker threads and queued requests, e.g. -Dgame.server.auth.threads=8 -Dgame.server.auth.queueSize=256
+    private static final int THREADS = Math.max(1, Integer.getInteger("game.server.auth.threads", 4));
+    private static final int QUEUE_SIZE = Math.max(1, Integer.getInteger("game.server.auth.queueSize", 128));
+    // A request queued longer than this is answered BUSY; the client has likely given up on it.
+    private static final long MAX_QUEUE_MS = Long.getLong("game.server.auth.maxQueueMs", 2000);
+    // Attempts per client address: a burst, then a steady rate.
+    private static final int IP_BURST = Math.max(1, Integer.getInteger("game.server.auth.ipBurst", 20));
+    private static final double IP_PER_SECOND = Math.max(0.01,
+            Double.parseDouble(System.getProperty("game.server.auth.ipPerSecond", "5")));
+    // How long failed credentials are remembered, and how many.
+    private static final long FAILURE_CACHE_MS = Long.getLong("game.server.auth.failureCacheMs", 30_000);
+    private static final int FAILURE_CACHE_SIZE = Math.max(1, Integer.getInteger("game.server.auth.failureCacheSize", 10_000));
+    // Above this many tracked addresses, buckets that have refilled are dropped.
+    private static final int MAX_TRACKED_ADDRESSES = 10_000;
+
+    // Object properties.
+    private final PlayerStore store;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // Username and password hash to the time the failure is forgotten, oldest first.
+    private final Map<String, Long> failures = new LinkedHashMap<>(256, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > FAILURE_CACHE_SIZE;
+        }
+    };
+    private final ReentrantLock failuresLock = new ReentrantLock();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LongAdder busy = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder knownFailures = new LongAdder();
+
+    /**
+     * The answer to a login or registration.
+     */
+    public enum Outcome {
+        SUCCESS,
+        FAILURE,
+        // Overloaded; the client may try again shortly.
+        BUSY,
+        // Too many attempts from this address.
+        RATE_LIMITED
+    }
+
+    // Constructor.
+    public Authenticator(PlayerStore store) {
+        this.store = store;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                    Thread t = new Thread(r, "Auth-Worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public void registerMetrics(ServerMetrics metrics) {
+        metrics.registerGauge("auth_queue_depth", () -> workers.getQueue().size());
+        metrics.registerGauge("auth_busy_total", busy::sum);
+        metrics.registerGauge("auth_rate_limited_total", rateLimited::sum);
+        metrics.registerGauge("auth_known_failures_total", knownFailures::sum);
+        metrics.registerGauge("auth_failure_cache_size", this::getFailureCacheSize);
+        metrics.registerHistogram("auth_queue_wait", queueWait);
+    }
+
+    public void login(String remoteAddress, String username, String password, Consumer<Outcome> reply) {
+        if (!allow(remoteAddress)) {
+            reply.accept(Outcome.RATE_LIMITED);
+            return;
+        }
+        String failureKey = failureKey(username, password);
+        if (isKnownFailure(failureKey)) {
+            knownFailures.increment();
+            reply.accept(Outcome.FAILURE);
+            return;
+        }
+        submit(reply, () -> {
+            try {
+                if (store.authenticate(username, password)) return Outcome.SUCCESS;
+            } catch (SQLException e) {
+                // The store could not answer; only a real mismatch is remembered as a failure.
+                System.err.println("[Server] Login check failed, answering BUSY: " + e.getMessage());
+                busy.increment();
+                return Outcome.BUSY;
+            }
+            rememberFailure(failureKey);
+            return Outcome.FAILURE;
+        });
+    }
+
+    public void register(String remoteAddress, String username, String password, Consumer<Outcome> reply) {
+        if (!allow(remoteAddress)) {
+            reply.accept(Outcome.RATE_LIMITED);
+            return;
+        }
+        submit(reply, () -> {
+            if (!store.registerPlayer(username, password)) return Outcome.FAILURE;
+            // Failed logins made before the account existed no longer apply.
+            forgetFailures(username);
+            return Outcome.SUCCESS;
+        });
+    }
+
+    public int getFailureCacheSize() {
+        failuresLock.lock();
+        try {
+            return failures.size();
+        } finally {
+            failuresLock.unlock();
+        }
+    }
+
+    private void submit(Consumer<Outcome> reply, Supplier<Outcome> check) {
+        long queuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> {
+                long waitedNanos = System.nanoTime() - queuedAt;
+                queueWait.record(waitedNanos / 1000);
+                if (TimeUnit.NANOSECONDS.toMillis(waitedNanos) > MAX_QUEUE_MS) {
+                    busy.increment();
+                    reply.accept(Outcome.BUSY);
+                    return;
+                }
+                Outcome outcome;
+                try {
+                    outcome = check.get();
+                } catch (RuntimeException e) {
+                    System.err.println("[Server] Authentication failed with an error: " + e);
+                    outcome = Outcome.BUSY;
+                }
+                reply.accept(outcome);
+            });
+        } catch (RejectedExecutionException e) {
+            busy.increment();
+            reply.accept(Outcome.BUSY);
+        }
+    }
+
+    private boolean allow(String remoteAddress) {
+        long now = System.nanoTime();
+        String host = hostOf(remoteAddress);
+        if (buckets.size() > MAX_TRACKED_ADDRESSES) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        if (buckets.computeIfAbsent(host, key -> new TokenBucket(now)).tryTake(now)) return true;
+        rateLimited.increment();
+        return false;
+    }
+
+    private boolean isKnownFailure(String key) {
+        failuresLock.lock();
+        try {
+            Long forgetAt = failures.get(key);
+            if (forgetAt == null) return false;
+            if (forgetAt > System.currentTimeMillis()) return true;
+            failures.remove(key);
+            return false;
+        } finally {
+            failuresLock.unlock();
+        }
+    }
+
+    private void rememberFailure(String key) {
+        failuresLock.lock();
+        try {
+            // Re-inserted so the map stays in expiry order.
+            failures.remove(key);
+            failures.put(key, System.currentTimeMillis() + FAILURE_CACHE_MS);
+        } finally {
+            failuresLock.unlock();
+        }
+    }
+
+    private void forgetFailures(String username) {
+        String prefix = username.trim() + "\n";
+        failuresLock.lock();
+        try {
+            failures.keySet().removeIf(key -> key.startsWith(prefix));
+        } finally {
+            failuresLock.unlock();
+        }
+    }
+
+    // Only a hash of the password is kept in memory.
+    private static String failureKey(String username, String password) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(password.trim().getBytes(StandardCharsets.UTF_8));
+            return username.trim() + "\n" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // "/203.0.113.5:50412" -> "/203.0.113.5": attempts are counted per address, not per connection.
+    private static String hostOf(String remoteAddress) {
+        if (remoteAddress == null) return "unknown";
+        int port = remoteAddress.lastIndexOf(':');
+        return (port > 0) ? remoteAddress.substring(0, port) : remoteAddress;
+    }
+
+    private static class TokenBucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private double tokens = IP_BURST;
+        private long refilledAt;
+
+        TokenBucket(long now) {
+            this.refilledAt = now;
+        }
+
+        boolean tryTake(long now) {
+            lock.lock();
+            try {
+                refill(now);
+                if (tokens < 1) return false;
+                tokens -= 1;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isFull(long now) {
+            lock.lock();
+            try {
+                refill(now);
+                return tokens >= IP_BURST;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(IP_BURST, tokens + (now - refilledAt) / 1e9 * IP_PER_SECOND);
+            refilledAt = now;
+        }
+    }
+}
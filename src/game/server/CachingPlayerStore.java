@@ -0,0 +1,195 @@
+package game.server;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code CachingPlayerStore} class wraps another {@link PlayerStore} and
+ * keeps a {@link PlayerProfile} for recent players in memory. A profile is
+ * loaded by the login query itself, win counts are served from memory, and
+ * saved wins are added to the cached profile after the store commits them,
+ * so lobby updates do not read the database. The cache holds at most
+ * {@code -Dgame.server.profileCacheSize} profiles (default 10000) and evicts
+ * the least recently used; an evicted profile is loaded again on its next use.
+ */
+public class CachingPlayerStore implements PlayerStore {
+
+    // Constants.
+    private static final int CAPACITY = Math.max(1, Integer.getInteger("game.server.profileCacheSize", 10_000));
+
+    // Object properties.
+    private final PlayerStore store;
+    private final Map<String, PlayerProfile> profiles = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PlayerProfile> eldest) {
+            if (size() <= CAPACITY) return false;
+            evictions.increment();
+            return true;
+        }
+    };
+    private final ReentrantLock lock = new ReentrantLock();
+    // Bumped when saving wins starts and ends. A profile read from the store is
+    // only cached if no save ran meanwhile, since it may be missing those wins.
+    private final AtomicLong winUpdates = new AtomicLong();
+    private final AtomicInteger winUpdatesInFlight = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Constructor.
+    public CachingPlayerStore(PlayerStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean authenticate(String username, String password) throws SQLException {
+        return login(username, password) != null;
+    }
+
+    // A fresh profile replaces any cached one, so logging in again corrects a stale win count.
+    @Override
+    public PlayerProfile login(String username, String password) throws SQLException {
+        long version = winUpdates.get();
+        PlayerProfile profile = store.login(username, password);
+        if (profile != null) cache(username, profile, version, true);
+        return profile;
+    }
+
+    @Override
+    public boolean registerPlayer(String username, String password) {
+        return store.registerPlayer(username, password);
+    }
+
+    @Override
+    public void recordWin(String username) {
+        beginWinUpdate();
+        try {
+            store.recordWin(username);
+            addWins(username, 1);
+        } finally {
+            endWinUpdate();
+        }
+    }
+
+    @Override
+    public int getPlayerWins(String username) {
+        PlayerProfile profile = getProfile(username);
+        return profile == null ? 0 : profile.getWins();
+    }
+
+    @Override
+    public PlayerProfile getProfile(String username) {
+        if (username == null || username.trim().isEmpty()) return null;
+        PlayerProfile profile = get(username);
+        if (profile != null) {
+            hits.increment();
+            return profile;
+        }
+        misses.increment();
+        long version = winUpdates.get();
+        profile = store.getProfile(username);
+        if (profile != null) cache(username, profile, version, false);
+        return profile;
+    }
+
+    @Override
+    public void recordRace(String username) {
+        store.recordRace(username);
+    }
+
+    @Override
+    public void recordRace(int winnerId) {
+        store.recordRace(winnerId);
+    }
+
+    @Override
+    public int countRacesForPlayer(String username) {
+        return store.countRacesForPlayer(username);
+    }
+
+    @Override
+    public void recordRaceResults(List<RaceResult> results) throws SQLException {
+        beginWinUpdate();
+        try {
+            store.recordRaceResults(results);
+            for (RaceResult result : results) {
+                if (result.getUsername() != null) addWins(result.getUsername(), 1);
+            }
+        } finally {
+            endWinUpdate();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> loadWins(LeaderboardPeriod period, LocalDate start) throws SQLException {
+        return store.loadWins(period, start);
+    }
+
+    @Override
+    public void registerMetrics(ServerMetrics metrics) {
+        store.registerMetrics(metrics);
+        metrics.registerGauge("profile_cache_size", this::size);
+        metrics.registerGauge("profile_cache_hits_total", hits::sum);
+        metrics.registerGauge("profile_cache_misses_total", misses::sum);
+        metrics.registerGauge("profile_cache_evictions_total", evictions::sum);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return profiles.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only cached profiles are updated; one not in the cache is read with the new count when next needed.
+    private void addWins(String username, int count) {
+        PlayerProfile profile = get(username);
+        if (profile != null) profile.addWins(count);
+    }
+
+    private PlayerProfile get(String username) {
+        lock.lock();
+        try {
+            return profiles.get(username.trim());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void beginWinUpdate() {
+        winUpdatesInFlight.incrementAndGet();
+        winUpdates.incrementAndGet();
+    }
+
+    private void endWinUpdate() {
+        winUpdates.incrementAndGet();
+        winUpdatesInFlight.decrementAndGet();
+    }
+
+    // Cache a profile read at the given version. If wins were being saved meanwhile the read may be
+    // stale: it is not cached, and on login the old entry is dropped too so the next use reloads it.
+    private void cache(String username, PlayerProfile profile, long version, boolean replace) {
+        String key = username.trim();
+        lock.lock();
+        try {
+            if (winUpdates.get() != version || winUpdatesInFlight.get() > 0) {
+                if (replace) profiles.remove(key);
+            } else if (replace) {
+                profiles.put(key, profile);
+            } else {
+                profiles.putIfAbsent(key, profile);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package game.server;
+
+import game.common.WriteBatch;
+
+/**
+ * The {@code ClientConnection} interface is the transport a {@code ClientHandler}
+ * writes to. Implementations must allow sends from any thread and must never
+ * block the caller on a slow client; output is queued and written separately.
+ * Queued output is flushed at the end of the sender's {@link WriteBatch}, or
+ * straight away when there is none.
+ */
+public interface ClientConnection extends WriteBatch.Target {
+
+    void sendLine(String line);
+    void sendFrame(byte[] frame);
+    // Kart state supersedes any kart state still waiting to be written.
+    void sendKartState(byte[] message);
+    // Write everything queued so far.
+    void flush();
+    void close();
+    // Bytes queued but not yet written to the socket.
+    int getQueuedBytes();
+    String getRemoteAddress();
+}
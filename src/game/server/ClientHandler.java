@@ -1,39 +1,67 @@
 package game.server;
 
+import game.common.KartFrameCodec;
+import game.common.WriteBatch;
+
 import java.io.*;
 import java.net.Socket;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The {@code ClientHandler} class sends requests/data to the client
- *  * and processes commands from the client.
+ * and processes commands from the client. It is independent of the transport:
+ * in thread-per-client mode it runs its own blocking read loop, while the
+ * {@code NioServer} feeds it lines and frames through {@link #handleLine} and {@link #handleFrame}.
  */
 public class ClientHandler implements Runnable {
 
+    // Constants.
+    // Logging every received line costs more than handling most commands, so it is off unless debugging.
+    private static final boolean LOG_MESSAGES = Boolean.getBoolean("game.server.logMessages");
+    // Binary kart frames are counted under this name beside the text commands.
+    private static final String KART_FRAME_COMMAND = "KART_FRAME";
+    // Entries sent for a REQUEST_LEADERBOARD without a count.
+    private static final int LEADERBOARD_DEFAULT_SIZE = 10;
+
     // Object properties.
-    private final Socket server;;
+    private final Socket server;
+    private ClientConnection connection;
     private String messageFromClient;
     private int playerNumber;
     private boolean connectionActive = false;
-    private BufferedReader inputStream;
-    private PrintWriter outputStream;
-    private String authenticatedUsername; // Pour stocker le nom après le login
+    private final AtomicBoolean connectionEnded = new AtomicBoolean(false);
+    private volatile boolean binaryFramesEnabled = false;
+    private volatile Room room; // Assigned by JOIN_ROOM or on the first lobby request.
+    private volatile String authenticatedUsername; // Pour stocker le nom après le login
+    // One login or registration at a time per connection.
+    private final AtomicBoolean authPending = new AtomicBoolean(false);
     public String getAuthenticatedUsername() { return authenticatedUsername; }
     private volatile long lastHeartbeat = System.currentTimeMillis();
     public long getLastHeartbeat() { return lastHeartbeat; }
     // Expose remote socket address for logging
-    public String getRemoteAddress() { return (server == null) ? "unknown" : server.getRemoteSocketAddress().toString(); }
+    public String getRemoteAddress() { return (connection == null) ? "unknown" : connection.getRemoteAddress(); }
     
     // Property access methods.
     public int getPlayerNumber() { return playerNumber; }
+    public boolean isBinaryFramesEnabled() { return binaryFramesEnabled; }
+    public Room getRoom() { return room; }
+    public int getQueuedBytes() { return (connection == null) ? 0 : connection.getQueuedBytes(); }
     // New setter to allow LobbyManager to assign the number before adding to list
     public void setPlayerNumber(int num) { this.playerNumber = num; }
 
-    // Constructor.
+    // Constructor for thread-per-client mode; the connection is opened in run().
     public ClientHandler(Socket server) { 
     	this.server = server; 
     }
 
+    // Constructor for connections serviced by the NioServer.
+    public ClientHandler(ClientConnection connection) {
+        this.server = null;
+        this.connection = connection;
+    }
+
     public void updateOpponentKartChoice(int opponentNumber, int kartChoice) {
         sendCommand("UPDATE_OP_KART_CHOICE " + opponentNumber + " " + kartChoice);
     }
@@ -48,9 +76,12 @@ public class ClientHandler implements Runnable {
         String name = opponent.getAuthenticatedUsername();
         if (name == null) name = "";
         String encoded = name.replaceAll(" ", "_");
-        int wins = DatabaseManager.getPlayerWins(name);
-        int kartChoice = LobbyManager.getKartChoice(opponentNumber);
-        boolean ready = LobbyManager.getReadyState(opponentNumber);
+        int wins = ClientManager.getPlayerStore().getPlayerWins(name);
+        Room opponentRoom = opponent.getRoom();
+        if (opponentRoom == null) return; // Left while the update was being prepared.
+        LobbyManager lobby = opponentRoom.getLobby();
+        int kartChoice = lobby.getKartChoice(opponentNumber);
+        boolean ready = lobby.getReadyState(opponentNumber);
         // Send an atomic PLAYER_JOINED message with all relevant fields
         sendCommand("PLAYER_JOINED " + opponentNumber + " " + kartChoice + " " + ready + " " + encoded + " " + wins);
     }
@@ -67,16 +98,38 @@ public class ClientHandler implements Runnable {
         sendCommand("UPDATE_WEATHER " + weather);
     }
 
-    public void updateOpponentKart(int kartNum, float rot, float speed, float posX, float posY) {
-        sendCommand("SEND_OP_KART_DATA " + kartNum + " " + rot + " " + speed + " " + posX + " " + posY);
+    // Kart snapshots are coalesced per connection, so a slow client only receives the newest.
+    public void sendKartSnapshot(String snapshot) {
+        if (connection != null) connection.sendKartState((snapshot + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void sendKartFrame(byte[] frame) {
+        if (connection != null) connection.sendKartState(frame);
+    }
+
+    // Echo the server's state for this player's kart after the given input frame, for client reconciliation.
+    // Sent outside the kart-state slot so a newer snapshot never replaces it.
+    public void acknowledgeKart(int sequence, float rotation, float speed, float positionX, float positionY) {
+        if (connection == null) return;
+        if (binaryFramesEnabled) {
+            connection.sendFrame(new KartFrameCodec.Builder()
+                    .sequence(sequence)
+                    .add(playerNumber, rotation, speed, positionX, positionY)
+                    .build());
+        }
+        else sendCommand("SEND_PL_KART_ACK " + sequence + " " + rotation + " " + speed + " " + positionX + " " + positionY);
     }
 
     public void broadcastCollision(int kart1, int kart2, long timestamp, float orig1, float orig2) {
-        // Broadcast to all players in-game
-        for (ClientHandler handler : GameManager.getPlayersInGame()) {
+        long start = System.nanoTime();
+        int recipients = 0;
+        // Broadcast to all players in this room's race
+        for (ClientHandler handler : room.getGame().getPlayersInGame()) {
             if (handler.equals(this)) continue; // don't send it back to sender
             handler.sendCommand("BROADCAST_COLLISION " + kart1 + " " + kart2 + " " + timestamp + " " + orig1 + " " + orig2);
+            recipients++;
         }
+        ClientManager.getMetrics().recordBroadcast("collision", recipients, System.nanoTime() - start);
     }
 
     public void startGame() {
@@ -89,7 +142,7 @@ public class ClientHandler implements Runnable {
     }
 
     public void retrieveAllConnectedPlayers() {
-        for (ClientHandler opponent : LobbyManager.getPlayersInLobby()) {
+        for (ClientHandler opponent : room.getLobby().getPlayersInLobby()) {
             if (opponent == null) continue;
             int oppNum = opponent.getPlayerNumber();
             if (oppNum <= 0) continue; // Skip invalid entries
@@ -100,92 +153,147 @@ public class ClientHandler implements Runnable {
      }
 
      public void retrieveAllKartChoices() {
-        for (ClientHandler opponent : LobbyManager.getPlayersInLobby()) {
+        LobbyManager lobby = room.getLobby();
+        for (ClientHandler opponent : lobby.getPlayersInLobby()) {
             int opponentNumber = opponent.getPlayerNumber();
             if (opponentNumber <= 0) continue; // Skip invalid
             if (playerNumber == opponentNumber) continue; // Don't get their own.
-            updateOpponentKartChoice(opponentNumber, LobbyManager.getKartChoice(opponentNumber));
+            updateOpponentKartChoice(opponentNumber, lobby.getKartChoice(opponentNumber));
         }
      }
 
      public void retrieveAllReadyStates() {
-        for (ClientHandler opponent : LobbyManager.getPlayersInLobby()) {
+        LobbyManager lobby = room.getLobby();
+        for (ClientHandler opponent : lobby.getPlayersInLobby()) {
             int opponentNumber = opponent.getPlayerNumber();
             if (opponentNumber <= 0) continue; // Skip invalid
             if (playerNumber == opponentNumber) continue; // Don't get their own.
-            updateOpponentReadyState(opponentNumber, LobbyManager.getReadyState(opponentNumber));
+            updateOpponentReadyState(opponentNumber, lobby.getReadyState(opponentNumber));
         }
      }
 
-    // Handler thread loops here.
- // Dans ClientHandler.java (Serveur)
+    // Handler thread loops here (thread-per-client mode only).
     public void run() {
         try {
-            inputStream = new BufferedReader(new InputStreamReader(server.getInputStream()));
-            outputStream = new PrintWriter(server.getOutputStream(), true);
+            SocketConnection socketConnection = new SocketConnection(server);
+            connection = socketConnection;
 
-            System.out.println("[Server] New client connected from " + server.getRemoteSocketAddress());
+            System.out.println("[Server] New client connected from " + socketConnection.getRemoteAddress());
 
             String line;
-            while ((line = inputStream.readLine()) != null) {
-                // Refresh lastHeartbeat on any incoming message to indicate activity
-                this.lastHeartbeat = System.currentTimeMillis();
-                System.out.println("[Server] Received from client: " + line);
-
-                // Robust parse: split into at most 3 parts to allow spaces in password
-                String[] data = line.split(" ", 3);
-                String command = data.length > 0 ? data[0].trim() : null;
-                String user = data.length > 1 ? data[1].trim() : null;
-                String pass = data.length > 2 ? data[2].trim() : null;
-
-                System.out.println("[Server] parsed -> command='" + command + "' user='" + user + "' (len=" + (user==null?0:user.length()) + ") pass='" + pass + "' (len=" + (pass==null?0:pass.length()) + ")");
-
-                if ("LOGIN_REQUEST".equals(command)) {
-                    if (user == null || pass == null) {
-                        sendCommand("LOGIN_FAILURE");
-                        System.out.println("[Server] LOGIN_REQUEST missing user/pass");
-                        continue;
-                    }
-                    boolean isValid = DatabaseManager.authenticate(user, pass);
-                    if (isValid) {
-                        this.authenticatedUsername = user;
-                        this.connectionActive = true;
-                        // Refresh heartbeat on successful authentication to avoid premature pruning
-                        this.lastHeartbeat = System.currentTimeMillis();
-                        sendCommand("LOGIN_SUCCESS");
-                        System.out.println("[Server] User authenticated: " + this.authenticatedUsername);
-                        // On ne fait PLUS createPlayerLobbyData() ici !
-                    } else {
-                        sendCommand("LOGIN_FAILURE");
-                        System.out.println("[Server] Authentication failed for user: " + user);
-                    }
-                } else if ("REGISTER_REQUEST".equals(command)) {
-                    // Expect: REGISTER_REQUEST username password
-                    if (user == null || pass == null) {
-                        sendCommand("REGISTER_FAILURE");
-                        System.out.println("[Server] REGISTER_REQUEST missing user/pass");
-                        continue;
-                    }
-                    boolean created = DatabaseManager.registerPlayer(user, pass);
-                    if (created) {
-                        sendCommand("REGISTER_SUCCESS");
-                        System.out.println("[Server] New user registered: " + user);
-                    } else {
-                        sendCommand("REGISTER_FAILURE");
-                        System.out.println("[Server] Registration failed for user: " + user);
-                    }
-                } else {
-                    processCommand(line);
+            while ((line = socketConnection.readLine(this::handleFrame)) != null) {
+                // Replies and broadcasts caused by this command are flushed together.
+                WriteBatch.begin();
+                try {
+                    handleLine(line);
+                } finally {
+                    WriteBatch.end();
                 }
             }
         } catch (IOException e) {
             System.err.println("[Server] Connection error: " + e.getMessage());
-            e.printStackTrace();
         } finally {
             // Ensure cleanup on loop exit
             endServerConnection();
         }
     }
+
+    public void handleLine(String line) {
+        long start = System.nanoTime();
+        // Refresh lastHeartbeat on any incoming message to indicate activity
+        this.lastHeartbeat = System.currentTimeMillis();
+        if (LOG_MESSAGES) System.out.println("[Server] Received from client: " + line);
+
+        // Robust parse: split into at most 3 parts to allow spaces in password
+        String[] data = line.split(" ", 3);
+        String command = data.length > 0 ? data[0].trim() : null;
+        String user = data.length > 1 ? data[1].trim() : null;
+        String pass = data.length > 2 ? data[2].trim() : null;
+
+        if (LOG_MESSAGES) System.out.println("[Server] parsed -> command='" + command + "' user='" + user + "' (len=" + (user==null?0:user.length()) + ") pass='" + pass + "' (len=" + (pass==null?0:pass.length()) + ")");
+
+        try {
+            handleCommand(line, command, user, pass);
+        } finally {
+            ClientManager.getMetrics().recordCommand(command, System.nanoTime() - start);
+        }
+    }
+
+    private void handleCommand(String line, String command, String user, String pass) {
+        if ("LOGIN_REQUEST".equals(command)) {
+            if (user == null || pass == null) {
+                sendCommand("LOGIN_FAILURE");
+                System.out.println("[Server] LOGIN_REQUEST missing user/pass");
+                return;
+            }
+            if (!authPending.compareAndSet(false, true)) {
+                sendCommand("LOGIN_FAILURE BUSY");
+                return;
+            }
+            // Checked on the authentication workers; the answer is sent from there.
+            ClientManager.getAuthenticator().login(getRemoteAddress(), user, pass, outcome -> {
+                authPending.set(false);
+                handleLoginOutcome(user, outcome);
+            });
+        } else if ("REGISTER_REQUEST".equals(command)) {
+            // Expect: REGISTER_REQUEST username password
+            if (user == null || pass == null) {
+                sendCommand("REGISTER_FAILURE");
+                System.out.println("[Server] REGISTER_REQUEST missing user/pass");
+                return;
+            }
+            if (!authPending.compareAndSet(false, true)) {
+                sendCommand("REGISTER_FAILURE BUSY");
+                return;
+            }
+            ClientManager.getAuthenticator().register(getRemoteAddress(), user, pass, outcome -> {
+                authPending.set(false);
+                handleRegisterOutcome(user, outcome);
+            });
+        } else {
+            processCommand(line);
+        }
+    }
+
+    // LOGIN_SUCCESS, LOGIN_FAILURE, or LOGIN_FAILURE BUSY / RATE_LIMITED when the attempt was not checked.
+    private void handleLoginOutcome(String user, Authenticator.Outcome outcome) {
+        switch (outcome) {
+            case SUCCESS -> {
+                this.connectionActive = true;
+                // Refresh heartbeat on successful authentication to avoid premature pruning
+                this.lastHeartbeat = System.currentTimeMillis();
+                this.authenticatedUsername = user;
+                sendCommand("LOGIN_SUCCESS");
+                System.out.println("[Server] User authenticated: " + this.authenticatedUsername);
+                // On ne fait PLUS createPlayerLobbyData() ici !
+            }
+            case FAILURE -> {
+                sendCommand("LOGIN_FAILURE");
+                System.out.println("[Server] Authentication failed for user: " + user);
+            }
+            default -> {
+                sendCommand("LOGIN_FAILURE " + outcome);
+                System.out.println("[Server] Login for " + user + " turned away: " + outcome);
+            }
+        }
+    }
+
+    private void handleRegisterOutcome(String user, Authenticator.Outcome outcome) {
+        switch (outcome) {
+            case SUCCESS -> {
+                sendCommand("REGISTER_SUCCESS");
+                System.out.println("[Server] New user registered: " + user);
+            }
+            case FAILURE -> {
+                sendCommand("REGISTER_FAILURE");
+                System.out.println("[Server] Registration failed for user: " + user);
+            }
+            default -> {
+                sendCommand("REGISTER_FAILURE " + outcome);
+                System.out.println("[Server] Registration for " + user + " turned away: " + outcome);
+            }
+        }
+    }
     
     
     private void processCommand(String message) {
@@ -205,13 +313,179 @@ public class ClientHandler implements Runnable {
             case "SEND_KART_DATA"          -> processKartData(messageData);
             case "SEND_COLLISION"          -> processCollision(messageData);
             case "END_CONNECTION"           -> endClientConnection();
-            case "END_GAME"                -> GameManager.endGame();
+            case "END_GAME"                -> endGame();
             case "RACE_WON"                -> handleRaceWon(); // Appel d'une méthode dédiée
             case "HEARTBEAT"               -> handleHeartbeat();
+            case "REQUEST_BINARY_FRAMES"   -> enableBinaryFrames(messageData);
+            case "REQUEST_ROOM_LIST"       -> sendRoomList();
+            case "JOIN_ROOM"               -> joinRoom(messageData);
+            case "CREATE_ROOM"             -> createRoom();
+            case "REQUEST_LEADERBOARD"     -> sendLeaderboard(messageData);
+            case "REQUEST_RANK"            -> sendRank(messageData);
+        }
+    }
+
+    // RESPOND_ROOM_LIST <count> (<roomId> <players> <racing>)*
+    private void sendRoomList() {
+        List<Room> rooms = RoomManager.getRooms();
+        StringBuilder builder = new StringBuilder("RESPOND_ROOM_LIST ").append(rooms.size());
+        for (Room r : rooms) {
+            builder.append(' ').append(r.getRoomId())
+                    .append(' ').append(r.getPlayerCount())
+                    .append(' ').append(r.getGame().isGameActive());
+        }
+        sendCommand(builder.toString());
+    }
+
+    // REQUEST_LEADERBOARD [DAILY|WEEKLY|ALL_TIME] [count]
+    // RESPOND_LEADERBOARD <period> <count> (<rank> <username> <wins>)*
+    private void sendLeaderboard(String[] data) {
+        LeaderboardPeriod period = (data.length > 1) ? LeaderboardPeriod.fromName(data[1]) : LeaderboardPeriod.ALL_TIME;
+        int count = LEADERBOARD_DEFAULT_SIZE;
+        try {
+            if (data.length > 2) count = Math.max(0, Math.min(Leaderboard.TOP_SIZE, Integer.parseInt(data[2])));
+        }
+        catch (NumberFormatException e) {
+            period = null;
+        }
+        if (period == null) {
+            sendCommand("LEADERBOARD_FAILURE");
+            return;
+        }
+        List<Leaderboard.Standing> standings = LeaderboardManager.getTop(period, count);
+        StringBuilder builder = new StringBuilder("RESPOND_LEADERBOARD ").append(period).append(' ').append(standings.size());
+        for (Leaderboard.Standing standing : standings) {
+            builder.append(' ').append(standing.getRank())
+                    .append(' ').append(standing.getUsername().replaceAll(" ", "_"))
+                    .append(' ').append(standing.getWins());
+        }
+        sendCommand(builder.toString());
+    }
+
+    // REQUEST_RANK [DAILY|WEEKLY|ALL_TIME] [username], by default the logged-in player.
+    // RESPOND_RANK <period> <username> <rank> <wins> <rankedPlayers>, with rank 0 for players without wins.
+    private void sendRank(String[] data) {
+        LeaderboardPeriod period = (data.length > 1) ? LeaderboardPeriod.fromName(data[1]) : LeaderboardPeriod.ALL_TIME;
+        String username = (data.length > 2) ? data[2] : authenticatedUsername;
+        if (period == null || username == null) {
+            sendCommand("RANK_FAILURE");
+            return;
+        }
+        Leaderboard.Standing standing = LeaderboardManager.getStanding(period, username);
+        sendCommand("RESPOND_RANK " + period + " " + username.replaceAll(" ", "_")
+                + " " + (standing == null ? 0 : standing.getRank())
+                + " " + (standing == null ? 0 : standing.getWins())
+                + " " + LeaderboardManager.getPlayerCount(period));
+    }
+
+    // JOIN_ROOM <roomId>: choose the room used by the next REQUEST_PL_LOBBY_DATA.
+    private void joinRoom(String[] data) {
+        try {
+            Room target = RoomManager.getRoom(Integer.parseInt(data[1]));
+            if (target == null || !target.isOpen()) {
+                sendCommand("JOIN_ROOM_FAILURE");
+                return;
+            }
+            moveToRoom(target);
+        }
+        catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid JOIN_ROOM: " + e.getMessage());
+            sendCommand("JOIN_ROOM_FAILURE");
+        }
+    }
+
+    private void createRoom() {
+        Room created = RoomManager.createRoom();
+        if (created == null) {
+            sendCommand("JOIN_ROOM_FAILURE");
+            return;
+        }
+        moveToRoom(created);
+    }
+
+    private void moveToRoom(Room target) {
+        if (room != null && room.getGame().isGameActive()) {
+            // Players cannot switch rooms in the middle of a race.
+            RoomManager.removeRoomIfEmpty(target);
+            sendCommand("JOIN_ROOM_FAILURE");
+            return;
+        }
+        leaveRoom();
+        if (!RoomManager.joinRoom(target, this)) {
+            // Emptied and removed since the client picked it.
+            sendCommand("JOIN_ROOM_FAILURE");
+            return;
+        }
+        room = target;
+        sendCommand("JOIN_ROOM_SUCCESS " + target.getRoomId());
+    }
+
+    // Remove the player from their room, depending on the stage of the game they're in.
+    private void leaveRoom() {
+        Room current = room;
+        if (current == null) return;
+        room = null;
+        // Only tell the others if this player was actually racing or waiting there; after a race the
+        // old player number may already belong to someone else.
+        if (current.getGame().removePlayer(this)) {
+            current.getGame().sendPlayerDisconnectedToAllPlayers(this);
+        }
+        else if (current.getLobby().removePlayer(this)) {
+            current.getLobby().sendPlayerDisconnectedToAllPlayers(this);
+        }
+        playerNumber = 0;
+        RoomManager.leaveRoom(current, this);
+    }
+
+    // Room the client would join, for reporting; joining happens in createPlayerLobbyData.
+    private Room roomOrOpenRoom() {
+        Room current = room;
+        return (current != null) ? current : RoomManager.findOpenRoom();
+    }
+
+    private void endGame() {
+        Room current = room;
+        if (current != null) current.getGame().endGame();
+    }
+
+    // REQUEST_BINARY_FRAMES <version>: switch in-race kart traffic to binary frames.
+    private void enableBinaryFrames(String[] data) {
+        try {
+            int version = Integer.parseInt(data[1]);
+            if (version != KartFrameCodec.PROTOCOL_VERSION) {
+                System.out.println("[Server] Client requested unsupported frame version " + version + ", staying on text");
+                return;
+            }
+            binaryFramesEnabled = true;
+            sendCommand("BINARY_FRAMES_ENABLED " + KartFrameCodec.PROTOCOL_VERSION);
+        }
+        catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid REQUEST_BINARY_FRAMES: " + e.getMessage());
+        }
+    }
+
+    // Binary equivalent of SEND_KART_DATA.
+    public void handleFrame(byte[] payload) {
+        long start = System.nanoTime();
+        this.lastHeartbeat = System.currentTimeMillis();
+        Room current = room;
+        try {
+            if (current == null) return;
+            int sequence = KartFrameCodec.readSequence(payload);
+            GameManager game = current.getGame();
+            KartFrameCodec.decode(payload, (kartNumber, rotation, speed, positionX, positionY) ->
+                    game.updateKartState(this, kartNumber, rotation, speed, positionX, positionY, sequence));
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Invalid kart frame from player " + playerNumber + ": " + e.getMessage());
+        }
+        finally {
+            ClientManager.getMetrics().recordCommand(KART_FRAME_COMMAND, System.nanoTime() - start);
         }
     }
 
     private void processCollision(String[] data) {
+        if (room == null) return;
         try {
             // Client sends: SEND_COLLISION <kart1> <kart2> <timestamp> <origSpeed1> <origSpeed2>
             int kart1 = Integer.parseInt(data[1]);
@@ -221,7 +495,7 @@ public class ClientHandler implements Runnable {
             float orig2 = Float.parseFloat(data[5]);
 
             // Deduplicate similar collision reports arriving within a short window
-            if (!GameManager.shouldBroadcastCollision(kart1, kart2, timestamp)) {
+            if (!room.getGame().shouldBroadcastCollision(kart1, kart2, timestamp)) {
                 System.out.println("[Server] Ignoring duplicate collision: " + kart1 + " vs " + kart2 + " at " + timestamp);
                 return;
             }
@@ -246,34 +520,18 @@ public class ClientHandler implements Runnable {
     
     private void handleRaceWon() {
         // Notify other players about the winner
-        GameManager.sendRaceWinnerToAllPlayers(this);
-        // Persist the win in the database if user authenticated
-        if (this.authenticatedUsername != null) {
-            DatabaseManager.recordWin(this.authenticatedUsername);
-            // Try to record by username first
-            DatabaseManager.recordRace(this.authenticatedUsername);
-            int count = DatabaseManager.countRacesForPlayer(this.authenticatedUsername);
-            if (count > 0) {
-                System.out.println("Victoire SQL : " + this.authenticatedUsername + " (races recorded=" + count + ")");
-            } else {
-                // Fallback: try recording by numeric playerNumber if username lookup failed
-                System.err.println("[Server] recordRace by username returned 0 rows; falling back to playerNumber=" + this.playerNumber);
-                DatabaseManager.recordRace(this.playerNumber);
-                int count2 = DatabaseManager.countRacesForPlayer(this.authenticatedUsername);
-                System.out.println("Victoire SQL fallback : " + this.authenticatedUsername + " (races recorded now=" + count2 + ")");
-            }
-        } else {
-            // If no authenticated username, try to record by playerNumber (best-effort)
-            System.err.println("[Server] No authenticated username for winner, attempting to record race by playerNumber=" + this.playerNumber);
-            DatabaseManager.recordRace(this.playerNumber);
+        if (room != null) room.getGame().sendRaceWinnerToAllPlayers(this);
+        // Saved in the background, so this thread never waits on the database.
+        // Without an authenticated username the race is recorded by playerNumber (best-effort).
+        if (this.authenticatedUsername == null) {
+            System.err.println("[Server] No authenticated username for winner, recording race by playerNumber=" + this.playerNumber);
         }
+        ClientManager.getResultWriter().submit(new RaceResult(this.authenticatedUsername, this.playerNumber));
     }
 
     private void closeConnection() {
-        try {
-            connectionActive = false;
-            if (server != null) server.close();
-        } catch (IOException e) { e.printStackTrace(); }
+        connectionActive = false;
+        if (connection != null) connection.close();
     }
 
     private boolean clientCommandReceived() {
@@ -285,22 +543,38 @@ public class ClientHandler implements Runnable {
         sendCommand("RESPOND_CONN_CHECK");
     }
 
+    // Player count and stage describe the room this client would join.
     private void getPlayerSize() {
-        int playersJoined = LobbyManager.getPlayersInLobby().size();
-        sendCommand("RESPOND_PLAYER_COUNT " + LobbyManager.getPlayersInLobby().size());
+        Room target = roomOrOpenRoom();
+        int playersJoined = (target == null) ? 0 : target.getLobby().getPlayerCount();
+        sendCommand("RESPOND_PLAYER_COUNT " + playersJoined);
     }
 
     private void getServerStage() {
-        boolean isGameActive = GameManager.isGameActive();
-        sendCommand("RESPOND_SERVER_STAGE " + GameManager.isGameActive());
+        Room target = roomOrOpenRoom();
+        // Without a room to join, report the server as busy.
+        boolean isGameActive = (target == null) || target.getGame().isGameActive();
+        sendCommand("RESPOND_SERVER_STAGE " + isGameActive);
     }
 
     private void createPlayerLobbyData() {
+        // Clients that never sent JOIN_ROOM are placed in the first open room.
+        if (room == null) room = RoomManager.joinOpenRoom(this);
+        if (room == null) {
+            System.err.println("[Server] No room available, rejecting lobby request");
+            sendCommand("RESPOND_PL_LOBBY_DATA_FAILURE");
+            return;
+        }
+        LobbyManager lobby = room.getLobby();
         // Collect player information to then send back to the player.
-        playerNumber = LobbyManager.addPlayer(this);
+        playerNumber = lobby.addPlayer(this);
         // If no valid player number was available, terminate the connection gracefully.
         if (playerNumber <= 0) {
             System.err.println("[Server] Failed to assign player number, rejecting lobby request");
+            Room rejected = room;
+            room = null;
+            playerNumber = 0;
+            RoomManager.leaveRoom(rejected, this);
             sendCommand("RESPOND_PL_LOBBY_DATA_FAILURE");
             return;
         }
@@ -310,29 +584,31 @@ public class ClientHandler implements Runnable {
         // notifying other players. This avoids race conditions where other
         // clients receive an OP_ADD before the server has stored the new
         // player's kart choice and ready state.
-        int kartChoice = LobbyManager.setKartChoice(playerNumber);
-        LobbyManager.setReadyState(playerNumber, false);
-        int mapChoice = LobbyManager.getChosenMap();
+        int kartChoice = lobby.setKartChoice(playerNumber);
+        lobby.setReadyState(playerNumber, false);
+        int mapChoice = lobby.getChosenMap();
 
-        // Now notify other connected clients about the new player.
-        System.out.println("[Server] createPlayerLobbyData: player=" + playerNumber + " kartChoice=" + kartChoice + " mapChoice=" + mapChoice);
-        ClientManager.sendNewPlayerToPlayers(this);
-        ClientManager.sendKartChoiceToPlayers(this);
-        ClientManager.sendReadyStateToPlayers(this);
-        ClientManager.sendMapChoiceToPlayers(this);
+        // Now notify the other players in the room about the new player.
+        System.out.println("[Server] createPlayerLobbyData: room=" + room.getRoomId() + " player=" + playerNumber + " kartChoice=" + kartChoice + " mapChoice=" + mapChoice);
+        lobby.sendNewPlayerToPlayers(this);
+        lobby.sendKartChoiceToPlayers(this);
+        lobby.sendReadyStateToPlayers(this);
+        lobby.sendMapChoiceToPlayers(this);
 
         retrieveAllConnectedPlayers();
         retrieveAllKartChoices();
         retrieveAllReadyStates();
         // Include authenticated username and wins if available
         String username = (authenticatedUsername == null) ? "" : authenticatedUsername.replaceAll(" ", "_");
-        int wins = (authenticatedUsername == null) ? 0 : DatabaseManager.getPlayerWins(authenticatedUsername);
+        int wins = (authenticatedUsername == null) ? 0 : ClientManager.getPlayerStore().getPlayerWins(authenticatedUsername);
         sendCommand("RESPOND_PL_LOBBY_DATA " + playerNumber + " " + kartChoice + " " + mapChoice + " " + username + " " + wins);
     }
 
     private void setPlayerReady(boolean state) {
-        LobbyManager.setReadyState(playerNumber, state);
-        ClientManager.sendReadyStateToPlayers(this);
+        Room current = room;
+        if (current == null) return;
+        current.getLobby().setReadyState(playerNumber, state);
+        current.getLobby().sendReadyStateToPlayers(this);
     }
 
     private void endClientConnectionInvalid() {
@@ -346,26 +622,22 @@ public class ClientHandler implements Runnable {
     }
 
     public void endServerConnection() {
+        // Reached from the read loop, the prune thread and the NIO close path; only clean up once.
+        if (!connectionEnded.compareAndSet(false, true)) return;
         connectionActive = false;
 
-        // Remove the player depending on the stage of the game they're in.
-        if (GameManager.isGameActive()) {
-            GameManager.removePlayer(this);
-            GameManager.sendPlayerDisconnectedToAllPlayers(this);
-        }
-        else {
-            LobbyManager.removePlayer(this);
-            LobbyManager.sendPlayerDisconnectedToAllPlayers(this);
-        }
+        leaveRoom();
 
         ClientManager.closeConnection(this);
+        closeConnection();
     }
 
     private void updateOwnKartChoice(String[] data) {
         try {
             int chosenKart = Integer.parseInt(data[1]);
-            LobbyManager.updateKartChoice(playerNumber, chosenKart);
-            ClientManager.sendKartChoiceToPlayers(this);
+            if (room == null) return;
+            room.getLobby().updateKartChoice(playerNumber, chosenKart);
+            room.getLobby().sendKartChoiceToPlayers(this);
         }
         catch (NumberFormatException e) {
             System.err.println("Type conversion error when updating own kart choice: " + e.getMessage());
@@ -375,7 +647,8 @@ public class ClientHandler implements Runnable {
     private void sendKartChoice(String[] data) {
         try {
             int opponentNumber = Integer.parseInt(data[1]);
-            int kartChoiceRequest = LobbyManager.getKartChoice(opponentNumber);
+            if (room == null) return;
+            int kartChoiceRequest = room.getLobby().getKartChoice(opponentNumber);
             updateOpponentKartChoice(opponentNumber, kartChoiceRequest);
         }
         catch (NumberFormatException e) {
@@ -384,8 +657,9 @@ public class ClientHandler implements Runnable {
     }
 
     private void updateChosenMap(String[] data) {
-        LobbyManager.updateMapChoice(Integer.parseInt(data[1]));
-        ClientManager.sendMapChoiceToPlayers(this);
+        if (room == null) return;
+        room.getLobby().updateMapChoice(Integer.parseInt(data[1]));
+        room.getLobby().sendMapChoiceToPlayers(this);
     }
 
     private void processKartData(String[] data) {
@@ -395,8 +669,12 @@ public class ClientHandler implements Runnable {
             float speed = Float.parseFloat(data[3]);
             float positionX = Float.parseFloat(data[4]);
             float positionY = Float.parseFloat(data[5]);
+            // Clients that predict their kart append the input sequence number.
+            int sequence = data.length > 6 ? Integer.parseInt(data[6]) : -1;
 
-            ClientManager.sendKartToAllPlayers(this, kartNumber, rotation, speed, positionX, positionY);
+            // Picked up by the room's tick loop rather than relayed immediately.
+            if (room == null) return;
+            room.getGame().updateKartState(this, kartNumber, rotation, speed, positionX, positionY, sequence);
         }
         catch (NumberFormatException e) {
             System.err.println("Type conversion error when processing kart data: " + e.getMessage());
@@ -419,25 +697,17 @@ public class ClientHandler implements Runnable {
             case "REQUEST_KART_CHOICE"    -> sendKartChoice(messageData);
             case "UPDATE_MAP_CHOICE"     -> updateChosenMap(messageData);
             case "SEND_KART_DATA"        -> processKartData(messageData);
-            case "END_GAME"              -> GameManager.endGame();
+            case "END_GAME"              -> endGame();
             case "RACE_WON"                -> handleRaceWon();
             default -> System.err.println("Commande inconnue: " + command);
         }
     }
     
     
-    private synchronized void sendCommand(String command) {
-        if (outputStream != null) {
-            outputStream.println(command);
-        }
-    }
-
-    private String listenForCommand() {
-        try {
-            return inputStream.readLine(); // Très important : readLine() et non readUTF()
-        } catch (IOException e) {
-            endServerConnection();
-            return null;
+    private void sendCommand(String command) {
+        // Queued on the connection, so this never waits on the client's socket.
+        if (connection != null) {
+            connection.sendLine(command);
         }
     }
 }
\ No newline at end of file
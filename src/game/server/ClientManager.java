@@ -1,29 +1,61 @@
 package game.server;
 
+import game.common.WriteStats;
+
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The {@code ClientManager} utility class provides management
  * of connections to clients, which are delegated to respective threads.
- * This class also handles inter-client communication for sending data to players.
+ * Communication between players is handled by the lobby and game of their {@code Room}.
  */
 public class ClientManager {
 
     // Constants.
     private static final int SERVER_PORT = 5000;
+    // "nio" multiplexes every client over a few selector threads; "thread" keeps one platform
+    // thread per client and "virtual" one virtual thread per client (Java 21+).
+    private static final String IO_MODE = System.getProperty("game.server.io", "nio");
+    // "mysql" keeps player accounts in the database; "memory" is a stand-in for local runs and load tests.
+    private static final String DB_MODE = System.getProperty("game.server.db", "mysql");
 
     // Server properties.
     private static ServerSocket serverSocket;
     private static final List<ClientHandler> connectedClients = new ArrayList<>();
+    // Guards connectedClients; a virtual thread waiting on it parks instead of holding its carrier.
+    private static final ReentrantLock clientsLock = new ReentrantLock();
+    private static ExecutorService handlerExecutor;
+    private static final WriteStats writeStats = new WriteStats("[Server]");
+    private static final ServerMetrics metrics = new ServerMetrics(writeStats);
+    // Only calls that miss the profile cache reach the store and are timed.
+    private static final PlayerStore playerStore = new CachingPlayerStore(new TimedPlayerStore(createPlayerStore(), metrics));
+    private static final RaceResultWriter resultWriter = new RaceResultWriter(playerStore);
+    private static final Authenticator authenticator = new Authenticator(playerStore);
     // Increase prune timeout to 5 minutes to avoid false positives during tests
     private static final long CLIENT_TIMEOUT_MS = 300000; // 5 minutes timeout for heartbeats
 
-    private static synchronized List<ClientHandler> getConnectedClients() {
-        return connectedClients;
+    public static WriteStats getWriteStats() { return writeStats; }
+    public static PlayerStore getPlayerStore() { return playerStore; }
+    public static ServerMetrics getMetrics()    { return metrics; }
+    public static RaceResultWriter getResultWriter() { return resultWriter; }
+    public static Authenticator getAuthenticator()   { return authenticator; }
+
+    // The prune thread iterates over a copy so no lock is held while closing connections.
+    private static List<ClientHandler> getConnectedClients() {
+        clientsLock.lock();
+        try {
+            return new ArrayList<>(connectedClients);
+        } finally {
+            clientsLock.unlock();
+        }
     }
 
     // Start a background thread to prune dead clients based on heartbeat
@@ -34,11 +66,7 @@ public class ClientManager {
                     Thread.sleep(5000);
                 } catch (InterruptedException ignored) {}
                 long now = System.currentTimeMillis();
-                List<ClientHandler> snapshot;
-                synchronized (connectedClients) {
-                    snapshot = new ArrayList<>(connectedClients);
-                }
-                for (ClientHandler ch : snapshot) {
+                for (ClientHandler ch : getConnectedClients()) {
                     try {
                         long last = ch.getLastHeartbeat();
                         if (now - last > CLIENT_TIMEOUT_MS) {
@@ -64,66 +92,39 @@ public class ClientManager {
         throw new IllegalStateException("Tried to instantiate the ClientManager utility class");
     }
 
-    public static void startGameForAllPlayers() {
-        for (ClientHandler handler : GameManager.getPlayersInGame()) {
-            handler.startGame();
-        }
-    }
-
-    public static synchronized void sendKartChoiceToPlayers(ClientHandler originator) {
-        for (ClientHandler handler : getConnectedClients()) {
-            if (originator.equals(handler)) continue; // Don't send to self.
-            int playerNumber = originator.getPlayerNumber();
-            int kartChoice = LobbyManager.getKartChoice(playerNumber);
-            handler.updateOpponentKartChoice(playerNumber, kartChoice);
+    public static void closeConnection(ClientHandler originator) {
+        clientsLock.lock();
+        try {
+            connectedClients.remove(originator);
+        } finally {
+            clientsLock.unlock();
         }
     }
 
-    public static synchronized void sendReadyStateToPlayers(ClientHandler originator) {
-        for (ClientHandler handler : getConnectedClients()) {
-            if (originator.equals(handler)) continue; // Don't send to self.
-            int playerNumber = originator.getPlayerNumber();
-            boolean readyState = LobbyManager.getReadyState(playerNumber);
-            handler.updateOpponentReadyState(playerNumber, readyState);
+    public static void registerClient(ClientHandler client) {
+        clientsLock.lock();
+        try {
+            connectedClients.add(client);
+        } finally {
+            clientsLock.unlock();
         }
     }
 
-    public static synchronized void sendNewPlayerToPlayers(ClientHandler originator) {
-        // Only broadcast new-player notifications if the originator has been assigned a valid player number
-        if (originator == null || originator.getPlayerNumber() <= 0) return;
-        System.out.println("[ClientManager] Broadcasting new player: " + originator.getPlayerNumber() + " to " + getConnectedClients().size() + " clients");
-        for (ClientHandler handler : getConnectedClients()) {
-            if (originator.equals(handler)) continue; // Don't send to self.
-            try {
-                handler.updateConnectedPlayers(originator);
-            } catch (Exception e) {
-                System.err.println("[Server] Failed to notify handler of new player: " + e.getMessage());
-            }
-        }
-    }
+    public static void establishConnection() {
 
-    public static synchronized void sendMapChoiceToPlayers(ClientHandler originator) {
-        for (ClientHandler handler : getConnectedClients()) {
-            if (originator.equals(handler)) continue; // Don't send to self.
-            int chosenMap = LobbyManager.getChosenMap();
-            handler.updateChosenMap(chosenMap);
-        }
-    }
+        writeStats.startReporting();
+        LeaderboardManager.load(playerStore);
+        resultWriter.addListener(LeaderboardManager::recordResults);
+        resultWriter.start(metrics);
+        registerGauges();
 
-    public static void sendKartToAllPlayers(ClientHandler originator, int kartNum, float rot, float speed, float posX, float posY) {
-        for (ClientHandler handler : GameManager.getPlayersInGame()) {
-            if (originator.equals(handler)) continue; // Don't send to self.
-            handler.updateOpponentKart(kartNum, rot, speed, posX, posY);
+        if ("nio".equalsIgnoreCase(IO_MODE)) {
+            establishNioConnection();
+            return;
         }
-    }
-
-    public static synchronized void closeConnection(ClientHandler originator) {
-        connectedClients.remove(originator);
-    }
-
-    public static void establishConnection() {
 
         boolean isServerAlive = setupServer();
+        handlerExecutor = createHandlerExecutor();
 
         // Start pruning dead clients after server is up
         startPruneThread();
@@ -134,6 +135,60 @@ public class ClientManager {
         }
     }
 
+    private static void establishNioConnection() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        NioServer nioServer;
+        try {
+            // Workers absorb blocking database calls, so keep a few more than the selector loops.
+            nioServer = new NioServer(SERVER_PORT, cores, Math.max(4, cores * 2));
+        }
+        catch (IOException e) {
+            System.err.println("Server setup failed: " + e.getMessage());
+            return;
+        }
+
+        metrics.registerGauge("worker_queue_depth", nioServer::getQueuedTasks);
+        startPruneThread();
+        nioServer.acceptConnections();
+    }
+
+    private static void registerGauges() {
+        metrics.registerGauge("connected_clients", () -> getConnectedClients().size());
+        metrics.registerGauge("rooms", () -> RoomManager.getRooms().size());
+        metrics.registerGauge("active_races",
+                () -> RoomManager.getRooms().stream().filter(room -> room.getGame().isGameActive()).count());
+        metrics.registerGauge("outbound_queued_bytes",
+                () -> getConnectedClients().stream().mapToLong(ClientHandler::getQueuedBytes).sum());
+        metrics.registerGauge("outbound_queued_bytes_max",
+                () -> getConnectedClients().stream().mapToLong(ClientHandler::getQueuedBytes).max().orElse(0));
+        playerStore.registerMetrics(metrics);
+        authenticator.registerMetrics(metrics);
+        metrics.startExporting();
+    }
+
+    private static PlayerStore createPlayerStore() {
+        if ("memory".equalsIgnoreCase(DB_MODE)) {
+            System.out.println("[Server] Player accounts are kept in memory and lost on shutdown");
+            return new MemoryPlayerStore();
+        }
+        return new MySqlPlayerStore();
+    }
+
+    // Virtual threads are looked up reflectively so the server still builds and runs on Java 17.
+    private static ExecutorService createHandlerExecutor() {
+        if ("virtual".equalsIgnoreCase(IO_MODE)) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                System.out.println("[Server] Running client handlers on virtual threads");
+                return (ExecutorService) factory.invoke(null);
+            }
+            catch (ReflectiveOperationException e) {
+                System.err.println("[Server] Virtual threads need Java 21 or later, using platform threads");
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
     private static Socket waitForClientConnection() {
         try {
             return serverSocket.accept();
@@ -161,8 +216,8 @@ public class ClientManager {
 
         ClientHandler client = new ClientHandler(clientSocket);
 
-        new Thread(client).start();
+        handlerExecutor.execute(client);
 
-        connectedClients.add(client);
+        registerClient(client);
     }
 }
\ No newline at end of file
@@ -0,0 +1,313 @@
+package game.server;
+
+import game.common.LatencyHistogram;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code ConnectionPool} class keeps a few open JDBC connections to reuse,
+ * so a query costs one round trip instead of a new TCP connection and login.
+ * At most {@code maxSize} connections exist; callers wait up to
+ * {@code maxWaitMs} for a free one and then get an SQLTransientConnectionException.
+ * Each connection caches its prepared statements. A connection that sat idle
+ * for a while is validated before it is handed out, and one idle past the
+ * idle timeout is closed by a background sweep. A connection that reported a
+ * connection-level error (SQLState class 08) while borrowed is closed when it
+ * is returned instead of being reused.
+ */
+public class ConnectionPool {
+
+    // Constants.
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    // Connections used more recently than this are handed out without validation.
+    private static final long VALIDATE_AFTER_IDLE_MS = 5000;
+    private static final long EVICTION_INTERVAL_MS = 30_000;
+    private static final int MAX_CACHED_STATEMENTS = 32;
+
+    // Object properties.
+    private final String url;
+    private final String user;
+    private final String password;
+    private final long maxWaitMs;
+    private final long idleTimeoutMs;
+    private final Semaphore permits;
+    // Most recently returned first, so the busy few stay warm and the rest age out.
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    // Property access methods.
+    public LatencyHistogram getWaitTime()   { return waitTime; }
+    public long getOpened()                 { return opened.sum(); }
+    public long getClosed()                 { return closed.sum(); }
+    public long getTimeouts()               { return timeouts.sum(); }
+    public long getValidationFailures()     { return validationFailures.sum(); }
+    public long getStatementHits()          { return statementHits.sum(); }
+    public long getStatementMisses()        { return statementMisses.sum(); }
+
+    // Constructor.
+    public ConnectionPool(String url, String user, String password, int maxSize, long maxWaitMs, long idleTimeoutMs) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxWaitMs = maxWaitMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.permits = new Semaphore(Math.max(1, maxSize), true);
+
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-Evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Connections open now, idle or in use.
+    public int getOpenCount() {
+        return (int) (opened.sum() - closed.sum());
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Borrow a connection; closing it returns it to the pool.
+    public PooledConnection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out after " + maxWaitMs + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waitTime.record((System.nanoTime() - start) / 1000);
+        }
+
+        try {
+            PooledConnection connection;
+            while ((connection = takeIdle()) != null) {
+                if (isUsable(connection)) return connection;
+                validationFailures.increment();
+                connection.closeQuietly();
+            }
+            Connection physical = DriverManager.getConnection(url, user, password);
+            opened.increment();
+            return new PooledConnection(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        lock.lock();
+        try {
+            return idle.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        if (System.currentTimeMillis() - connection.lastUsed < VALIDATE_AFTER_IDLE_MS) return true;
+        try {
+            return connection.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(PooledConnection connection) {
+        try {
+            if (connection.broken || connection.physical.isClosed()) {
+                connection.closeQuietly();
+                return;
+            }
+            // A caller that failed mid-transaction leaves it for us to roll back.
+            if (!connection.physical.getAutoCommit()) {
+                connection.physical.rollback();
+                connection.physical.setAutoCommit(true);
+            }
+            connection.lastUsed = System.currentTimeMillis();
+            lock.lock();
+            try {
+                idle.addFirst(connection);
+            } finally {
+                lock.unlock();
+            }
+        } catch (SQLException e) {
+            connection.closeQuietly();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Close connections idle for longer than the idle timeout; they sit at the end of the deque.
+    private void evictIdle() {
+        List<PooledConnection> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext()) {
+                PooledConnection connection = oldestFirst.next();
+                if (now - connection.lastUsed < idleTimeoutMs) break;
+                oldestFirst.remove();
+                expired.add(connection);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection connection : expired) connection.closeQuietly();
+    }
+
+    /**
+     * A borrowed connection. Statements from {@link #prepare} are cached with
+     * it and must not be closed by the caller; closing the connection returns
+     * it to the pool. Errors thrown by its statements are checked on the way
+     * out, so a dropped connection is not returned as healthy.
+     */
+    public class PooledConnection implements AutoCloseable {
+
+        private final Connection physical;
+        private final Map<String, PreparedStatement> statements =
+                new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= MAX_CACHED_STATEMENTS) return false;
+                closeStatement(eldest.getValue());
+                return true;
+            }
+        };
+        private long lastUsed = System.currentTimeMillis();
+        private boolean broken = false;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            return prepare(sql, Statement.NO_GENERATED_KEYS);
+        }
+
+        public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            String key = autoGeneratedKeys + ":" + sql;
+            PreparedStatement statement = statements.get(key);
+            if (statement != null && !statement.isClosed()) {
+                statementHits.increment();
+                statement.clearParameters();
+                return statement;
+            }
+            statementMisses.increment();
+            try {
+                statement = watch(physical.prepareStatement(sql, autoGeneratedKeys));
+            } catch (SQLException e) {
+                throw markBroken(e);
+            }
+            statements.put(key, statement);
+            return statement;
+        }
+
+        public void setAutoCommit(boolean autoCommit) throws SQLException {
+            try {
+                physical.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                throw markBroken(e);
+            }
+        }
+
+        public void commit() throws SQLException {
+            try {
+                physical.commit();
+            } catch (SQLException e) {
+                throw markBroken(e);
+            }
+        }
+
+        public void rollback() throws SQLException {
+            try {
+                physical.rollback();
+            } catch (SQLException e) {
+                throw markBroken(e);
+            }
+        }
+
+        // Connection-level errors (SQLState class 08) mean the connection should not be reused.
+        public SQLException markBroken(SQLException e) {
+            for (SQLException error = e; error != null; error = error.getNextException()) {
+                if (error.getSQLState() != null && error.getSQLState().startsWith("08")) {
+                    broken = true;
+                    break;
+                }
+            }
+            return e;
+        }
+
+        // Pass every call to the statement through, checking any SQLException it throws.
+        private PreparedStatement watch(PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                        try {
+                            return method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            if (e.getCause() instanceof SQLException error) markBroken(error);
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        @Override
+        public void close() {
+            giveBack(this);
+        }
+
+        private void closeQuietly() {
+            for (PreparedStatement statement : statements.values()) closeStatement(statement);
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {}
+            closed.increment();
+        }
+
+        private void closeStatement(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {}
+        }
+    }
+}
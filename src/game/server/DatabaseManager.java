@@ -1,12 +1,26 @@
 package game.server;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class DatabaseManager {
     // Configuration MySQL (à adapter selon tes réglages)
     private static final String URL = "jdbc:mysql://localhost:3306/javakart_db?useSSL=false&serverTimezone=UTC";
     private static final String USER = "root";
     private static final String PASS = "root"; // Ton mot de passe MySQL
+    // Pool sizing, e.g. -Dgame.server.db.poolSize=16 -Dgame.server.db.maxWaitMs=500
+    private static final int POOL_SIZE = Integer.getInteger("game.server.db.poolSize", 8);
+    private static final long MAX_WAIT_MS = Long.getLong("game.server.db.maxWaitMs", 2000);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("game.server.db.idleTimeoutMs", 300_000);
+    // Extra lookups and logging to explain failed logins, with -Dgame.server.db.debug=true
+    private static final boolean DEBUG = Boolean.getBoolean("game.server.db.debug");
+
+    private static final ConnectionPool pool;
 
     static {
         try {
@@ -16,51 +30,61 @@ public class DatabaseManager {
         } catch (ClassNotFoundException e) {
             System.err.println("[DB] MySQL JDBC driver not found on classpath: " + e.getMessage());
         }
+        pool = new ConnectionPool(URL, USER, PASS, POOL_SIZE, MAX_WAIT_MS, IDLE_TIMEOUT_MS);
+    }
+
+    public static ConnectionPool getPool() {
+        return pool;
     }
 
     // Méthode pour vérifier le login
-    public static boolean authenticate(String username, String password) {
+    public static boolean authenticate(String username, String password) throws SQLException {
+        return login(username, password) != null;
+    }
+
+    // Check the login and read the player's profile with the same query; null if it does not match.
+    // Throws when the database cannot be reached, so an outage is not mistaken for a wrong password.
+    public static PlayerProfile login(String username, String password) throws SQLException {
         username = username == null ? null : username.trim();
         password = password == null ? null : password.trim();
-        String sql = "SELECT * FROM players WHERE username = ? AND password = ?";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS);
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+        String sql = "SELECT id, total_wins FROM players WHERE username = ? AND password = ?";
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setString(1, username);
             stmt.setString(2, password);
-            ResultSet rs = stmt.executeQuery();
 
-            boolean found = rs.next();
+            PlayerProfile profile = null;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) profile = new PlayerProfile(rs.getInt(1), username, rs.getInt(2));
+            }
+            boolean found = profile != null;
             System.out.println("[DB] authenticate(" + username + ") => " + found);
 
-            if (!found) {
+            if (!found && DEBUG) {
                 // Extra diagnostic: check if username exists at all and log stored password length
-                try (PreparedStatement checkUser = conn.prepareStatement("SELECT password FROM players WHERE username = ?")) {
+                try {
+                    PreparedStatement checkUser = conn.prepare("SELECT password FROM players WHERE username = ?");
                     checkUser.setString(1, username);
-                    ResultSet r2 = checkUser.executeQuery();
-                    if (r2.next()) {
-                        String stored = r2.getString(1);
-                        System.out.println("[DB] authenticate: username exists but password mismatch. stored_password_len=" + (stored==null?0:stored.length()));
-                    } else {
-                        System.out.println("[DB] authenticate: username does not exist in players table.");
+                    try (ResultSet r2 = checkUser.executeQuery()) {
+                        if (r2.next()) {
+                            String stored = r2.getString(1);
+                            System.out.println("[DB] authenticate: username exists but password mismatch. stored_password_len=" + (stored==null?0:stored.length()));
+                        } else {
+                            System.out.println("[DB] authenticate: username does not exist in players table.");
+                        }
                     }
                 } catch (SQLException e) {
                     System.err.println("[DB] authenticate additional check failed: " + e.getMessage());
                 }
             }
 
-            return found; // Retourne true si une ligne correspond
+            return profile; // Retourne le profil si une ligne correspond
         } catch (SQLException e) {
             System.err.println("Erreur SQL Authentication: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            throw e;
         }
     }
     
-    private static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASS);
-    }
-    
  // Dans DatabaseManager.java (Serveur)
     public static boolean registerPlayer(String username, String password) {
         username = username == null ? null : username.trim();
@@ -75,23 +99,22 @@ public class DatabaseManager {
         String checkSql = "SELECT COUNT(*) FROM players WHERE username = ?";
         String insertSql = "INSERT INTO players (username, password, total_wins) VALUES (?, ?, 0)";
 
-        try (Connection conn = getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement checkStmt = conn.prepare(checkSql);
             checkStmt.setString(1, username);
-            ResultSet rs = checkStmt.executeQuery();
-            if (rs.next() && rs.getInt(1) > 0) {
-                System.out.println("[DB] registerPlayer(" + username + ") => already exists");
-                return false; // user exists
+            try (ResultSet rs = checkStmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    System.out.println("[DB] registerPlayer(" + username + ") => already exists");
+                    return false; // user exists
+                }
             }
 
-            try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                insertStmt.setString(1, username);
-                insertStmt.setString(2, password);
-                int rows = insertStmt.executeUpdate();
-                System.out.println("[DB] registerPlayer(" + username + ") => rows=" + rows);
-                return rows > 0;
-            }
+            PreparedStatement insertStmt = conn.prepare(insertSql);
+            insertStmt.setString(1, username);
+            insertStmt.setString(2, password);
+            int rows = insertStmt.executeUpdate();
+            System.out.println("[DB] registerPlayer(" + username + ") => rows=" + rows);
+            return rows > 0;
 
         } catch (SQLException e) {
             // More detailed logging
@@ -104,9 +127,8 @@ public class DatabaseManager {
     // Méthode pour enregistrer une victoire
     public static void recordWin(String username) {
         String sql = "UPDATE players SET total_wins = total_wins + 1 WHERE username = ?";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS);
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setString(1, username);
             int updated = stmt.executeUpdate();
             System.out.println("[DB] recordWin(" + username + ") => updated=" + updated);
@@ -121,14 +143,15 @@ public class DatabaseManager {
     public static int getPlayerWins(String username) {
         username = username == null ? null : username.trim();
         String sql = "SELECT total_wins FROM players WHERE username = ?";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS);
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                int wins = rs.getInt(1);
-                System.out.println("[DB] getPlayerWins(" + username + ") => " + wins);
-                return wins;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    int wins = rs.getInt(1);
+                    if (DEBUG) System.out.println("[DB] getPlayerWins(" + username + ") => " + wins);
+                    return wins;
+                }
             }
             System.out.println("[DB] getPlayerWins(" + username + ") => not found");
             return 0;
@@ -139,11 +162,29 @@ public class DatabaseManager {
         }
     }
 
+    // Get the player's id and total wins, or null if not found
+    public static PlayerProfile getPlayerProfile(String username) {
+        username = username == null ? null : username.trim();
+        String sql = "SELECT id, total_wins FROM players WHERE username = ?";
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) return new PlayerProfile(rs.getInt(1), username, rs.getInt(2));
+            }
+            return null;
+        } catch (SQLException e) {
+            System.err.println("[DB] getPlayerProfile failed: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     // New: record a completed race entry into the races table. winnerNumber is player's assigned numeric id.
     public static void recordRace(int winnerNumber) {
         String sql = "INSERT INTO races (winner_id) VALUES (?)"; // race_date defaults to CURRENT_TIMESTAMP
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql, Statement.RETURN_GENERATED_KEYS);
             stmt.setInt(1, winnerNumber);
             int rows = stmt.executeUpdate();
             System.out.println("[DB] recordRace(winnerNumber=" + winnerNumber + ") => rows=" + rows);
@@ -166,32 +207,150 @@ public class DatabaseManager {
             return;
         }
         String lookupSql = "SELECT id FROM players WHERE username = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement lookupStmt = conn.prepareStatement(lookupSql)) {
+        int id = -1;
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement lookupStmt = conn.prepare(lookupSql);
             lookupStmt.setString(1, username);
-            ResultSet rs = lookupStmt.executeQuery();
-            if (rs.next()) {
-                int id = rs.getInt(1);
-                System.out.println("[DB] recordRace: found id=" + id + " for username='" + username + "'");
-                recordRace(id);
-            } else {
-                System.err.println("[DB] recordRace: username not found: " + username);
+            try (ResultSet rs = lookupStmt.executeQuery()) {
+                if (rs.next()) id = rs.getInt(1);
             }
         } catch (SQLException e) {
             System.err.println("[DB] recordRace(lookup) failed: " + e.getMessage());
             e.printStackTrace();
+            return;
+        }
+        // Insert after returning the connection, so this call never holds two of them.
+        if (id > 0) {
+            System.out.println("[DB] recordRace: found id=" + id + " for username='" + username + "'");
+            recordRace(id);
+        } else {
+            System.err.println("[DB] recordRace: username not found: " + username);
         }
     }
 
+    // Record a batch of race results in one transaction: one update per winner, the daily and weekly
+    // summary rows, then one races row per result.
+    // Throws on failure after rolling back, so the caller can retry the whole batch.
+    public static void recordRaceResults(List<RaceResult> results) throws SQLException {
+        String winsSql = "UPDATE players SET total_wins = total_wins + ? WHERE username = ?";
+        String raceByNameSql = "INSERT INTO races (winner_id) SELECT id FROM players WHERE username = ?";
+        String raceByNumberSql = "INSERT INTO races (winner_id) VALUES (?)";
+        String dailySql = "INSERT INTO player_daily_wins (day, player_id, wins) SELECT ?, id, ? FROM players WHERE username = ?"
+                + " ON DUPLICATE KEY UPDATE wins = wins + VALUES(wins)";
+        String weeklySql = "INSERT INTO player_weekly_wins (week_start, player_id, wins) SELECT ?, id, ? FROM players WHERE username = ?"
+                + " ON DUPLICATE KEY UPDATE wins = wins + VALUES(wins)";
+
+        Map<String, Integer> winsByName = new LinkedHashMap<>();
+        Map<LocalDate, Map<String, Integer>> winsByDay = new LinkedHashMap<>();
+        Map<LocalDate, Map<String, Integer>> winsByWeek = new LinkedHashMap<>();
+        List<RaceResult> named = new ArrayList<>();
+        List<Integer> byNumber = new ArrayList<>();
+        for (RaceResult result : results) {
+            if (result.getUsername() == null || result.getUsername().isEmpty()) {
+                byNumber.add(result.getPlayerNumber());
+                continue;
+            }
+            winsByName.merge(result.getUsername(), 1, Integer::sum);
+            LocalDate day = LeaderboardPeriod.DAILY.startOf(result.getFinishedAt());
+            winsByDay.computeIfAbsent(day, key -> new LinkedHashMap<>()).merge(result.getUsername(), 1, Integer::sum);
+            winsByWeek.computeIfAbsent(LeaderboardPeriod.WEEKLY.startOf(day), key -> new LinkedHashMap<>())
+                    .merge(result.getUsername(), 1, Integer::sum);
+            named.add(result);
+        }
+
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement winsStmt = conn.prepare(winsSql);
+                PreparedStatement raceByNameStmt = conn.prepare(raceByNameSql);
+                PreparedStatement raceByNumberStmt = conn.prepare(raceByNumberSql);
+                for (Map.Entry<String, Integer> wins : winsByName.entrySet()) {
+                    winsStmt.setInt(1, wins.getValue());
+                    winsStmt.setString(2, wins.getKey());
+                    winsStmt.addBatch();
+                }
+                if (!winsByName.isEmpty()) winsStmt.executeBatch();
+                addPeriodWins(conn.prepare(dailySql), winsByDay);
+                addPeriodWins(conn.prepare(weeklySql), winsByWeek);
+
+                for (RaceResult result : named) {
+                    raceByNameStmt.setString(1, result.getUsername());
+                    raceByNameStmt.addBatch();
+                }
+                int[] inserted = named.isEmpty() ? new int[0] : raceByNameStmt.executeBatch();
+                // As before, a winner whose username is not found is recorded by player number instead.
+                for (int i = 0; i < inserted.length; i++) {
+                    if (inserted[i] == 0) {
+                        System.err.println("[DB] recordRaceResults: username not found: " + named.get(i).getUsername()
+                                + ", recording by playerNumber=" + named.get(i).getPlayerNumber());
+                        byNumber.add(named.get(i).getPlayerNumber());
+                    }
+                }
+                for (int playerNumber : byNumber) {
+                    raceByNumberStmt.setInt(1, playerNumber);
+                    raceByNumberStmt.addBatch();
+                }
+                if (!byNumber.isEmpty()) raceByNumberStmt.executeBatch();
+
+                conn.commit();
+                conn.setAutoCommit(true);
+                System.out.println("[DB] recordRaceResults: " + results.size() + " results, "
+                        + winsByName.size() + " winners updated");
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // One summary row upsert per player and period: (start, wins, username).
+    private static void addPeriodWins(PreparedStatement stmt, Map<LocalDate, Map<String, Integer>> winsByPeriod) throws SQLException {
+        if (winsByPeriod.isEmpty()) return;
+        for (Map.Entry<LocalDate, Map<String, Integer>> period : winsByPeriod.entrySet()) {
+            for (Map.Entry<String, Integer> wins : period.getValue().entrySet()) {
+                stmt.setDate(1, Date.valueOf(period.getKey()));
+                stmt.setInt(2, wins.getValue());
+                stmt.setString(3, wins.getKey());
+                stmt.addBatch();
+            }
+        }
+        stmt.executeBatch();
+    }
+
+    // Wins per username for a leaderboard window, from the summary tables (never the races table).
+    public static Map<String, Integer> loadWins(LeaderboardPeriod period, LocalDate start) throws SQLException {
+        String sql = switch (period) {
+            case DAILY    -> "SELECT p.username, w.wins FROM player_daily_wins w JOIN players p ON p.id = w.player_id"
+                    + " WHERE w.day = ? AND w.wins > 0";
+            case WEEKLY   -> "SELECT p.username, w.wins FROM player_weekly_wins w JOIN players p ON p.id = w.player_id"
+                    + " WHERE w.week_start = ? AND w.wins > 0";
+            case ALL_TIME -> "SELECT username, total_wins FROM players WHERE total_wins > 0";
+        };
+        Map<String, Integer> wins = new HashMap<>();
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
+            if (period != LeaderboardPeriod.ALL_TIME) stmt.setDate(1, Date.valueOf(start));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) wins.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return wins;
+    }
+
     // Get player id by username, or -1 if found
     public static int getPlayerId(String username) {
         if (username == null || username.isEmpty()) return -1;
         String sql = "SELECT id FROM players WHERE username = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getInt(1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
             return -1;
         } catch (SQLException e) {
             System.err.println("[DB] getPlayerId failed: " + e.getMessage());
@@ -205,11 +364,12 @@ public class DatabaseManager {
         int id = getPlayerId(username);
         if (id <= 0) return 0;
         String sql = "SELECT COUNT(*) FROM races WHERE winner_id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setInt(1, id);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getInt(1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
             return 0;
         } catch (SQLException e) {
             System.err.println("[DB] countRacesForPlayer failed: " + e.getMessage());
@@ -222,11 +382,12 @@ public class DatabaseManager {
     public static int countRacesForPlayerId(int playerId) {
         if (playerId <= 0) return 0;
         String sql = "SELECT COUNT(*) FROM races WHERE winner_id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepare(sql);
             stmt.setInt(1, playerId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getInt(1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
             return 0;
         } catch (SQLException e) {
             System.err.println("[DB] countRacesForPlayerId failed: " + e.getMessage());
@@ -238,9 +399,8 @@ public class DatabaseManager {
     // Debug helper: dump players table to console
     public static void debugDumpPlayers() {
         String sql = "SELECT id, username, password, total_wins FROM players";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS);
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        try (ConnectionPool.PooledConnection conn = pool.borrow();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
 
             System.out.println("[DB] players table contents:");
             while (rs.next()) {
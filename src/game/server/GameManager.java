@@ -1,42 +1,221 @@
 package game.server;
 
+import game.common.KartFrameCodec;
+import game.common.WriteBatch;
+import game.simulation.Race;
+import game.simulation.Track;
+import game.simulation.TrackLoader;
+
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * The {@code GameManager} utility class controls the collections of information
- * about the game for the server to access and provide to clients that request it.
- * The class handles sending game-related details to other connected players.
+ * The {@code GameManager} class controls the collections of information
+ * about the race in one {@code Room} for the server to access and provide to clients that request it.
+ * The class handles sending game-related details to the other players in the race.
  */
 public class GameManager {
 
     // Constants.
     private static final int RANDOM_MAP = 3;
+    private static final int DEFAULT_TICK_RATE = 30;
+    private static final int MAX_TICK_RATE = 120;
+    // Simulation rate in Hz, configurable with -Dgame.server.tickRate=60.
+    private static final int TICK_RATE = Math.max(1, Math.min(MAX_TICK_RATE,
+            Integer.getInteger("game.server.tickRate", DEFAULT_TICK_RATE)));
+    private static final long TICK_MS = 1000L / TICK_RATE;
+    private static final long COLLISION_DEDUP_MS = 500; // ignore repeats within 500ms
+
+    // Every room's tick loop shares one small scheduler.
+    private static final AtomicInteger tickThreadId = new AtomicInteger();
+    private static final ScheduledExecutorService tickExecutor = Executors.newScheduledThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+        Thread t = new Thread(r, "GameManager-Tick-" + tickThreadId.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
 
     // Game properties.
-    private static List<ClientHandler> playersInGame = new ArrayList<>();
-    private static Map<Integer, Integer> kartChoices = new HashMap<>();
-    private static int map = 0;
-    private static boolean isBadWeather = false;
-    private static boolean gameActive = false;
+    private final Room room;
+    private List<ClientHandler> playersInGame = new ArrayList<>();
+    private Map<Integer, Integer> kartChoices = new HashMap<>();
+    private int map = 0;
+    private boolean isBadWeather = false;
+    private volatile boolean gameActive = false;
+    // Guards the race state, including the kart map updated from handler threads.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Server-side race simulation on the race's track, advanced and broadcast once per tick.
+    // Collisions and laps are still settled by the clients, so the race only holds the karts.
+    private Race<ServerKart> race;
+    private final Map<Integer, ServerKart> karts = new HashMap<>();
+    private ScheduledFuture<?> tickTask;
 
     // Recent collision deduplication: key is "min(k1,k2)-max(k1,k2)", value is timestamp
-    private static final Map<String, Long> recentCollisions = new HashMap<>();
-    private static final long COLLISION_DEDUP_MS = 500; // ignore repeats within 500ms
+    private final Map<String, Long> recentCollisions = new HashMap<>();
 
     // Property access methods.
-    public static boolean isGameActive() { return gameActive; }
-    public static List<ClientHandler> getPlayersInGame() { return playersInGame; }
+    public boolean isGameActive() { return gameActive; }
 
-    // Prevent object creation from the implicit public constructor.
-    private GameManager() {
-        throw new IllegalStateException("Tried to instantiate the GameManager utility class");
+    // Callers iterate and send outside the lock, so hand out a copy.
+    public List<ClientHandler> getPlayersInGame() {
+        lock.lock();
+        try {
+            return new ArrayList<>(playersInGame);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static void removePlayer(ClientHandler o) {
-        playersInGame.remove(o);
+    public int getPlayerCount() {
+        lock.lock();
+        try {
+            return playersInGame.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Constructor.
+    GameManager(Room room) {
+        this.room = room;
     }
 
-    public static synchronized void sendRaceWinnerToAllPlayers(ClientHandler winner) {
+    // False if the player is not in this race, in which case their number may belong to a racer.
+    public boolean removePlayer(ClientHandler o) {
+        lock.lock();
+        try {
+            if (!playersInGame.remove(o)) return false;
+            karts.remove(o.getPlayerNumber());
+            if (race != null) race.removeKart(o.getPlayerNumber());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Store the latest state reported by a client; it is broadcast on the next tick.
+    // Players may only report their own kart, and only while they are in this race.
+    public void updateKartState(ClientHandler player, int kartNumber, float rot, float speed, float posX, float posY, int sequence) {
+        lock.lock();
+        try {
+            if (!gameActive || race == null) return;
+            // Dropped quietly: logging each one would let a client flood the log.
+            if (kartNumber != player.getPlayerNumber() || !playersInGame.contains(player)) return;
+            ServerKart kart = karts.get(kartNumber);
+            if (kart == null) {
+                kart = new ServerKart(kartNumber, race.getTrack());
+                karts.put(kartNumber, kart);
+                race.addKart(kart);
+            }
+            kart.applyReport(rot, speed, posX, posY, System.currentTimeMillis(), sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Both tick-loop helpers are called with the lock held.
+    private void startTickLoop() {
+        stopTickLoop();
+        tickTask = tickExecutor.scheduleAtFixedRate(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        System.out.println("[Game] Room " + room.getRoomId() + " tick loop started at " + TICK_RATE + " Hz");
+    }
+
+    private void stopTickLoop() {
+        if (tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
+    }
+
+    // Advance every kart and send one consolidated snapshot to each player.
+    private void tick() {
+        List<ClientHandler> recipients;
+        List<Runnable> snapshots = new ArrayList<>();
+        List<Runnable> acknowledgements = new ArrayList<>();
+        try {
+            lock.lock();
+            try {
+                if (!gameActive || karts.isEmpty()) return;
+                for (ServerKart kart : karts.values()) kart.advance(TICK_MS);
+                recipients = new ArrayList<>(playersInGame);
+                // Each player's format is read once, so a REQUEST_BINARY_FRAMES mid-tick cannot
+                // pair them with a payload that was never encoded.
+                boolean[] binary = new boolean[recipients.size()];
+                boolean anyBinary = false;
+                boolean anyText = false;
+                for (int i = 0; i < binary.length; i++) {
+                    binary[i] = recipients.get(i).isBinaryFramesEnabled();
+                    anyBinary |= binary[i];
+                    anyText |= !binary[i];
+                }
+                // Only encode the formats that at least one player is using.
+                byte[] frame = anyBinary ? createKartFrame() : null;
+                String snapshot = anyText ? createKartSnapshot() : null;
+                for (int i = 0; i < binary.length; i++) {
+                    ClientHandler handler = recipients.get(i);
+                    if (binary[i]) snapshots.add(() -> handler.sendKartFrame(frame));
+                    else snapshots.add(() -> handler.sendKartSnapshot(snapshot));
+                    ServerKart own = karts.get(handler.getPlayerNumber());
+                    if (own != null && own.takeAcknowledgement()) {
+                        int sequence = own.getReportSequence();
+                        float rotation = own.getReportRotation();
+                        float speed = own.getReportSpeed();
+                        float positionX = own.getReportPositionX();
+                        float positionY = own.getReportPositionY();
+                        acknowledgements.add(() -> handler.acknowledgeKart(sequence, rotation, speed, positionX, positionY));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Flush each player once per tick, after their snapshot is queued.
+            long broadcastStart = System.nanoTime();
+            WriteBatch.begin();
+            try {
+                for (Runnable send : snapshots) send.run();
+                for (Runnable acknowledgement : acknowledgements) acknowledgement.run();
+            } finally {
+                WriteBatch.end();
+            }
+            ClientManager.getMetrics().recordBroadcast("kart_snapshot", recipients.size(), System.nanoTime() - broadcastStart);
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled tick task.
+            System.err.println("[Game] Tick failed: " + e.getMessage());
+        }
+    }
+
+    private byte[] createKartFrame() {
+        KartFrameCodec.Builder builder = new KartFrameCodec.Builder();
+        for (ServerKart kart : karts.values()) {
+            builder.add(kart.getKartNumber(), kart.getRotation(), kart.getSpeed(),
+                    kart.getPositionX(), kart.getPositionY());
+        }
+        return builder.build();
+    }
+
+    // Format: SEND_OP_KART_SNAPSHOT <count> (<kart> <rot> <speed> <x> <y>)*
+    private String createKartSnapshot() {
+        StringBuilder builder = new StringBuilder(32 + karts.size() * 40);
+        builder.append("SEND_OP_KART_SNAPSHOT ").append(karts.size());
+        for (ServerKart kart : karts.values()) {
+            builder.append(' ').append(kart.getKartNumber())
+                    .append(' ').append(kart.getRotation())
+                    .append(' ').append(kart.getSpeed())
+                    .append(' ').append(kart.getPositionX())
+                    .append(' ').append(kart.getPositionY());
+        }
+        return builder.toString();
+    }
+
+    public void sendRaceWinnerToAllPlayers(ClientHandler winner) {
+        long start = System.nanoTime();
+        int recipients = 0;
         int winnerNumber = winner.getPlayerNumber();
         // encode winner name (replace spaces with underscores) to send safely
         String winnerName = winner.getAuthenticatedUsername();
@@ -44,22 +223,24 @@ public class GameManager {
         for (ClientHandler handler : getPlayersInGame()) {
             if (winner.equals(handler)) continue; // Don't send to self.
             handler.raceLost(winnerNumber, encodedName);
+            recipients++;
         }
+        ClientManager.getMetrics().recordBroadcast("race_result", recipients, System.nanoTime() - start);
     }
 
-    private static void sendGameMapToAllPlayers() {
-        for (ClientHandler handler : getPlayersInGame()) {
-            handler.updateChosenMap(map);
+    private void sendGameMapToAllPlayers(List<ClientHandler> players, int gameMap) {
+        for (ClientHandler handler : players) {
+            handler.updateChosenMap(gameMap);
         }
     }
 
-    private static void sendWeatherToAllPlayers() {
-        for (ClientHandler handler : getPlayersInGame()) {
-            handler.updateWeather(isBadWeather);
+    private void sendWeatherToAllPlayers(List<ClientHandler> players, boolean badWeather) {
+        for (ClientHandler handler : players) {
+            handler.updateWeather(badWeather);
         }
     }
 
-    public static synchronized void sendPlayerDisconnectedToAllPlayers(ClientHandler originator) {
+    public void sendPlayerDisconnectedToAllPlayers(ClientHandler originator) {
         for (ClientHandler handler : getPlayersInGame()) {
             if (originator.equals(handler)) continue; // Don't send to self.
             int disconnectedPlayer = originator.getPlayerNumber();
@@ -67,42 +248,102 @@ public class GameManager {
         }
     }
 
-    public static void initiateGame(List<ClientHandler> connectedPlayers, Map<Integer, Integer> playerKartChoices, int chosenMap) {
-        // Collect and store game information.
-        playersInGame = new ArrayList<>(connectedPlayers);
-        kartChoices = playerKartChoices;
-        gameActive = true;
+    // Called by the lobby, under its lock, as it hands its players to the race. From here on
+    // the room is closed to newcomers, before initiateGame has run.
+    public void markActive() {
+        lock.lock();
+        try {
+            gameActive = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void initiateGame(List<ClientHandler> connectedPlayers, Map<Integer, Integer> playerKartChoices, int chosenMap) {
+        List<ClientHandler> players;
+        int gameMap;
+        boolean badWeather;
+        // Assign a random map if requested. Its track is loaded before taking the lock, since the
+        // first race on a map may have to build the collision mask.
+        int raceMap = (chosenMap == RANDOM_MAP) ? new Random().nextInt(3) : chosenMap;
+        Track track;
+        try {
+            track = TrackLoader.load(raceMap);
+        } catch (IllegalStateException e) {
+            // Without the track the server does not simulate karts; the clients still race.
+            System.err.println("[Game] Room " + room.getRoomId() + " has no track for map " + raceMap + ": " + e.getMessage());
+            track = null;
+        }
+        lock.lock();
+        try {
+            // Collect and store game information.
+            playersInGame = new ArrayList<>(connectedPlayers);
+            kartChoices = new HashMap<>(playerKartChoices);
+            karts.clear();
+            race = (track == null) ? null : new Race<>(track);
+            gameActive = true;
+
+            // A 50% change of poor weather.
+            map = raceMap;
+            if (new Random().nextInt(2) == 0) isBadWeather = true;
 
-        // Assign a random map if requested, and a 50% change of poor weather.
-        map = (chosenMap == RANDOM_MAP) ? new Random().nextInt(3) : chosenMap;
-        if (new Random().nextInt(2) == 0) isBadWeather = true;
+            players = new ArrayList<>(playersInGame);
+            gameMap = map;
+            badWeather = isBadWeather;
+        } finally {
+            lock.unlock();
+        }
 
         // Update connected clients with values post-randomisation in case they differ locally.
-        sendGameMapToAllPlayers();
-        sendWeatherToAllPlayers();
-        ClientManager.startGameForAllPlayers();
+        sendGameMapToAllPlayers(players, gameMap);
+        sendWeatherToAllPlayers(players, badWeather);
+        for (ClientHandler handler : players) {
+            handler.startGame();
+        }
+
+        lock.lock();
+        try {
+            // The race may already have ended if every player left while it was starting.
+            if (gameActive) startTickLoop();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static void endGame() {
-        if (gameActive) {
-            playersInGame.clear();
-            kartChoices.clear();
-            map = 0;
-            isBadWeather = false;
-            gameActive = false;
+    public void endGame() {
+        lock.lock();
+        try {
+            if (gameActive) {
+                stopTickLoop();
+                playersInGame.clear();
+                kartChoices.clear();
+                karts.clear();
+                race = null;
+                recentCollisions.clear();
+                map = 0;
+                isBadWeather = false;
+                gameActive = false;
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     // Deduplication helper for collisions
-    public static synchronized boolean shouldBroadcastCollision(int k1, int k2, long timestamp) {
-        int a = Math.min(k1, k2);
-        int b = Math.max(k1, k2);
-        String key = a + "-" + b;
-        Long last = recentCollisions.get(key);
-        if (last != null && Math.abs(timestamp - last) < COLLISION_DEDUP_MS) {
-            return false; // duplicate
-        }
-        recentCollisions.put(key, timestamp);
-        return true;
+    public boolean shouldBroadcastCollision(int k1, int k2, long timestamp) {
+        lock.lock();
+        try {
+            int a = Math.min(k1, k2);
+            int b = Math.max(k1, k2);
+            String key = a + "-" + b;
+            Long last = recentCollisions.get(key);
+            if (last != null && Math.abs(timestamp - last) < COLLISION_DEDUP_MS) {
+                return false; // duplicate
+            }
+            recentCollisions.put(key, timestamp);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 }
\ No newline at end of file
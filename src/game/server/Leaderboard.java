@@ -0,0 +1,196 @@
+package game.server;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code Leaderboard} class ranks players by wins within one window of a
+ * {@link LeaderboardPeriod}. A player's rank is one plus the number of players
+ * with more wins, read from a Fenwick tree over win counts in O(log n); the
+ * best {@code TOP_SIZE} players are kept sorted. Wins only grow within a
+ * window, so a player who drops out of the top list can only get back in by
+ * winning, and the list stays exact without rescanning. When a new window
+ * starts the board is cleared.
+ */
+public class Leaderboard {
+
+    // Constants.
+    public static final int TOP_SIZE = 100;
+    private static final Comparator<Entry> BEST_FIRST =
+            Comparator.comparingInt((Entry entry) -> -entry.wins).thenComparing(entry -> entry.username);
+
+    // Object properties.
+    private final LeaderboardPeriod period;
+    private final Map<String, Integer> wins = new HashMap<>();
+    private final TreeSet<Entry> top = new TreeSet<>(BEST_FIRST);
+    private final ReentrantLock lock = new ReentrantLock();
+    // Fenwick tree of how many players have each win count; index w + 1 holds count w.
+    private long[] playersByWins = new long[64];
+    private LocalDate start;
+
+    // Property access methods.
+    public LeaderboardPeriod getPeriod() { return period; }
+
+    // Constructor.
+    public Leaderboard(LeaderboardPeriod period, LocalDate start) {
+        this.period = period;
+        this.start = start;
+    }
+
+    // Load a player's saved wins for the current window at startup, replacing anything recorded for them.
+    public void load(String username, int playerWins) {
+        lock.lock();
+        try {
+            Integer previous = wins.get(username);
+            if (previous != null) remove(username, previous);
+            if (playerWins > 0) add(username, playerWins);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Add wins won on the given day. Wins from an earlier window are already off this board.
+    public void addWins(String username, int count, LocalDate day) {
+        LocalDate windowStart = period.startOf(day);
+        lock.lock();
+        try {
+            roll(windowStart);
+            if (windowStart.isBefore(start) || count <= 0) return;
+            Integer previous = wins.get(username);
+            if (previous != null) remove(username, previous);
+            add(username, (previous == null ? 0 : previous) + count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The best players, at most count of them and never more than TOP_SIZE.
+    public List<Standing> getTop(int count, LocalDate today) {
+        lock.lock();
+        try {
+            roll(period.startOf(today));
+            List<Standing> standings = new ArrayList<>(Math.min(count, top.size()));
+            for (Entry entry : top) {
+                if (standings.size() >= count) break;
+                standings.add(new Standing(entry.username, entry.wins, rankOf(entry.wins)));
+            }
+            return standings;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Null when the player has no wins in the current window.
+    public Standing getStanding(String username, LocalDate today) {
+        lock.lock();
+        try {
+            roll(period.startOf(today));
+            Integer playerWins = wins.get(username);
+            return playerWins == null ? null : new Standing(username, playerWins, rankOf(playerWins));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Players with at least one win in the current window.
+    public int getPlayerCount(LocalDate today) {
+        lock.lock();
+        try {
+            roll(period.startOf(today));
+            return wins.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll(LocalDate windowStart) {
+        if (!windowStart.isAfter(start)) return;
+        start = windowStart;
+        wins.clear();
+        top.clear();
+        playersByWins = new long[64];
+    }
+
+    private void add(String username, int playerWins) {
+        update(playerWins, 1);
+        wins.put(username, playerWins);
+        Entry entry = new Entry(username, playerWins);
+        if (top.size() < TOP_SIZE) {
+            top.add(entry);
+        } else if (BEST_FIRST.compare(entry, top.last()) < 0) {
+            top.add(entry);
+            top.pollLast();
+        }
+    }
+
+    private void remove(String username, int playerWins) {
+        wins.remove(username);
+        update(playerWins, -1);
+        top.remove(new Entry(username, playerWins));
+    }
+
+    // One plus the number of players with more wins.
+    private int rankOf(int playerWins) {
+        return (int) (wins.size() - countUpTo(playerWins) + 1);
+    }
+
+    private void update(int playerWins, long delta) {
+        if (playerWins + 1 >= playersByWins.length) grow(playerWins + 1);
+        for (int i = playerWins + 1; i < playersByWins.length; i += i & -i) playersByWins[i] += delta;
+    }
+
+    // Players with at most this many wins.
+    private long countUpTo(int playerWins) {
+        long count = 0;
+        for (int i = Math.min(playerWins + 1, playersByWins.length - 1); i > 0; i -= i & -i) count += playersByWins[i];
+        return count;
+    }
+
+    // Rebuild the tree with room for the given index; happens only when the most wins doubles.
+    private void grow(int index) {
+        int length = playersByWins.length;
+        while (length <= index) length *= 2;
+        playersByWins = new long[length];
+        for (int playerWins : wins.values()) update(playerWins, 1);
+    }
+
+    /**
+     * One player's place on a board.
+     */
+    public static class Standing {
+
+        // Object properties.
+        private final String username;
+        private final int wins;
+        private final int rank;
+
+        // Property access methods.
+        public String getUsername()     { return username; }
+        public int getWins()            { return wins; }
+        public int getRank()            { return rank; }
+
+        // Constructor.
+        public Standing(String username, int wins, int rank) {
+            this.username = username;
+            this.wins = wins;
+            this.rank = rank;
+        }
+    }
+
+    // Ordered by BEST_FIRST, which also makes it unique per player.
+    private static class Entry {
+        private final String username;
+        private final int wins;
+
+        Entry(String username, int wins) {
+            this.username = username;
+            this.wins = wins;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package game.server;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code LeaderboardManager} utility class keeps a {@link Leaderboard} for
+ * each {@link LeaderboardPeriod}. The boards are loaded once at startup from
+ * the per-player win totals, then updated in memory each time the
+ * {@link RaceResultWriter} saves results, so serving a leaderboard or a rank
+ * never queries the database.
+ */
+public class LeaderboardManager {
+
+    // Leaderboard properties.
+    private static final Map<LeaderboardPeriod, Leaderboard> boards = new EnumMap<>(LeaderboardPeriod.class);
+
+    static {
+        LocalDate today = today();
+        for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+            boards.put(period, new Leaderboard(period, period.startOf(today)));
+        }
+    }
+
+    // Prevent object creation from the implicit public constructor.
+    private LeaderboardManager() {
+        throw new IllegalStateException("Tried to instantiate the LeaderboardManager utility class");
+    }
+
+    // Read the saved wins of the current day, week and all time.
+    public static void load(PlayerStore store) {
+        LocalDate today = today();
+        for (Leaderboard board : boards.values()) {
+            LeaderboardPeriod period = board.getPeriod();
+            try {
+                Map<String, Integer> wins = store.loadWins(period, period.startOf(today));
+                for (Map.Entry<String, Integer> player : wins.entrySet()) board.load(player.getKey(), player.getValue());
+                System.out.println("[Server] Loaded the " + period + " leaderboard: " + wins.size() + " players");
+            } catch (SQLException e) {
+                System.err.println("[Server] Failed to load the " + period + " leaderboard: " + e.getMessage());
+            }
+        }
+    }
+
+    // Called with each batch of results once it is saved.
+    public static void recordResults(List<RaceResult> results) {
+        for (RaceResult result : results) {
+            if (result.getUsername() == null || result.getUsername().isEmpty()) continue;
+            LocalDate day = LeaderboardPeriod.DAILY.startOf(result.getFinishedAt());
+            for (Leaderboard board : boards.values()) board.addWins(result.getUsername(), 1, day);
+        }
+    }
+
+    public static List<Leaderboard.Standing> getTop(LeaderboardPeriod period, int count) {
+        return boards.get(period).getTop(count, today());
+    }
+
+    // Null when the player has no wins in the period.
+    public static Leaderboard.Standing getStanding(LeaderboardPeriod period, String username) {
+        return boards.get(period).getStanding(username, today());
+    }
+
+    public static int getPlayerCount(LeaderboardPeriod period) {
+        return boards.get(period).getPlayerCount(today());
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,42 @@
+package game.server;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * The {@code LeaderboardPeriod} enum names the windows wins are ranked over.
+ * Days and weeks are in UTC, like the database connection, and weeks start on
+ * Monday. The all-time window has a single start date.
+ */
+public enum LeaderboardPeriod {
+    DAILY,
+    WEEKLY,
+    ALL_TIME;
+
+    // Constants.
+    private static final LocalDate ALL_TIME_START = LocalDate.of(1970, 1, 1);
+
+    // The first day of the window that contains the given day.
+    public LocalDate startOf(LocalDate day) {
+        return switch (this) {
+            case DAILY    -> day;
+            case WEEKLY   -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case ALL_TIME -> ALL_TIME_START;
+        };
+    }
+
+    public LocalDate startOf(long epochMillis) {
+        return startOf(LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
+    // Null for unknown names.
+    public static LeaderboardPeriod fromName(String name) {
+        for (LeaderboardPeriod period : values()) {
+            if (period.name().equalsIgnoreCase(name)) return period;
+        }
+        return null;
+    }
+}
@@ -1,11 +1,12 @@
 package game.server;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * The {@code LobbyManager} utility class controls the collections of information
- * about the lobby for the server to access and provide to clients that request it.
- * The class handles sending lobby-related details to other connected players.
+ * The {@code LobbyManager} class controls the collections of information
+ * about the lobby of one {@code Room} for the server to access and provide to clients that request it.
+ * The class handles sending lobby-related details to the other players in the lobby.
  * The class also handles checking if a new game is eligible to be created.
  */
 public class LobbyManager {
@@ -14,81 +15,126 @@ public class LobbyManager {
     private static final int VALID_KART_CHOICES = 7;
 
     // Lobby properties.
-    private static List<Integer> validPlayerNumbers = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));
-    private static final List<ClientHandler> playersInLobby = new ArrayList<>();
-    private static final Map<Integer, Integer> playerKartChoices = new HashMap<>();
-    private static final Map<Integer, Boolean> playerReadyStates = new HashMap<>();
-    private static int chosenMap = 0;
-
-    // Prevent object creation from the implicit public constructor.
-    private LobbyManager() {
-        throw new IllegalStateException("Tried to instantiate the LobbyManager utility class");
-    }
-
-    public static synchronized int addPlayer(ClientHandler player) {
-        // Borrow a number from the list of unallocated numbers.
-        if (validPlayerNumbers.isEmpty()) {
-            System.err.println("[Lobby] addPlayer: no available player numbers");
-            // Do not add the client to playersInLobby because they were not
-            // assigned a valid player number. The caller should handle the
-            // failure and not attempt to include this client in lobby flows.
-            return -1; // Indicate failure to assign a number
-        }
-
-        int playerNumber = Collections.min(validPlayerNumbers);
-        validPlayerNumbers.remove((Integer) playerNumber);
-        playersInLobby.add(player);
-        System.out.println("[Lobby] addPlayer: assigned number=" + playerNumber + " playersInLobbySize=" + playersInLobby.size());
-        return playerNumber;
-    }
-
-    public static synchronized void removePlayer(ClientHandler player) {
-        int playerNumber = player.getPlayerNumber();
-        // If the player number is not valid (e.g., 0 because it was never assigned),
-        // avoid returning it to the pool to prevent assigning 0 to future players.
-        if (playerNumber <= 0) {
-            // Still remove the client object from the lobby list if present, but
-            // do not modify the pools/maps that rely on a valid player number.
-            playersInLobby.remove(player);
-            System.out.println("[Lobby] removePlayer: ignored invalid playerNumber=" + playerNumber + " playersInLobbySize=" + playersInLobby.size());
-            return;
-        }
+    private final Room room;
+    private List<Integer> validPlayerNumbers = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+    private final List<ClientHandler> playersInLobby = new ArrayList<>();
+    private final Map<Integer, Integer> playerKartChoices = new HashMap<>();
+    private final Map<Integer, Boolean> playerReadyStates = new HashMap<>();
+    private int chosenMap = 0;
+    // A ReentrantLock rather than synchronized so virtual-thread handlers never pin their carrier.
+    private final ReentrantLock lock = new ReentrantLock();
 
-        playersInLobby.remove(player);
-        playerKartChoices.remove(playerNumber);
-        playerReadyStates.remove(playerNumber);
-        // Return number back to the list of unallocated numbers.
-        if (!validPlayerNumbers.contains(playerNumber)) validPlayerNumbers.add(playerNumber);
-        // Keep the available numbers ordered so Collections.min() remains predictable.
-        Collections.sort(validPlayerNumbers);
-        System.out.println("[Lobby] removePlayer: removed number=" + playerNumber + " playersInLobbySize=" + playersInLobby.size());
+    // Constructor.
+    LobbyManager(Room room) {
+        this.room = room;
     }
 
-    public static synchronized void setReadyState(int playerNumber, boolean state) {
-        playerReadyStates.put(playerNumber, state);
-        System.out.println("[Lobby] setReadyState: player=" + playerNumber + " state=" + state + " allReadyStates=" + playerReadyStates);
-        checkGameStart();
+    public int addPlayer(ClientHandler player) {
+        lock.lock();
+        try {
+            // The lobby reopens once the room's race has ended.
+            if (room.getGame().isGameActive()) {
+                System.err.println("[Lobby] addPlayer: room " + room.getRoomId() + " is racing");
+                return -1;
+            }
+            // Borrow a number from the list of unallocated numbers.
+            if (validPlayerNumbers.isEmpty()) {
+                System.err.println("[Lobby] addPlayer: no available player numbers");
+                // Do not add the client to playersInLobby because they were not
+                // assigned a valid player number. The caller should handle the
+                // failure and not attempt to include this client in lobby flows.
+                return -1; // Indicate failure to assign a number
+            }
+
+            int playerNumber = Collections.min(validPlayerNumbers);
+            validPlayerNumbers.remove((Integer) playerNumber);
+            playersInLobby.add(player);
+            System.out.println("[Lobby] addPlayer: assigned number=" + playerNumber + " playersInLobbySize=" + playersInLobby.size());
+            return playerNumber;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized int setKartChoice(int playerNumber) {
-        // Defensive guard: ensure playerNumber is valid before using it.
-        if (playerNumber <= 0) {
-            System.err.println("[Lobby] setKartChoice: invalid playerNumber=" + playerNumber + ", defaulting to kart 0");
-            playerKartChoices.put(playerNumber, 0);
-            return 0;
+    // False if the player was not in the lobby, e.g. still holding a number from the last race;
+    // then nothing is changed, so the number is not taken from whoever holds it now.
+    public boolean removePlayer(ClientHandler player) {
+        lock.lock();
+        try {
+            if (!playersInLobby.contains(player)) return false;
+            int playerNumber = player.getPlayerNumber();
+            // If the player number is not valid (e.g., 0 because it was never assigned),
+            // avoid returning it to the pool to prevent assigning 0 to future players.
+            if (playerNumber <= 0) {
+                // Still remove the client object from the lobby list if present, but
+                // do not modify the pools/maps that rely on a valid player number.
+                playersInLobby.remove(player);
+                System.out.println("[Lobby] removePlayer: ignored invalid playerNumber=" + playerNumber + " playersInLobbySize=" + playersInLobby.size());
+                return false;
+            }
+
+            playersInLobby.remove(player);
+            playerKartChoices.remove(playerNumber);
+            playerReadyStates.remove(playerNumber);
+            // Return number back to the list of unallocated numbers.
+            if (!validPlayerNumbers.contains(playerNumber)) validPlayerNumbers.add(playerNumber);
+            // Keep the available numbers ordered so Collections.min() remains predictable.
+            Collections.sort(validPlayerNumbers);
+            System.out.println("[Lobby] removePlayer: removed number=" + playerNumber + " playersInLobbySize=" + playersInLobby.size());
+            return true;
+        } finally {
+            lock.unlock();
         }
+    }
+
+    public void setReadyState(int playerNumber, boolean state) {
+        List<ClientHandler> startingPlayers = null;
+        Map<Integer, Integer> startingKartChoices = null;
+        int startingMap = 0;
+        lock.lock();
+        try {
+            playerReadyStates.put(playerNumber, state);
+            System.out.println("[Lobby] setReadyState: player=" + playerNumber + " state=" + state + " allReadyStates=" + playerReadyStates);
+            if (checkGameStart()) {
+                startingPlayers = new ArrayList<>(playersInLobby);
+                startingKartChoices = new HashMap<>(playerKartChoices);
+                startingMap = chosenMap;
+                // Close the room before the lobby resets, so addPlayer and Room.isOpen turn newcomers
+                // away instead of numbering them into a lobby whose race is starting.
+                room.getGame().markActive();
+                closeLobby();
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Start the game outside the lock; it writes to every player's socket.
+        if (startingPlayers != null) room.getGame().initiateGame(startingPlayers, startingKartChoices, startingMap);
+    }
+
+    public int setKartChoice(int playerNumber) {
+        lock.lock();
+        try {
+            // Defensive guard: ensure playerNumber is valid before using it.
+            if (playerNumber <= 0) {
+                System.err.println("[Lobby] setKartChoice: invalid playerNumber=" + playerNumber + ", defaulting to kart 0");
+                playerKartChoices.put(playerNumber, 0);
+                return 0;
+            }
 
-        int kartChoice = playerNumber - 1;
-        // Prevent a player from choosing a kart already chosen.
-        if (playerKartChoices.containsValue(kartChoice)) {
-            kartChoice = getNextValidKartOption(kartChoice);
+            int kartChoice = playerNumber - 1;
+            // Prevent a player from choosing a kart already chosen.
+            if (playerKartChoices.containsValue(kartChoice)) {
+                kartChoice = getNextValidKartOption(kartChoice);
+            }
+            playerKartChoices.put(playerNumber, kartChoice);
+            System.out.println("[Lobby] setKartChoice: player=" + playerNumber + " assignedKart=" + kartChoice + " allChoices=" + playerKartChoices);
+            return kartChoice;
+        } finally {
+            lock.unlock();
         }
-        playerKartChoices.put(playerNumber, kartChoice);
-        System.out.println("[Lobby] setKartChoice: player=" + playerNumber + " assignedKart=" + kartChoice + " allChoices=" + playerKartChoices);
-        return kartChoice;
     }
 
-    private static synchronized int getNextValidKartOption(int kartChoice) {
+    private int getNextValidKartOption(int kartChoice) {
         // Modulus is used to ensure kart option loops back around to the start.
         int potentialKartChoice = (kartChoice + 1) % VALID_KART_CHOICES;
         if (playerKartChoices.containsValue(potentialKartChoice)) {
@@ -97,33 +143,82 @@ public class LobbyManager {
         else return potentialKartChoice;
     }
 
-    public static synchronized void updateKartChoice(int playerNumber, int kartChoice) {
-        playerKartChoices.put(playerNumber, kartChoice);
+    public void updateKartChoice(int playerNumber, int kartChoice) {
+        lock.lock();
+        try {
+            playerKartChoices.put(playerNumber, kartChoice);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void updateMapChoice(int mapChoice) {
+        lock.lock();
+        try {
+            chosenMap = mapChoice;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getKartChoice(int playerNumber) {
+        lock.lock();
+        try {
+            // Avoid NullPointerException by returning a default kart index of 0
+            return playerKartChoices.getOrDefault(playerNumber, 0);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized void updateMapChoice(int mapChoice) {
-        chosenMap = mapChoice;
+    public boolean getReadyState(int playerNumber) {
+        lock.lock();
+        try {
+            // Default to false if not present
+            return playerReadyStates.getOrDefault(playerNumber, false);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized int getKartChoice(int playerNumber) {
-        // Avoid NullPointerException by returning a default kart index of 0
-        return playerKartChoices.getOrDefault(playerNumber, 0);
+    public int getChosenMap() {
+        lock.lock();
+        try {
+            return chosenMap;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized boolean getReadyState(int playerNumber) {
-        // Default to false if not present
-        return playerReadyStates.getOrDefault(playerNumber, false);
+    public List<ClientHandler> getPlayersInLobby() {
+        lock.lock();
+        try {
+            // Callers iterate and send outside the lock, so hand out a copy.
+            return new ArrayList<>(playersInLobby);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized int getChosenMap() {
-        return chosenMap;
+    public boolean hasFreeSlot() {
+        lock.lock();
+        try {
+            return !validPlayerNumbers.isEmpty();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized List<ClientHandler> getPlayersInLobby() {
-        return playersInLobby;
+    public int getPlayerCount() {
+        lock.lock();
+        try {
+            return playersInLobby.size();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized void sendPlayerDisconnectedToAllPlayers(ClientHandler originator) {
+    public void sendPlayerDisconnectedToAllPlayers(ClientHandler originator) {
         for (ClientHandler handler : getPlayersInLobby()) {
             if (originator.equals(handler)) continue; // Don't send to self.
             int disconnectedPlayer = originator.getPlayerNumber();
@@ -131,17 +226,71 @@ public class LobbyManager {
         }
     }
 
-    private static void checkGameStart() {
+    public void sendKartChoiceToPlayers(ClientHandler originator) {
+        long start = System.nanoTime();
+        int playerNumber = originator.getPlayerNumber();
+        int kartChoice = getKartChoice(playerNumber);
+        List<ClientHandler> players = getPlayersInLobby();
+        for (ClientHandler handler : players) {
+            if (originator.equals(handler)) continue; // Don't send to self.
+            handler.updateOpponentKartChoice(playerNumber, kartChoice);
+        }
+        recordBroadcast("lobby_update", players, start);
+    }
+
+    public void sendReadyStateToPlayers(ClientHandler originator) {
+        long start = System.nanoTime();
+        int playerNumber = originator.getPlayerNumber();
+        boolean readyState = getReadyState(playerNumber);
+        List<ClientHandler> players = getPlayersInLobby();
+        for (ClientHandler handler : players) {
+            if (originator.equals(handler)) continue; // Don't send to self.
+            handler.updateOpponentReadyState(playerNumber, readyState);
+        }
+        recordBroadcast("lobby_update", players, start);
+    }
+
+    public void sendNewPlayerToPlayers(ClientHandler originator) {
+        // Only broadcast new-player notifications if the originator has been assigned a valid player number
+        if (originator == null || originator.getPlayerNumber() <= 0) return;
+        long start = System.nanoTime();
+        List<ClientHandler> players = getPlayersInLobby();
+        System.out.println("[Lobby] Room " + room.getRoomId() + " broadcasting new player: " + originator.getPlayerNumber() + " to " + players.size() + " clients");
+        for (ClientHandler handler : players) {
+            if (originator.equals(handler)) continue; // Don't send to self.
+            try {
+                handler.updateConnectedPlayers(originator);
+            } catch (Exception e) {
+                System.err.println("[Server] Failed to notify handler of new player: " + e.getMessage());
+            }
+        }
+        recordBroadcast("player_joined", players, start);
+    }
+
+    public void sendMapChoiceToPlayers(ClientHandler originator) {
+        long start = System.nanoTime();
+        int mapChoice = getChosenMap();
+        List<ClientHandler> players = getPlayersInLobby();
+        for (ClientHandler handler : players) {
+            if (originator.equals(handler)) continue; // Don't send to self.
+            handler.updateChosenMap(mapChoice);
+        }
+        recordBroadcast("lobby_update", players, start);
+    }
+
+    // Every broadcast skips its originator.
+    private static void recordBroadcast(String kind, List<ClientHandler> players, long start) {
+        ClientManager.getMetrics().recordBroadcast(kind, Math.max(0, players.size() - 1), System.nanoTime() - start);
+    }
+
+    private boolean checkGameStart() {
         // A minimum of 2 players is required to start.
         // All players in the lobby must be ready to start.
         System.out.println("[Lobby] checkGameStart: readyStates=" + playerReadyStates + " size=" + playerReadyStates.size());
-        if (!playerReadyStates.containsValue(false) && playerReadyStates.size() >= 2) {
-            GameManager.initiateGame(playersInLobby, playerKartChoices, chosenMap);
-            closeLobby();
-        }
+        return !playerReadyStates.containsValue(false) && playerReadyStates.size() >= 2;
     }
 
-    private static void closeLobby() {
+    private void closeLobby() {
         // Reset lobby properties.
         validPlayerNumbers = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));
         playersInLobby.clear();
@@ -0,0 +1,153 @@
+package game.server;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code MemoryPlayerStore} class keeps player accounts in memory, as a
+ * stand-in for the database when running the server locally or under load
+ * tests. Accounts are lost when the server stops. Every call can be delayed
+ * with {@code -Dgame.server.db.latencyMs=5} to model a database round trip.
+ */
+public class MemoryPlayerStore implements PlayerStore {
+
+    // Constants.
+    private static final long LATENCY_MS = Long.getLong("game.server.db.latencyMs", 0);
+
+    // Object properties.
+    private final Map<String, Account> accountsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, Account> accountsById = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    @Override
+    public boolean authenticate(String username, String password) {
+        simulateLatency();
+        Account account = (username == null) ? null : accountsByName.get(username.trim());
+        return account != null && password != null && account.password.equals(password.trim());
+    }
+
+    @Override
+    public PlayerProfile login(String username, String password) {
+        simulateLatency();
+        Account account = find(username);
+        if (account == null || password == null || !account.password.equals(password.trim())) return null;
+        return account.toProfile();
+    }
+
+    @Override
+    public boolean registerPlayer(String username, String password) {
+        simulateLatency();
+        username = username == null ? null : username.trim();
+        password = password == null ? null : password.trim();
+        // Same rules as the database store.
+        if (username == null || password == null || username.length() < 3 || username.contains(" ")) return false;
+
+        Account account = new Account(nextId.getAndIncrement(), username, password);
+        if (accountsByName.putIfAbsent(username, account) != null) return false;
+        accountsById.put(account.id, account);
+        return true;
+    }
+
+    @Override
+    public void recordWin(String username) {
+        simulateLatency();
+        Account account = find(username);
+        if (account != null) account.wins.incrementAndGet();
+    }
+
+    @Override
+    public int getPlayerWins(String username) {
+        simulateLatency();
+        Account account = find(username);
+        return account == null ? 0 : account.wins.get();
+    }
+
+    @Override
+    public PlayerProfile getProfile(String username) {
+        simulateLatency();
+        Account account = find(username);
+        return account == null ? null : account.toProfile();
+    }
+
+    @Override
+    public void recordRace(String username) {
+        simulateLatency();
+        Account account = find(username);
+        if (account != null) account.races.incrementAndGet();
+    }
+
+    @Override
+    public void recordRace(int winnerId) {
+        simulateLatency();
+        Account account = accountsById.get(winnerId);
+        if (account != null) account.races.incrementAndGet();
+    }
+
+    @Override
+    public int countRacesForPlayer(String username) {
+        simulateLatency();
+        Account account = find(username);
+        return account == null ? 0 : account.races.get();
+    }
+
+    @Override
+    public void recordRaceResults(List<RaceResult> results) {
+        simulateLatency();
+        for (RaceResult result : results) {
+            // Like the database store: unknown winners only get a race, recorded by player number.
+            Account account = find(result.getUsername());
+            if (account != null) account.wins.incrementAndGet();
+            else account = accountsById.get(result.getPlayerNumber());
+            if (account != null) account.races.incrementAndGet();
+        }
+    }
+
+    // Accounts only live as long as the server, so there are never earlier daily or weekly wins to load.
+    @Override
+    public Map<String, Integer> loadWins(LeaderboardPeriod period, LocalDate start) {
+        simulateLatency();
+        Map<String, Integer> wins = new HashMap<>();
+        if (period != LeaderboardPeriod.ALL_TIME) return wins;
+        for (Map.Entry<String, Account> account : accountsByName.entrySet()) {
+            int accountWins = account.getValue().wins.get();
+            if (accountWins > 0) wins.put(account.getKey(), accountWins);
+        }
+        return wins;
+    }
+
+    private Account find(String username) {
+        return (username == null) ? null : accountsByName.get(username.trim());
+    }
+
+    private static void simulateLatency() {
+        if (LATENCY_MS <= 0) return;
+        try {
+            Thread.sleep(LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Account {
+        private final int id;
+        private final String username;
+        private final String password;
+        private final AtomicInteger wins = new AtomicInteger();
+        private final AtomicInteger races = new AtomicInteger();
+
+        Account(int id, String username, String password) {
+            this.id = id;
+            this.username = username;
+            this.password = password;
+        }
+
+        // A copy, like a row read from the database.
+        PlayerProfile toProfile() {
+            return new PlayerProfile(id, username, wins.get());
+        }
+    }
+}
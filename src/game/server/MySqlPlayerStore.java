@@ -0,0 +1,82 @@
+package game.server;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code MySqlPlayerStore} class keeps player accounts in the MySQL
+ * database, through {@link DatabaseManager}.
+ */
+public class MySqlPlayerStore implements PlayerStore {
+
+    @Override
+    public boolean authenticate(String username, String password) throws SQLException {
+        return DatabaseManager.authenticate(username, password);
+    }
+
+    @Override
+    public PlayerProfile login(String username, String password) throws SQLException {
+        return DatabaseManager.login(username, password);
+    }
+
+    @Override
+    public boolean registerPlayer(String username, String password) {
+        return DatabaseManager.registerPlayer(username, password);
+    }
+
+    @Override
+    public void recordWin(String username) {
+        DatabaseManager.recordWin(username);
+    }
+
+    @Override
+    public int getPlayerWins(String username) {
+        return DatabaseManager.getPlayerWins(username);
+    }
+
+    @Override
+    public PlayerProfile getProfile(String username) {
+        return DatabaseManager.getPlayerProfile(username);
+    }
+
+    @Override
+    public void recordRace(String username) {
+        DatabaseManager.recordRace(username);
+    }
+
+    @Override
+    public void recordRace(int winnerId) {
+        DatabaseManager.recordRace(winnerId);
+    }
+
+    @Override
+    public int countRacesForPlayer(String username) {
+        return DatabaseManager.countRacesForPlayer(username);
+    }
+
+    @Override
+    public void recordRaceResults(List<RaceResult> results) throws SQLException {
+        DatabaseManager.recordRaceResults(results);
+    }
+
+    @Override
+    public Map<String, Integer> loadWins(LeaderboardPeriod period, LocalDate start) throws SQLException {
+        return DatabaseManager.loadWins(period, start);
+    }
+
+    @Override
+    public void registerMetrics(ServerMetrics metrics) {
+        ConnectionPool pool = DatabaseManager.getPool();
+        metrics.registerGauge("db_pool_open", pool::getOpenCount);
+        metrics.registerGauge("db_pool_idle", pool::getIdleCount);
+        metrics.registerGauge("db_pool_opened_total", pool::getOpened);
+        metrics.registerGauge("db_pool_closed_total", pool::getClosed);
+        metrics.registerGauge("db_pool_timeouts_total", pool::getTimeouts);
+        metrics.registerGauge("db_pool_validation_failures_total", pool::getValidationFailures);
+        metrics.registerGauge("db_statement_cache_hits_total", pool::getStatementHits);
+        metrics.registerGauge("db_statement_cache_misses_total", pool::getStatementMisses);
+        metrics.registerHistogram("db_pool_wait", pool.getWaitTime());
+    }
+}
@@ -0,0 +1,292 @@
+package game.server;
+
+import game.common.ProtocolDecoder;
+import game.common.WriteBatch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code NioConnection} class is the non-blocking {@code ClientConnection}
+ * owned by a {@code NioServer} selector loop. It keeps a per-connection read
+ * buffer and {@code OutboundQueue} and feeds decoded commands to its {@code ClientHandler}.
+ */
+public class NioConnection implements ClientConnection, ProtocolDecoder.Listener {
+
+    // Constants.
+    private static final int READ_BUFFER_BYTES = 4096;
+    private static final int MAX_GATHER = 64;
+    // Stop reading a client with this many commands waiting, and resume once it is down to the low mark.
+    // At most one read buffer of commands arrives past the high mark.
+    private static final int DISPATCH_HIGH_WATER = Math.max(2, Integer.getInteger("game.server.dispatchHighWater", 256));
+    private static final int DISPATCH_LOW_WATER = DISPATCH_HIGH_WATER / 4;
+
+    // Object properties.
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final NioServer.SelectorLoop loop;
+    private final ClientHandler handler;
+    private final ProtocolDecoder decoder = new ProtocolDecoder(this);
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+    private final OutboundQueue writeQueue = new OutboundQueue();
+    private final ByteBuffer[] gatherBuffers = new ByteBuffer[MAX_GATHER];
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final SerialExecutor dispatcher;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean channelClosed = new AtomicBoolean(false);
+    private final String remoteAddress;
+
+    // Property access methods.
+    public ClientHandler getHandler() { return handler; }
+
+    // Constructor.
+    NioConnection(SocketChannel channel, SelectionKey key, NioServer.SelectorLoop loop, Executor workers) throws IOException {
+        this.channel = channel;
+        this.key = key;
+        this.loop = loop;
+        this.dispatcher = new SerialExecutor(workers, this::resumeReading);
+        this.remoteAddress = String.valueOf(channel.getRemoteAddress());
+        this.handler = new ClientHandler(this);
+    }
+
+    // Selector thread: read whatever is available and decode it.
+    void readAvailable() {
+        try {
+            int read = channel.read(readBuffer);
+            if (read == -1) {
+                abort();
+                return;
+            }
+            readBuffer.flip();
+            decoder.decode(readBuffer);
+            readBuffer.clear();
+            if (dispatcher.pauseIfBacklogged() && key.isValid()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            System.err.println("[Server] Connection error from " + remoteAddress + ": " + e.getMessage());
+            abort();
+        }
+    }
+
+    // Selector thread: write queued output until the socket buffer fills up.
+    void flushWrites() {
+        flushRequested.set(false);
+        if (!key.isValid()) {
+            if (closed.get()) closeChannel();
+            return;
+        }
+        int writes = 0;
+        long written = 0;
+        try {
+            int count;
+            // One gathering write per pass hands every queued message to the socket together.
+            while ((count = writeQueue.peek(gatherBuffers)) > 0) {
+                written += channel.write(gatherBuffers, 0, count);
+                writes++;
+                int done = 0;
+                while (done < count && !gatherBuffers[done].hasRemaining()) {
+                    writeQueue.remove();
+                    done++;
+                }
+                Arrays.fill(gatherBuffers, 0, count, null);
+                if (done < count) {
+                    writeQueue.releaseUnwritten();
+                    key.interestOps(readOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            if (closed.get()) {
+                closeChannel();
+                return;
+            }
+            key.interestOps(readOps());
+        } catch (IOException e) {
+            System.err.println("[Server] Write failed to " + remoteAddress + ": " + e.getMessage());
+            abort();
+        } finally {
+            if (writes > 0) ClientManager.getWriteStats().recordFlush(writes, written);
+        }
+    }
+
+    private int readOps() {
+        return dispatcher.isPaused() ? 0 : SelectionKey.OP_READ;
+    }
+
+    // Worker thread, once the backlog has drained: the selector recomputes the interest ops on its next pass.
+    private void resumeReading() {
+        if (!closed.get()) loop.requestFlush(this);
+    }
+
+    @Override
+    public void onLine(String line) {
+        long received = System.nanoTime();
+        dispatcher.execute(() -> {
+            ClientManager.getMetrics().recordDispatchDelay(System.nanoTime() - received);
+            handler.handleLine(line);
+        });
+    }
+
+    @Override
+    public void onFrame(byte[] payload) {
+        long received = System.nanoTime();
+        dispatcher.execute(() -> {
+            ClientManager.getMetrics().recordDispatchDelay(System.nanoTime() - received);
+            handler.handleFrame(payload);
+        });
+    }
+
+    @Override
+    public void sendLine(String line) {
+        if (closed.get()) return;
+        onQueued(writeQueue.add(OutboundQueue.encodeLine(line)));
+    }
+
+    @Override
+    public void sendFrame(byte[] frame) {
+        if (closed.get()) return;
+        // Frames may be shared between recipients; each gets its own buffer position.
+        onQueued(writeQueue.add(ByteBuffer.wrap(frame)));
+    }
+
+    @Override
+    public void sendKartState(byte[] message) {
+        if (closed.get()) return;
+        onQueued(writeQueue.addKartState(ByteBuffer.wrap(message)));
+    }
+
+    private void onQueued(boolean withinLimits) {
+        if (!withinLimits) {
+            System.err.println("[Server] Evicting slow client " + remoteAddress + " with "
+                    + writeQueue.getQueuedBytes() + " bytes unsent");
+            abort();
+            return;
+        }
+        ClientManager.getWriteStats().recordMessage();
+        if (!WriteBatch.defer(this)) flush();
+    }
+
+    // Hand the connection to its selector once, however many messages were queued.
+    @Override
+    public void flush() {
+        if (flushRequested.compareAndSet(false, true)) loop.requestFlush(this);
+    }
+
+    // Stop accepting output; the selector writes whatever is already queued, then closes.
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        loop.requestFlush(this);
+    }
+
+    // Drop queued output and close straight away.
+    void abort() {
+        closed.set(true);
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        if (!channelClosed.compareAndSet(false, true)) return;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[Server] Failed to close channel: " + e.getMessage());
+        }
+        writeQueue.clear();
+        // Clean up after any commands still queued for this client.
+        dispatcher.execute(handler::endServerConnection);
+    }
+
+    @Override
+    public int getQueuedBytes() {
+        return writeQueue.getQueuedBytes();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Runs tasks one at a time, in submission order, on a shared executor.
+     * Tracks whether the connection was paused for having too many tasks waiting.
+     */
+    private static class SerialExecutor implements Executor {
+        // Hand the worker back after this many tasks so busy clients can't starve others.
+        private static final int MAX_BATCH = 64;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private final Executor executor;
+        private final Runnable onResume;
+        private boolean running = false;
+        private boolean paused = false;
+
+        SerialExecutor(Executor executor, Runnable onResume) {
+            this.executor = executor;
+            this.onResume = onResume;
+        }
+
+        synchronized boolean isPaused() {
+            return paused;
+        }
+
+        // Selector thread, after each read: pause once the backlog passes the high mark.
+        synchronized boolean pauseIfBacklogged() {
+            if (tasks.size() > DISPATCH_HIGH_WATER) paused = true;
+            return paused;
+        }
+
+        // The drain is handed over outside the lock: when the pool is full it runs on this thread.
+        @Override
+        public void execute(Runnable task) {
+            synchronized (this) {
+                tasks.add(task);
+                if (running) return;
+                running = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        // Replies and broadcasts from the whole batch are flushed together at the end.
+        private void drain() {
+            boolean resubmit = false;
+            WriteBatch.begin();
+            try {
+                for (int run = 0; ; run++) {
+                    Runnable task;
+                    boolean resume = false;
+                    synchronized (this) {
+                        if (run == MAX_BATCH && !tasks.isEmpty()) {
+                            resubmit = true;
+                            return;
+                        }
+                        task = tasks.poll();
+                        if (paused && tasks.size() <= DISPATCH_LOW_WATER) {
+                            paused = false;
+                            resume = true;
+                        }
+                        if (task == null) running = false;
+                    }
+                    if (resume) onResume.run();
+                    if (task == null) return;
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        System.err.println("[Server] Command dispatch failed: " + e.getMessage());
+                    }
+                }
+            } finally {
+                WriteBatch.end();
+                // Still running; continue from the back of the pool's queue.
+                if (resubmit) executor.execute(this::drain);
+            }
+        }
+    }
+}
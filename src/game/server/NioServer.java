@@ -0,0 +1,158 @@
+package game.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code NioServer} class accepts clients on non-blocking channels and
+ * services them from one selector loop per core instead of one thread per client.
+ * Selector threads only move bytes; decoded commands run on a small shared
+ * worker pool, in order per connection, so a slow database call never stalls I/O.
+ * Both the pool's queue and each connection's backlog are bounded: a connection
+ * stops being read while too many of its commands wait, and when the pool's queue
+ * is full the selector runs the work itself, which slows reading for everyone.
+ */
+public class NioServer {
+
+    // Constants.
+    // Connections waiting for a worker, e.g. -Dgame.server.workerQueueSize=8192
+    private static final int WORKER_QUEUE_SIZE = Math.max(1, Integer.getInteger("game.server.workerQueueSize", 4096));
+
+    // Object properties.
+    private final ServerSocketChannel serverChannel;
+    private final SelectorLoop[] loops;
+    private final ThreadPoolExecutor workers;
+    private int nextLoop = 0;
+
+    // Constructor.
+    public NioServer(int port, int loopCount, int workerCount) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+
+        AtomicInteger workerId = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_SIZE), r -> {
+            Thread t = new Thread(r, "NioServer-Worker-" + workerId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        loops = new SelectorLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new SelectorLoop(Selector.open());
+            Thread t = new Thread(loops[i], "NioServer-Selector-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        System.out.println("[Server] NIO server listening on port " + port + " with "
+                + loopCount + " selector loops and " + workerCount + " workers");
+    }
+
+    // Commands from every connection waiting for a free worker.
+    public int getQueuedTasks() {
+        return workers.getQueue().size();
+    }
+
+    // Accept connections forever, handing each to the selector loops in turn.
+    public void acceptConnections() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectorLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                loop.register(channel);
+            } catch (IOException e) {
+                System.err.println("Socket failed to accept: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A single selector thread servicing reads and writes for its connections.
+     */
+    class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingFlushes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+
+        SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pendingRegistrations.add(channel);
+            selector.wakeup();
+        }
+
+        // Called from any thread once a connection has queued output.
+        void requestFlush(NioConnection connection) {
+            pendingFlushes.add(connection);
+            // One wakeup covers every flush requested before the selector runs again.
+            if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (selector.isOpen()) {
+                try {
+                    selector.select();
+                    wakeupPending.set(false);
+                    registerPendingChannels();
+                    flushPendingConnections();
+                    processSelectedKeys();
+                } catch (IOException | ClosedSelectorException e) {
+                    System.err.println("[Server] Selector loop error: " + e.getMessage());
+                }
+            }
+        }
+
+        private void registerPendingChannels() {
+            SocketChannel channel;
+            while ((channel = pendingRegistrations.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    NioConnection connection = new NioConnection(channel, key, this, workers);
+                    key.attach(connection);
+                    ClientManager.registerClient(connection.getHandler());
+                    System.out.println("[Server] New client connected from " + connection.getRemoteAddress());
+                } catch (IOException e) {
+                    System.err.println("[Server] Failed to register client channel: " + e.getMessage());
+                    try { channel.close(); } catch (IOException ignored) {}
+                }
+            }
+        }
+
+        private void flushPendingConnections() {
+            NioConnection connection;
+            while ((connection = pendingFlushes.poll()) != null) {
+                connection.flushWrites();
+            }
+        }
+
+        private void processSelectedKeys() {
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                if (connection == null || !key.isValid()) continue;
+                try {
+                    if (key.isReadable()) connection.readAvailable();
+                    if (key.isValid() && key.isWritable()) connection.flushWrites();
+                } catch (CancelledKeyException e) {
+                    connection.abort();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package game.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code OutboundQueue} class holds the messages waiting to be written to one
+ * client. Kart state is coalesced: a new snapshot replaces one that has not started
+ * writing yet, so a slow reader only ever receives the newest positions. The queue
+ * reports when a client has fallen too far behind so the connection can be evicted.
+ */
+class OutboundQueue {
+
+    // Constants.
+    private static final int DEFAULT_HIGH_WATER_BYTES = 64 * 1024;
+    private static final long DEFAULT_SLOW_CLIENT_GRACE_MS = 3000;
+    // Backlog a client may hold before the clock starts, configurable with -Dgame.server.outboundHighWaterBytes.
+    private static final int HIGH_WATER_BYTES = Math.max(1024,
+            Integer.getInteger("game.server.outboundHighWaterBytes", DEFAULT_HIGH_WATER_BYTES));
+    // How long a client may stay over the high-water mark, configurable with -Dgame.server.slowClientGraceMs.
+    private static final long SLOW_CLIENT_GRACE_MS = Math.max(0,
+            Long.getLong("game.server.slowClientGraceMs", DEFAULT_SLOW_CLIENT_GRACE_MS));
+    // Past this the client is dropped at once, which keeps the queue bounded.
+    private static final int HARD_LIMIT_BYTES = HIGH_WATER_BYTES * 4;
+
+    // Object properties.
+    private final Deque<Message> messages = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Message pendingKartState;
+    private int queuedBytes;
+    private long overHighWaterSince = -1;
+
+    public static ByteBuffer encodeLine(String line) {
+        return ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns false once the client should be evicted; the message is dropped in that case.
+    public boolean add(ByteBuffer data) {
+        lock.lock();
+        try {
+            if (queuedBytes + data.remaining() > HARD_LIMIT_BYTES) return false;
+            messages.add(new Message(data));
+            queuedBytes += data.remaining();
+            return checkHighWater();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replace kart state that is still waiting, otherwise queue it like any other message.
+    public boolean addKartState(ByteBuffer data) {
+        lock.lock();
+        try {
+            if (pendingKartState != null && !pendingKartState.started) {
+                queuedBytes += data.remaining() - pendingKartState.length;
+                pendingKartState.replace(data);
+                return checkHighWater();
+            }
+            if (queuedBytes + data.remaining() > HARD_LIMIT_BYTES) return false;
+            pendingKartState = new Message(data);
+            messages.add(pendingKartState);
+            queuedBytes += data.remaining();
+            return checkHighWater();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Peeked buffers are no longer replaced by newer kart state; call remove() once each is written.
+    public ByteBuffer peek() {
+        lock.lock();
+        try {
+            Message head = messages.peek();
+            if (head == null) return null;
+            head.started = true;
+            return head.data;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Fill the array with queued buffers from the head, for a gathering write; returns how many.
+    public int peek(ByteBuffer[] into) {
+        lock.lock();
+        try {
+            int count = 0;
+            for (Message message : messages) {
+                if (count == into.length) break;
+                message.started = true;
+                into[count++] = message.data;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // After a partial write, let untouched kart state be coalesced again.
+    public void releaseUnwritten() {
+        lock.lock();
+        try {
+            for (Message message : messages) {
+                if (message.started && message.data.remaining() == message.length) message.started = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove() {
+        lock.lock();
+        try {
+            Message head = messages.poll();
+            if (head == null) return;
+            if (head == pendingKartState) pendingKartState = null;
+            queuedBytes -= head.length;
+            checkHighWater();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return messages.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            messages.clear();
+            pendingKartState = null;
+            queuedBytes = 0;
+            overHighWaterSince = -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held.
+    private boolean checkHighWater() {
+        if (queuedBytes <= HIGH_WATER_BYTES) {
+            overHighWaterSince = -1;
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (overHighWaterSince < 0) overHighWaterSince = now;
+        return now - overHighWaterSince <= SLOW_CLIENT_GRACE_MS;
+    }
+
+    /**
+     * One queued message. Kart state is swapped in place until writing starts.
+     */
+    private static class Message {
+        private ByteBuffer data;
+        private int length;
+        private boolean started = false;
+
+        Message(ByteBuffer data) {
+            replace(data);
+        }
+
+        void replace(ByteBuffer data) {
+            this.data = data;
+            this.length = data.remaining();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package game.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code PlayerProfile} class is what the lobby shows about a player:
+ * their account id, username and total wins. Profiles are kept in the
+ * {@link CachingPlayerStore}, and the win count is updated there in place.
+ */
+public class PlayerProfile {
+
+    // Object properties.
+    private final int id;
+    private final String username;
+    private final AtomicInteger wins;
+
+    // Property access methods.
+    public int getId()              { return id; }
+    public String getUsername()     { return username; }
+    public int getWins()            { return wins.get(); }
+
+    // Constructor.
+    public PlayerProfile(int id, String username, int wins) {
+        this.id = id;
+        this.username = username;
+        this.wins = new AtomicInteger(wins);
+    }
+
+    public void addWins(int count) {
+        wins.addAndGet(count);
+    }
+}
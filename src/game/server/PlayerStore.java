@@ -0,0 +1,50 @@
+package game.server;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code PlayerStore} interface is everything the game server reads and
+ * writes about player accounts: logins, registrations, win counts and the
+ * race history. {@link MySqlPlayerStore} keeps them in the MySQL database and
+ * {@link MemoryPlayerStore} in memory, for running the server without a database.
+ */
+public interface PlayerStore {
+
+    // Throws if the store could not be asked, which says nothing about the credentials.
+    boolean authenticate(String username, String password) throws SQLException;
+
+    // Check the password and read the profile in one lookup; null if the credentials are wrong,
+    // and throws if the store could not be asked.
+    PlayerProfile login(String username, String password) throws SQLException;
+
+    // False if the name is invalid or already taken.
+    boolean registerPlayer(String username, String password);
+
+    void recordWin(String username);
+
+    // 0 for unknown players.
+    int getPlayerWins(String username);
+
+    // Null for unknown players.
+    PlayerProfile getProfile(String username);
+
+    // Record a race won by the player with this username.
+    void recordRace(String username);
+
+    // Record a race won by the player with this numeric id.
+    void recordRace(int winnerId);
+
+    int countRacesForPlayer(String username);
+
+    // Add every result's win and race in one transaction; nothing is saved if this throws.
+    void recordRaceResults(List<RaceResult> results) throws SQLException;
+
+    // Wins per username in the window starting on the given day, for players with at least one.
+    Map<String, Integer> loadWins(LeaderboardPeriod period, LocalDate start) throws SQLException;
+
+    // Register the store's own gauges, such as connection pool usage.
+    default void registerMetrics(ServerMetrics metrics) {}
+}
@@ -0,0 +1,24 @@
+package game.server;
+
+/**
+ * The {@code RaceResult} class is one won race waiting to be saved: the
+ * winner's username, or their player number when they never logged in.
+ */
+public class RaceResult {
+
+    // Object properties.
+    private final String username;
+    private final int playerNumber;
+    private final long finishedAt = System.currentTimeMillis();
+
+    // Property access methods.
+    public String getUsername()     { return username; }
+    public int getPlayerNumber()    { return playerNumber; }
+    public long getFinishedAt()     { return finishedAt; }
+
+    // Constructor.
+    public RaceResult(String username, int playerNumber) {
+        this.username = username;
+        this.playerNumber = playerNumber;
+    }
+}
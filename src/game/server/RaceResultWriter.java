@@ -0,0 +1,171 @@
+package game.server;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The {@code RaceResultWriter} class saves race results behind the game's back.
+ * Game threads only {@link #submit} a result into a bounded queue, which never
+ * waits; a dedicated writer thread takes whatever has queued up and saves it
+ * as one transaction through the {@link PlayerStore}. Transient database
+ * errors are retried with backoff, so results survive a short outage; if the
+ * queue fills up meanwhile, new results are dropped and counted rather than
+ * stalling a race. Queue depth, lag and outcomes are reported as gauges in
+ * the {@link ServerMetrics}. Listeners are told about each batch once it is saved.
+ */
+public class RaceResultWriter {
+
+    // Constants.
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    // Results queued at once, configurable with -Dgame.server.resultQueueSize=20000.
+    private static final int QUEUE_CAPACITY = Math.max(1,
+            Integer.getInteger("game.server.resultQueueSize", DEFAULT_QUEUE_CAPACITY));
+    private static final int MAX_BATCH = 200;
+    private static final long POLL_MS = 1000;
+    private static final long FIRST_RETRY_MS = 100;
+    private static final long MAX_RETRY_MS = 5000;
+    // How long shutdown waits for the queue to drain.
+    private static final long SHUTDOWN_WAIT_MS = 5000;
+
+    // Object properties.
+    private final PlayerStore store;
+    private final BlockingQueue<RaceResult> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final List<Consumer<List<RaceResult>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile long inFlightSince = 0;
+    private volatile boolean stopping = false;
+    private Thread writer;
+
+    // Constructor.
+    public RaceResultWriter(PlayerStore store) {
+        this.store = store;
+    }
+
+    // Called on the writer thread with every batch that was saved.
+    public void addListener(Consumer<List<RaceResult>> listener) {
+        listeners.add(listener);
+    }
+
+    public void start(ServerMetrics metrics) {
+        metrics.registerGauge("result_queue_depth", queue::size);
+        metrics.registerGauge("result_queue_lag_ms", this::getLagMs);
+        metrics.registerGauge("results_written_total", written::sum);
+        metrics.registerGauge("results_dropped_total", dropped::sum);
+        metrics.registerGauge("results_failed_total", failed::sum);
+        metrics.registerGauge("result_write_retries_total", retries::sum);
+
+        writer = new Thread(this::writeLoop, "RaceResultWriter");
+        writer.setDaemon(true);
+        writer.start();
+        // Save what is still queued when the server is stopped.
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "RaceResultWriter-Shutdown"));
+    }
+
+    // Queue a result for saving; never blocks. Returns false if the queue was full and the result was dropped.
+    public boolean submit(RaceResult result) {
+        if (queue.offer(result)) return true;
+        dropped.increment();
+        System.err.println("[Server] Race result queue is full, dropping the result for "
+                + (result.getUsername() == null ? "player " + result.getPlayerNumber() : result.getUsername()));
+        return false;
+    }
+
+    // Age of the oldest result not yet saved, in milliseconds.
+    public long getLagMs() {
+        long oldest = inFlightSince;
+        RaceResult next = queue.peek();
+        if (oldest == 0 && next != null) oldest = next.getFinishedAt();
+        return (oldest == 0) ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
+    public void shutdown() {
+        if (writer == null || stopping) return;
+        stopping = true;
+        writer.interrupt();
+        try {
+            writer.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) System.err.println("[Server] " + queue.size() + " race results were not saved");
+    }
+
+    private void writeLoop() {
+        List<RaceResult> batch = new ArrayList<>(MAX_BATCH);
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                RaceResult first = stopping ? queue.poll() : queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                inFlightSince = first.getFinishedAt();
+                write(batch);
+            } catch (InterruptedException e) {
+                // Woken up by shutdown; the loop drains whatever is left.
+            } finally {
+                batch.clear();
+                inFlightSince = 0;
+            }
+        }
+    }
+
+    // Keep retrying transient failures; give up on the batch once shutting down or on any other error.
+    private void write(List<RaceResult> batch) {
+        long backoff = FIRST_RETRY_MS;
+        while (true) {
+            try {
+                store.recordRaceResults(batch);
+                written.add(batch.size());
+                notifyListeners(batch);
+                return;
+            } catch (SQLException e) {
+                if (!isTransient(e) || stopping) {
+                    failed.add(batch.size());
+                    System.err.println("[Server] Failed to save " + batch.size() + " race results: " + e.getMessage());
+                    return;
+                }
+                retries.increment();
+                System.err.println("[Server] Saving race results failed, retrying in " + backoff + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    // Shutting down: one last attempt, then the batch is given up.
+                }
+                backoff = Math.min(MAX_RETRY_MS, backoff * 2);
+            } catch (RuntimeException e) {
+                failed.add(batch.size());
+                System.err.println("[Server] Failed to save " + batch.size() + " race results: " + e);
+                return;
+            }
+        }
+    }
+
+    private void notifyListeners(List<RaceResult> batch) {
+        for (Consumer<List<RaceResult>> listener : listeners) {
+            try {
+                listener.accept(batch);
+            } catch (RuntimeException e) {
+                System.err.println("[Server] Race result listener failed: " + e);
+            }
+        }
+    }
+
+    // Lost connections, timeouts, deadlocks and lock waits are worth retrying.
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) return true;
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("08") || state.startsWith("40"));
+    }
+}
@@ -0,0 +1,50 @@
+package game.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code Room} class groups one lobby and the race it starts. Each room
+ * has its own player numbers, kart choices, map and tick loop, so a single
+ * server can run many races at the same time. Membership is tracked apart
+ * from the lobby and the race: a player who just finished a race is in
+ * neither, but still belongs to the room until they leave it.
+ */
+public class Room {
+
+    // Object properties.
+    private final int roomId;
+    private final LobbyManager lobby;
+    private final GameManager game;
+    // Changed only through RoomManager, under its lock, so a room is never removed while someone joins it.
+    private final Set<ClientHandler> members = ConcurrentHashMap.newKeySet();
+
+    // Property access methods.
+    public int getRoomId() { return roomId; }
+    public LobbyManager getLobby() { return lobby; }
+    public GameManager getGame() { return game; }
+
+    // Constructor.
+    Room(int roomId) {
+        this.roomId = roomId;
+        this.lobby = new LobbyManager(this);
+        this.game = new GameManager(this);
+    }
+
+    // A room accepts new players while it is waiting in the lobby and has a free player number.
+    public boolean isOpen() {
+        return !game.isGameActive() && lobby.hasFreeSlot();
+    }
+
+    public int getPlayerCount() {
+        return members.size();
+    }
+
+    boolean addMember(ClientHandler player) {
+        return members.add(player);
+    }
+
+    boolean removeMember(ClientHandler player) {
+        return members.remove(player);
+    }
+}
@@ -0,0 +1,126 @@
+package game.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code RoomManager} utility class keeps track of every {@code Room} on the
+ * server. Clients either pick a room with {@code JOIN_ROOM} or are placed in the
+ * first open one, and empty rooms are discarded once their last player leaves.
+ */
+public class RoomManager {
+
+    // Constants.
+    private static final int DEFAULT_MAX_ROOMS = 64;
+    // Upper bound on concurrent rooms, configurable with -Dgame.server.maxRooms=128.
+    private static final int MAX_ROOMS = Math.max(1, Integer.getInteger("game.server.maxRooms", DEFAULT_MAX_ROOMS));
+
+    // Room properties.
+    private static final Map<Integer, Room> rooms = new TreeMap<>();
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static int nextRoomId = 1;
+
+    // Prevent object creation from the implicit public constructor.
+    private RoomManager() {
+        throw new IllegalStateException("Tried to instantiate the RoomManager utility class");
+    }
+
+    // Returns null once MAX_ROOMS rooms exist.
+    public static Room createRoom() {
+        lock.lock();
+        try {
+            if (rooms.size() >= MAX_ROOMS) {
+                System.err.println("[Room] createRoom: limit of " + MAX_ROOMS + " rooms reached");
+                return null;
+            }
+            Room room = new Room(nextRoomId++);
+            rooms.put(room.getRoomId(), room);
+            System.out.println("[Room] Created room " + room.getRoomId() + " (" + rooms.size() + " rooms)");
+            return room;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static Room getRoom(int roomId) {
+        lock.lock();
+        try {
+            return rooms.get(roomId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lowest-numbered room still in its lobby with a free slot, creating one if none is.
+    public static Room findOpenRoom() {
+        lock.lock();
+        try {
+            for (Room room : rooms.values()) {
+                if (room.isOpen()) return room;
+            }
+            return createRoom();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Join the first open room, creating one if none is; null once MAX_ROOMS rooms exist.
+    public static Room joinOpenRoom(ClientHandler player) {
+        lock.lock();
+        try {
+            Room room = findOpenRoom();
+            if (room != null) room.addMember(player);
+            return room;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // False if the room was removed in the meantime.
+    public static boolean joinRoom(Room room, ClientHandler player) {
+        lock.lock();
+        try {
+            if (rooms.get(room.getRoomId()) != room) return false;
+            room.addMember(player);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The room is removed once its last member leaves.
+    public static void leaveRoom(Room room, ClientHandler player) {
+        lock.lock();
+        try {
+            room.removeMember(player);
+            removeRoomIfEmpty(room);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static List<Room> getRooms() {
+        lock.lock();
+        try {
+            return new ArrayList<>(rooms.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static void removeRoomIfEmpty(Room room) {
+        lock.lock();
+        try {
+            if (room.getPlayerCount() > 0) return;
+            room.getGame().endGame();
+            if (rooms.remove(room.getRoomId()) != null) {
+                System.out.println("[Room] Removed empty room " + room.getRoomId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
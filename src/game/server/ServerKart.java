@@ -0,0 +1,87 @@
+package game.server;
+
+import game.simulation.KartPhysics;
+import game.simulation.Track;
+
+import java.awt.*;
+
+/**
+ * The {@code ServerKart} class holds the server's copy of a kart's state
+ * during a race. Between client reports it is moved by the same
+ * {@link KartPhysics} as the client's kart, over the race's {@link Track},
+ * so every tick broadcasts a consistent position for each kart. A report
+ * that would put the kart off the track keeps the server's position, and
+ * the owner is corrected through its acknowledgement.
+ */
+public class ServerKart extends KartPhysics {
+
+    // Object properties.
+    private long lastReportTime;
+    // Tick time not yet simulated, since ticks are not a whole number of steps.
+    private long unsimulatedMs = 0;
+    // State after the newest sequenced report, echoed to the owner so it can reconcile its prediction.
+    private int reportSequence = -1;
+    private boolean acknowledgementPending = false;
+    private float reportRotation;
+    private float reportSpeed;
+    private float reportPositionX;
+    private float reportPositionY;
+
+    // Property access methods.
+    public float getPositionX()     { return getPosition().x; }
+    public float getPositionY()     { return getPosition().y; }
+    public long getLastReportTime() { return lastReportTime; }
+    public int getReportSequence()  { return reportSequence; }
+    public float getReportRotation()  { return reportRotation; }
+    public float getReportSpeed()     { return reportSpeed; }
+    public float getReportPositionX() { return reportPositionX; }
+    public float getReportPositionY() { return reportPositionY; }
+
+    // Constructor.
+    public ServerKart(int kartNumber, Track track) {
+        this(kartNumber, track, startPosition(kartNumber, track));
+    }
+
+    private ServerKart(int kartNumber, Track track, Point start) {
+        super(kartNumber, track.getStartDirection(), start.x, start.y, track);
+    }
+
+    // Grid slot of the kart, wrapping round if the room holds more players than the grid.
+    private static Point startPosition(int kartNumber, Track track) {
+        return track.getStartPosition((Math.max(1, kartNumber) - 1) % track.getGridSize() + 1);
+    }
+
+    // Replace the simulated state with the latest state reported by the owning client.
+    // A sequence number of -1 means the client does not predict its kart and needs no acknowledgement.
+    public void applyReport(float rotation, float speed, float positionX, float positionY, long timestamp, int sequence) {
+        float previousX = getPosition().x;
+        float previousY = getPosition().y;
+        applyRemoteState(rotation, speed, positionX, positionY);
+        if (!getTrack().contains(getHitBox())) applyRemoteState(rotation, speed, previousX, previousY);
+        this.lastReportTime = timestamp;
+        if (sequence < 0 || sequence <= reportSequence) return;
+        reportSequence = sequence;
+        reportRotation = getRotation();
+        reportSpeed = getSpeed();
+        reportPositionX = getPosition().x;
+        reportPositionY = getPosition().y;
+        acknowledgementPending = true;
+    }
+
+    // True once per sequenced report, when its acknowledgement should be sent.
+    public boolean takeAcknowledgement() {
+        boolean pending = acknowledgementPending;
+        acknowledgementPending = false;
+        return pending;
+    }
+
+    // Move the kart on by one server tick, in the client's fixed steps. The server does not know
+    // the player's input, so the kart keeps its speed and heading until the next report.
+    public void advance(long tickMs) {
+        unsimulatedMs += tickMs;
+        long steps = unsimulatedMs / STEP_MS;
+        unsimulatedMs -= steps * STEP_MS;
+        if (!isMoving()) return;
+        for (long i = 0; i < steps; i++) updatePosition();
+    }
+}
@@ -0,0 +1,209 @@
+package game.server;
+
+import com.sun.net.httpserver.HttpServer;
+import game.common.LatencyHistogram;
+import game.common.WriteStats;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code ServerMetrics} class counts what the game server does: messages
+ * received and sent, how long each command takes to handle and how long it
+ * waited for a worker, how long database calls and broadcasts take and how
+ * many players each broadcast reaches, plus gauges such as connected clients
+ * and queued output. Recording is a counter increment and a histogram
+ * bucket increment, so it stays on in production. The metrics are registered
+ * with JMX and, with {@code -Dgame.server.metricsPort=9100}, served as text
+ * in the Prometheus format from {@code http://127.0.0.1:9100/metrics}.
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+
+    // Constants.
+    private static final int METRICS_PORT = Integer.getInteger("game.server.metricsPort", 0);
+    private static final String OBJECT_NAME = "game.server:type=ServerMetrics";
+    // Commands are named by clients, so only this many distinct names get their own series.
+    private static final int MAX_COMMAND_NAMES = 64;
+    private static final String OTHER_COMMAND = "OTHER";
+    private static final double[] QUANTILES = { 50, 90, 99 };
+
+    // Object properties.
+    private final WriteStats writeStats;
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LatencyHistogram allCommands = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<>();
+    private final LatencyHistogram dispatchDelay = new LatencyHistogram();
+    private final LatencyHistogram allDatabaseCalls = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> databaseCalls = new ConcurrentHashMap<>();
+    private final Map<String, Broadcast> broadcasts = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    // Constructor.
+    public ServerMetrics(WriteStats writeStats) {
+        this.writeStats = writeStats;
+    }
+
+    // Time taken to handle one command, by its first word.
+    public void recordCommand(String command, long nanos) {
+        messagesReceived.increment();
+        long micros = nanos / 1000;
+        allCommands.record(micros);
+        LatencyHistogram histogram = commands.get(command);
+        if (histogram == null) {
+            boolean plainName = !command.isEmpty() && command.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '_');
+            String name = (plainName && commands.size() < MAX_COMMAND_NAMES) ? command : OTHER_COMMAND;
+            histogram = commands.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        histogram.record(micros);
+    }
+
+    // Time a received command waited before a worker started on it.
+    public void recordDispatchDelay(long nanos) {
+        dispatchDelay.record(nanos / 1000);
+    }
+
+    public void recordDatabaseCall(String operation, long nanos) {
+        long micros = nanos / 1000;
+        allDatabaseCalls.record(micros);
+        databaseCalls.computeIfAbsent(operation, key -> new LatencyHistogram()).record(micros);
+    }
+
+    // One message of the given kind sent to several players.
+    public void recordBroadcast(String kind, int recipients, long nanos) {
+        Broadcast broadcast = broadcasts.computeIfAbsent(kind, key -> new Broadcast());
+        broadcast.latency.record(nanos / 1000);
+        broadcast.recipients.add(recipients);
+    }
+
+    // A value read whenever the metrics are reported.
+    public void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // A histogram kept by another component, reported under the given name.
+    public void registerHistogram(String name, LatencyHistogram histogram) {
+        histograms.put(name, histogram);
+    }
+
+    // Register with JMX, and start the HTTP endpoint if a port was given.
+    public void startExporting() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("[Server] Failed to register metrics with JMX: " + e.getMessage());
+        }
+        if (METRICS_PORT <= 0) return;
+        try {
+            // Loopback only: the endpoint is for an agent on the same host.
+            HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), METRICS_PORT), 0);
+            http.createContext("/metrics", exchange -> {
+                byte[] body = getReport().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            });
+            http.start();
+            System.out.println("[Server] Metrics served on http://127.0.0.1:" + METRICS_PORT + "/metrics");
+        } catch (IOException e) {
+            System.err.println("[Server] Failed to start the metrics endpoint: " + e.getMessage());
+        }
+    }
+
+    @Override public long getConnectedClients()          { return gauge("connected_clients"); }
+    @Override public long getActiveRaces()               { return gauge("active_races"); }
+    @Override public long getMessagesReceived()          { return messagesReceived.sum(); }
+    @Override public long getMessagesSent()              { return writeStats.getMessages(); }
+    @Override public long getOutboundQueuedBytes()       { return gauge("outbound_queued_bytes"); }
+    @Override public long getWorkerQueueDepth()          { return gauge("worker_queue_depth"); }
+    @Override public long getCommandLatencyP50Micros()   { return allCommands.getValueAtPercentile(50); }
+    @Override public long getCommandLatencyP99Micros()   { return allCommands.getValueAtPercentile(99); }
+    @Override public long getDispatchDelayP99Micros()    { return dispatchDelay.getValueAtPercentile(99); }
+    @Override public long getDatabaseLatencyP99Micros()  { return allDatabaseCalls.getValueAtPercentile(99); }
+
+    @Override
+    public long getKartSnapshotLatencyP99Micros() {
+        Broadcast broadcast = broadcasts.get("kart_snapshot");
+        return broadcast == null ? 0 : broadcast.latency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public void resetLatencies() {
+        allCommands.reset();
+        dispatchDelay.reset();
+        allDatabaseCalls.reset();
+        for (LatencyHistogram histogram : commands.values()) histogram.reset();
+        for (LatencyHistogram histogram : databaseCalls.values()) histogram.reset();
+        for (Broadcast broadcast : broadcasts.values()) broadcast.latency.reset();
+        for (LatencyHistogram histogram : histograms.values()) histogram.reset();
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder(4096);
+        for (Map.Entry<String, LongSupplier> gauge : new TreeMap<>(gauges).entrySet()) {
+            line(report, gauge.getKey(), "", gauge.getValue().getAsLong());
+        }
+        line(report, "messages_received_total", "", messagesReceived.sum());
+        line(report, "messages_sent_total", "", writeStats.getMessages());
+        line(report, "socket_writes_total", "", writeStats.getWrites());
+        line(report, "bytes_sent_total", "", writeStats.getBytes());
+
+        for (Map.Entry<String, LatencyHistogram> command : new TreeMap<>(commands).entrySet()) {
+            histogram(report, "command", "command=\"" + command.getKey() + "\"", command.getValue());
+        }
+        histogram(report, "dispatch_queue", "", dispatchDelay);
+        for (Map.Entry<String, LatencyHistogram> call : new TreeMap<>(databaseCalls).entrySet()) {
+            histogram(report, "db_call", "operation=\"" + call.getKey() + "\"", call.getValue());
+        }
+        for (Map.Entry<String, Broadcast> broadcast : new TreeMap<>(broadcasts).entrySet()) {
+            String labels = "kind=\"" + broadcast.getKey() + "\"";
+            histogram(report, "broadcast", labels, broadcast.getValue().latency);
+            line(report, "broadcast_recipients_total", labels, broadcast.getValue().recipients.sum());
+        }
+        for (Map.Entry<String, LatencyHistogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            histogram(report, histogram.getKey(), "", histogram.getValue());
+        }
+        return report.toString();
+    }
+
+    private long gauge(String name) {
+        LongSupplier value = gauges.get(name);
+        return value == null ? 0 : value.getAsLong();
+    }
+
+    // <name>_total, then <name>_latency_us for each quantile and the maximum.
+    private static void histogram(StringBuilder report, String name, String labels, LatencyHistogram histogram) {
+        String separator = labels.isEmpty() ? "" : ",";
+        line(report, name + "_total", labels, histogram.getCount());
+        for (double quantile : QUANTILES) {
+            line(report, name + "_latency_us", labels + separator + "quantile=\"" + quantile / 100 + "\"",
+                    histogram.getValueAtPercentile(quantile));
+        }
+        line(report, name + "_latency_us_max", labels, histogram.getMax());
+    }
+
+    private static void line(StringBuilder report, String name, String labels, long value) {
+        report.append("game_server_").append(name);
+        if (!labels.isEmpty()) report.append('{').append(labels).append('}');
+        report.append(' ').append(value).append('\n');
+    }
+
+    private static class Broadcast {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder recipients = new LongAdder();
+    }
+}
@@ -0,0 +1,26 @@
+package game.server;
+
+/**
+ * The {@code ServerMetricsMBean} interface is the JMX view of {@link ServerMetrics},
+ * registered as {@code game.server:type=ServerMetrics}. Latencies are in microseconds
+ * and cover everything since the start or the last {@link #resetLatencies}.
+ */
+public interface ServerMetricsMBean {
+
+    long getConnectedClients();
+    long getActiveRaces();
+    long getMessagesReceived();
+    long getMessagesSent();
+    long getOutboundQueuedBytes();
+    long getWorkerQueueDepth();
+    long getCommandLatencyP50Micros();
+    long getCommandLatencyP99Micros();
+    long getDispatchDelayP99Micros();
+    long getDatabaseLatencyP99Micros();
+    long getKartSnapshotLatencyP99Micros();
+
+    // Every metric in the text format served over HTTP.
+    String getReport();
+
+    void resetLatencies();
+}
@@ -0,0 +1,153 @@
+package game.server;
+
+import game.common.ProtocolReader;
+import game.common.WriteBatch;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code SocketConnection} class is the blocking {@code ClientConnection}
+ * used when each client is serviced by its own thread. Sends only queue the
+ * message; a writer task drains the {@code OutboundQueue} to the socket so a
+ * stalled receiver never blocks the thread that produced the message.
+ */
+public class SocketConnection implements ClientConnection {
+
+    // Constants.
+    private static final int OUTPUT_BUFFER_BYTES = 8192;
+    // Writers only run while a connection has output pending.
+    private static final ExecutorService writers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "SocketConnection-Writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Object properties.
+    private final Socket socket;
+    private final ProtocolReader inputStream;
+    private final OutputStream outputStream;
+    // Queued messages are copied in here so each flush is a single write call; only the writer touches it.
+    private byte[] writeBuffer = new byte[OUTPUT_BUFFER_BYTES];
+    private final OutboundQueue writeQueue = new OutboundQueue();
+    private final AtomicBoolean writerScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // Constructor.
+    public SocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        // Output is already coalesced per flush, so Nagle would only add latency.
+        socket.setTcpNoDelay(true);
+        inputStream = new ProtocolReader(socket.getInputStream());
+        outputStream = socket.getOutputStream();
+    }
+
+    public String readLine(ProtocolReader.FrameListener frames) throws IOException {
+        return inputStream.readLine(frames);
+    }
+
+    @Override
+    public void sendLine(String line) {
+        if (closed.get()) return;
+        onQueued(writeQueue.add(OutboundQueue.encodeLine(line)));
+    }
+
+    @Override
+    public void sendFrame(byte[] frame) {
+        if (closed.get()) return;
+        onQueued(writeQueue.add(ByteBuffer.wrap(frame)));
+    }
+
+    @Override
+    public void sendKartState(byte[] message) {
+        if (closed.get()) return;
+        onQueued(writeQueue.addKartState(ByteBuffer.wrap(message)));
+    }
+
+    private void onQueued(boolean withinLimits) {
+        if (!withinLimits) {
+            System.err.println("[Server] Evicting slow client " + getRemoteAddress() + " with "
+                    + writeQueue.getQueuedBytes() + " bytes unsent");
+            abort();
+            return;
+        }
+        ClientManager.getWriteStats().recordMessage();
+        if (!WriteBatch.defer(this)) flush();
+    }
+
+    @Override
+    public void flush() {
+        scheduleWriter();
+    }
+
+    private void scheduleWriter() {
+        if (writerScheduled.compareAndSet(false, true)) writers.execute(this::drain);
+    }
+
+    // Writer task: write everything queued in one call, then check for output that raced in.
+    private void drain() {
+        try {
+            do {
+                int count = 0;
+                ByteBuffer buffer;
+                while ((buffer = writeQueue.peek()) != null) {
+                    int length = buffer.remaining();
+                    if (count + length > writeBuffer.length) {
+                        writeBuffer = Arrays.copyOf(writeBuffer, Math.max(writeBuffer.length * 2, count + length));
+                    }
+                    buffer.get(writeBuffer, count, length);
+                    count += length;
+                    writeQueue.remove();
+                }
+                if (count > 0) {
+                    outputStream.write(writeBuffer, 0, count);
+                    ClientManager.getWriteStats().recordFlush(1, count);
+                }
+                writerScheduled.set(false);
+            } while (!writeQueue.isEmpty() && writerScheduled.compareAndSet(false, true));
+            if (closed.get()) closeSocket();
+        } catch (IOException e) {
+            System.err.println("[Server] Failed to write to " + getRemoteAddress() + ": " + e.getMessage());
+            writerScheduled.set(false);
+            abort();
+        }
+    }
+
+    // Stop accepting output, write whatever is already queued, then close the socket.
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        scheduleWriter();
+    }
+
+    // Drop queued output and close straight away.
+    private void abort() {
+        closed.set(true);
+        writeQueue.clear();
+        closeSocket();
+    }
+
+    private void closeSocket() {
+        try {
+            // Unblocks the handler's read loop, which then ends the connection.
+            socket.close();
+        } catch (IOException e) {
+            System.err.println("[Server] Failed to close socket: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public int getQueuedBytes() {
+        return writeQueue.getQueuedBytes();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+}
@@ -0,0 +1,113 @@
+package game.server;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The {@code TimedPlayerStore} class wraps another {@link PlayerStore} and
+ * records how long each call takes in the {@link ServerMetrics}.
+ */
+public class TimedPlayerStore implements PlayerStore {
+
+    // Object properties.
+    private final PlayerStore store;
+    private final ServerMetrics metrics;
+
+    // Constructor.
+    public TimedPlayerStore(PlayerStore store, ServerMetrics metrics) {
+        this.store = store;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean authenticate(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return store.authenticate(username, password);
+        } finally {
+            metrics.recordDatabaseCall("authenticate", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public PlayerProfile login(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return store.login(username, password);
+        } finally {
+            metrics.recordDatabaseCall("login", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean registerPlayer(String username, String password) {
+        return time("registerPlayer", () -> store.registerPlayer(username, password));
+    }
+
+    @Override
+    public void recordWin(String username) {
+        time("recordWin", () -> { store.recordWin(username); return null; });
+    }
+
+    @Override
+    public int getPlayerWins(String username) {
+        return time("getPlayerWins", () -> store.getPlayerWins(username));
+    }
+
+    @Override
+    public PlayerProfile getProfile(String username) {
+        return time("getProfile", () -> store.getProfile(username));
+    }
+
+    @Override
+    public void recordRace(String username) {
+        time("recordRace", () -> { store.recordRace(username); return null; });
+    }
+
+    @Override
+    public void recordRace(int winnerId) {
+        time("recordRace", () -> { store.recordRace(winnerId); return null; });
+    }
+
+    @Override
+    public int countRacesForPlayer(String username) {
+        return time("countRacesForPlayer", () -> store.countRacesForPlayer(username));
+    }
+
+    @Override
+    public void recordRaceResults(List<RaceResult> results) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            store.recordRaceResults(results);
+        } finally {
+            metrics.recordDatabaseCall("recordRaceResults", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> loadWins(LeaderboardPeriod period, LocalDate periodStart) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return store.loadWins(period, periodStart);
+        } finally {
+            metrics.recordDatabaseCall("loadWins", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void registerMetrics(ServerMetrics metrics) {
+        store.registerMetrics(metrics);
+    }
+
+    private <T> T time(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            metrics.recordDatabaseCall(operation, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package game.simulation;
+
+/**
+ * The {@code KartInput} utility class packs the player's control state for one
+ * frame into a bit set, so it can be stored for replay and applied to a
+ * kart the same way whether the frame is live, replayed or simulated headless.
+ */
+public class KartInput {
+
+    // Constants.
+    public static final int FORWARD  = 1;
+    public static final int BACKWARD = 1 << 1;
+    public static final int LEFT     = 1 << 2;
+    public static final int RIGHT    = 1 << 3;
+    public static final int BRAKE    = 1 << 4;
+    public static final int NITRO    = 1 << 5;
+
+    // Prevent object creation from the implicit public constructor.
+    private KartInput() {
+        throw new IllegalStateException("Tried to instantiate the KartInput utility class");
+    }
+
+    public static int of(boolean forward, boolean backward, boolean left, boolean right, boolean brake, boolean nitro) {
+        int input = 0;
+        if (forward) input |= FORWARD;
+        if (backward) input |= BACKWARD;
+        if (left) input |= LEFT;
+        if (right) input |= RIGHT;
+        if (brake) input |= BRAKE;
+        if (nitro) input |= NITRO;
+        return input;
+    }
+
+    public static boolean isSet(int input, int flag) {
+        return (input & flag) != 0;
+    }
+
+    // Apply the steering, throttle and brake of one frame.
+    public static void apply(KartPhysics kart, int input) {
+        // If player is slipping, block applying inputs to the kart but keep key flags intact
+        if (kart.isSlipping()) {
+            // allow brake to still function if desired
+            if (isSet(input, BRAKE)) kart.applyBrake();
+            return;
+        }
+
+        if (isSet(input, RIGHT)) kart.updateRotation(KartPhysics.TURN_RIGHT);
+        else if (isSet(input, LEFT)) kart.updateRotation(KartPhysics.TURN_LEFT);
+
+        if (isSet(input, FORWARD)) kart.updateSpeed(1);
+        else if (isSet(input, BACKWARD)) kart.updateSpeed(-1);
+
+        // Brake (space) - strong deceleration while active
+        if (isSet(input, BRAKE)) kart.applyBrake();
+    }
+}
@@ -0,0 +1,399 @@
+package game.simulation;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code KartPhysics} class holds a kart's state and moves it over a
+ * {@link Track}: steering, throttle and braking, wall hits, the slow-down
+ * after a kart collision, banana slips and nitro. It needs no display or
+ * sound, so the server, benchmarks and tests can drive karts headless; the
+ * client's {@code Kart} extends it with sprites and overrides the event
+ * hooks to play sounds. Time comes from a supplied clock, which defaults to
+ * the system clock.
+ */
+public class KartPhysics {
+
+    // Constants.
+    public static final int KART_SIZE               = 50;
+    public static final int TURN_CIRCLE             = 160;
+    // Speeds are per step of this length, wherever the kart is simulated.
+    public static final long STEP_MS                = 15;
+    public static final long COLLISION_EFFECT_MS    = 5000;
+    private static final float SPEED_MAX            = 2f;
+    private static final int SPEED_MIN              = 0;
+    private static final float ACCELERATION         = 0.1f;
+    private static final float TURN_SPEED           = 1.5f;
+    private static final int HIT_BOX_BUFFER         = 15;
+    private static final float SLOW_RATE            = 0.025f;
+    private static final float WALL_BOUNCE_DISTANCE = 1.5f;
+    private static final long SLIP_SOUND_MS         = 200;
+    private static final float NITRO_DEPLETION_RATE   = 40f;  // percent per second
+    private static final float NITRO_RECHARGE_RATE    = 10f;  // percent per second when not in use
+    private static final float NITRO_BOOST_MULTIPLIER = 1.8f; // speed multiplier during nitro
+    private static final int BOTTOM = 0;
+    private static final int RIGHT  = 1;
+    private static final int TOP    = 2;
+    private static final int LEFT   = 3;
+
+    public static final int TURN_RIGHT = 0;
+    public static final int TURN_LEFT  = 1;
+
+    // Object properties.
+    private final int kartNumber;
+    private final Track track;
+    private final LongSupplier clock;
+    private int direction;
+    private float rotation;
+    private float speed;
+    private final Point2D.Float position = new Point2D.Float();
+    private final Rectangle hitBox;
+    private boolean kartCrashed;
+    private boolean wallHitReported = false;
+    private final Point2D.Float wallNormal = new Point2D.Float();
+
+    // Collision slow-down and the speed to recover to.
+    private long slowUntil = 0;
+    private long flashStart = 0;
+    private float savedOriginalSpeed = 0f;
+    private long pendingCollisionStart = 0;
+
+    // Slip (banana) state.
+    private long slipUntil = 0;
+    private long slipStart = 0;
+    private float slipSavedSpeed = 0f;
+    private float slipSpinRate = 8f;
+
+    // Nitro (boost) state; a depleted tank does not recharge until reset.
+    private float nitroCapacity = 100f;
+    private boolean nitroActive = false;
+    private boolean nitroDepleted = false;
+    private long lastNitroUpdate;
+
+    // Property access methods.
+    public int getKartNumber()                  { return kartNumber; }
+    public Track getTrack()                     { return track; }
+    public int getDirection()                   { return direction; }
+    public float getSpeed()                     { return speed; }
+    public float getRotation()                  { return rotation; }
+    public Rectangle getHitBox()                { return hitBox; }
+    public Point2D.Float getPosition()          { return position; }
+    public boolean hasCrashed()                 { return kartCrashed; }
+    public boolean isFlashing()                 { return now() < slowUntil; }
+    public long getFlashStart()                 { return flashStart; }
+    public long getSlowUntil()                  { return slowUntil; }
+    public long getPendingCollisionStart()      { return pendingCollisionStart; }
+    public boolean isSlipping()                 { return now() < slipUntil; }
+    public long getSlipUntil()                  { return slipUntil; }
+    public float getNitroCapacity()             { return nitroCapacity; }
+    public boolean isNitroActive()              { return nitroActive; }
+
+    public void setRotation(float newRotation) {
+        rotation = newRotation;
+    }
+
+    public void setSpeed(float newSpeed) {
+        speed = newSpeed;
+    }
+
+    public void setPosition(float x, float y) {
+        position.x = x;
+        position.y = y;
+    }
+
+    // Constructor.
+    public KartPhysics(int kartNumber, int startDirection, float x, float y, Track track) {
+        this(kartNumber, startDirection, x, y, KART_SIZE, KART_SIZE, track, System::currentTimeMillis);
+    }
+
+    // Width and height are the kart sprite's; the hit box is inset from them to be forgiving.
+    public KartPhysics(int kartNumber, int startDirection, float x, float y, int width, int height,
+                       Track track, LongSupplier clock) {
+        this.kartNumber = kartNumber;
+        this.track = track;
+        this.clock = clock;
+        direction = startDirection;
+        rotation = (float) direction * 10;
+        position.setLocation(x, y);
+        hitBox = new Rectangle((int) x + HIT_BOX_BUFFER, (int) y + HIT_BOX_BUFFER,
+                width - HIT_BOX_BUFFER * 2, height - HIT_BOX_BUFFER * 2);
+        lastNitroUpdate = now();
+    }
+
+    protected long now() {
+        return clock.getAsLong();
+    }
+
+    // Event hooks, called during updates that are not replays. The client plays sounds from them.
+    protected void onWallHit() {}
+    protected void onCollisionStarted() {}
+    protected void onSlipping() {}
+    protected void onNitroStarted() {}
+    protected void onEffectsFinished() {}
+
+    // Place the kart at a state received from the server instead of simulating it.
+    public void applyRemoteState(float newRotation, float newSpeed, float x, float y) {
+        rotation = newRotation;
+        speed = newSpeed;
+        position.setLocation(x, y);
+        hitBox.setLocation((int) x + HIT_BOX_BUFFER, (int) y + HIT_BOX_BUFFER);
+        updateDirection();
+    }
+
+    public boolean isMoving() {
+        return speed != SPEED_MIN;
+    }
+
+    public void reduceSpeed() {
+        if (speed < SPEED_MIN - SLOW_RATE) speed += SLOW_RATE;
+        else if (speed > SPEED_MIN + SLOW_RATE) speed -= SLOW_RATE;
+        else speed = SPEED_MIN;
+    }
+
+    public void updatePosition() {
+        // Nitro drains or refills first, so an empty tank stops boosting this step.
+        updateNitro(now());
+        updatePosition(nitroActive, false);
+    }
+
+    // Re-run one step of movement during reconciliation: no events, nitro gauge or scheduled effects.
+    public void replayPosition(boolean boosted) {
+        updatePosition(boosted, true);
+    }
+
+    private void updatePosition(boolean boosted, boolean replaying) {
+        long now = now();
+
+        float effectiveSpeed = speed;
+        if (boosted) effectiveSpeed = speed * NITRO_BOOST_MULTIPLIER;
+
+        // A small push so nitro is noticeable even from a standstill.
+        if (boosted && speed <= 0f) {
+            speed = Math.min(SPEED_MAX, ACCELERATION * 6f);
+            effectiveSpeed = speed * NITRO_BOOST_MULTIPLIER;
+        }
+
+        float newPositionX = position.x + getDirectionMultiplierX() * effectiveSpeed;
+        float newPositionY = position.y + getDirectionMultiplierY() * effectiveSpeed;
+        hitBox.setLocation((int) newPositionX + HIT_BOX_BUFFER, (int) newPositionY + HIT_BOX_BUFFER);
+
+        // A collision scheduled by either client starts here once its time arrives.
+        if (!replaying && pendingCollisionStart > 0 && now >= pendingCollisionStart) {
+            onKartCollision(pendingCollisionStart, savedOriginalSpeed);
+            pendingCollisionStart = 0;
+        }
+
+        if (isNewPositionOnTrack(!replaying)) {
+            kartCrashed = false;
+            wallHitReported = false;
+            if (now < slowUntil) {
+                // Recover from 0 back to the speed before the collision; the stored speed stays at 0 meanwhile.
+                float progress = (float) (now - flashStart) / (float) COLLISION_EFFECT_MS;
+                progress = Math.max(0f, Math.min(1f, progress));
+                float recoverySpeed = savedOriginalSpeed * progress;
+                position.setLocation(position.x + getDirectionMultiplierX() * recoverySpeed,
+                        position.y + getDirectionMultiplierY() * recoverySpeed);
+            }
+            else {
+                position.setLocation(position.x + getDirectionMultiplierX() * effectiveSpeed,
+                        position.y + getDirectionMultiplierY() * effectiveSpeed);
+            }
+        }
+
+        // Slipping on a banana spins the kart and carries it on at most of its old speed.
+        if (now < slipUntil) {
+            rotation = (rotation + slipSpinRate) % TURN_CIRCLE;
+            updateDirection();
+            float slipSpeed = slipSavedSpeed * 0.9f;
+            position.setLocation(position.x + getDirectionMultiplierX() * slipSpeed,
+                    position.y + getDirectionMultiplierY() * slipSpeed);
+            if (!replaying && now - slipStart < SLIP_SOUND_MS) onSlipping();
+        }
+
+        if (!replaying && now >= slowUntil && now >= slipUntil) onEffectsFinished();
+    }
+
+    private void updateNitro(long now) {
+        float deltaSec = (now - lastNitroUpdate) / 1000f;
+        lastNitroUpdate = now;
+        if (nitroActive) {
+            nitroCapacity -= NITRO_DEPLETION_RATE * deltaSec;
+            if (nitroCapacity <= 0f) {
+                nitroCapacity = 0f;
+                nitroActive = false;
+                nitroDepleted = true;
+            }
+        }
+        else if (!nitroDepleted) {
+            nitroCapacity = Math.min(100f, nitroCapacity + NITRO_RECHARGE_RATE * deltaSec);
+        }
+    }
+
+    public boolean isNewPositionOnTrack() {
+        return isNewPositionOnTrack(true);
+    }
+
+    private boolean isNewPositionOnTrack(boolean reportWallHit) {
+        if (track.contains(hitBox)) return true;
+
+        kartCrashed = true;
+        speed = -0.5f; // Bounce off the boundary.
+        // Also push the kart away from the wall it hit, so glancing hits slide off instead of sticking.
+        if (track.getWallNormal((float) hitBox.getCenterX(), (float) hitBox.getCenterY(), wallNormal)) {
+            applyBounce(wallNormal.x * WALL_BOUNCE_DISTANCE, wallNormal.y * WALL_BOUNCE_DISTANCE);
+        }
+        // Report the hit once until the kart is back on the track.
+        if (reportWallHit && !wallHitReported) {
+            onWallHit();
+            wallHitReported = true;
+        }
+        return false;
+    }
+
+    // Direction multipliers (unit multipliers independent of speed)
+    private float getDirectionMultiplierX() {
+        return switch (direction) {
+            case 2,3,4,5,6      ->  1;      // Fast movement right
+            case 1,7            ->  0.5f;   // Slow movement right
+            case 0,8            ->  0;      // No horizontal movement
+            case 9,15           -> -0.5f;   // Slow movement left
+            case 10,11,12,13,14 -> -1;      // Fast movement left
+            default -> 0;
+        };
+    }
+
+    private float getDirectionMultiplierY() {
+        return switch (direction) {
+            case 6,7,8,9,10     ->  1;      // Fast movement down
+            case 5,11           ->  0.5f;   // Slow movement down
+            case 4,12           ->  0;      // No vertical movement
+            case 3,13           -> -0.5f;   // Slow movement up
+            case 0,1,2,14,15    -> -1;      // Fast movement up
+            default -> 0;
+        };
+    }
+
+    public void updateRotation(int rotationDirection) {
+        // Modulus is used to ensure rotation loops back around from max to min.
+        rotation = switch (rotationDirection) {
+            case TURN_RIGHT -> (rotation + TURN_SPEED) % TURN_CIRCLE;
+            case TURN_LEFT -> (rotation + (TURN_CIRCLE - TURN_SPEED)) % TURN_CIRCLE;
+            default -> throw new IllegalStateException("Unrecognised direction: " + rotationDirection);
+        };
+        updateDirection();
+    }
+
+    // One of the sixteen headings the kart moves and is drawn in.
+    public void updateDirection() {
+        direction = (int) rotation / 10;
+    }
+
+    public void updateSpeed(int speedDirection) {
+        speed += speedDirection * ACCELERATION;
+        // If the new speed breaches the bounds, return it back within.
+        if (speed > SPEED_MAX) speed = SPEED_MAX;
+        else if (speed < SPEED_MIN) speed = SPEED_MIN;
+    }
+
+    public void applyBrake() {
+        speed -= ACCELERATION * 2;
+        if (speed < SPEED_MIN) speed = SPEED_MIN;
+    }
+
+    // Displace the kart straight away, e.g. when two karts bounce apart.
+    public void applyBounce(float dx, float dy) {
+        position.x += dx;
+        position.y += dy;
+        hitBox.setLocation((int) position.x + HIT_BOX_BUFFER, (int) position.y + HIT_BOX_BUFFER);
+    }
+
+    // Collide now, recovering from 0 to the current speed.
+    public void onKartCollision() {
+        onKartCollision(now(), speed);
+    }
+
+    // Collide at a time agreed over the network, recovering to the given speed.
+    public void onKartCollision(long flashStartTimestamp, float originalSpeed) {
+        slowUntil = flashStartTimestamp + COLLISION_EFFECT_MS;
+        flashStart = flashStartTimestamp;
+        savedOriginalSpeed = originalSpeed;
+        speed = 0f;
+        onCollisionStarted();
+    }
+
+    // Start the collision effect at a later time, giving both clients a grace period.
+    public void scheduleCollision(long startTimestamp, float originalSpeed) {
+        pendingCollisionStart = startTimestamp;
+        savedOriginalSpeed = originalSpeed;
+    }
+
+    public void startSlip(long now, long durationMs) {
+        slipStart = now;
+        slipUntil = now + durationMs;
+        slipSavedSpeed = speed;
+        // Faster karts spin faster.
+        slipSpinRate = 6f + Math.min(10f, Math.abs(slipSavedSpeed) * 10f);
+    }
+
+    public void startNitro() {
+        if (!nitroDepleted && nitroCapacity > 5f) {
+            nitroActive = true;
+            lastNitroUpdate = now();
+            onNitroStarted();
+            if (speed <= 0f) speed = Math.min(SPEED_MAX, ACCELERATION * 6f);
+        }
+    }
+
+    public void stopNitro() {
+        nitroActive = false;
+        lastNitroUpdate = now();
+    }
+
+    // Refill the tank for a new race.
+    public void resetNitro() {
+        nitroCapacity = 100f;
+        nitroDepleted = false;
+        nitroActive = false;
+        lastNitroUpdate = now();
+    }
+
+    public boolean isGoingWrongWay() {
+        if (isOnBottomTrack() && isFacingLeft()) return true;
+        else if (isOnRightTrack() && isFacingDown()) return true;
+        else if (isOnTopTrack() && isFacingRight()) return true;
+        else return isOnLeftTrack() && isFacingUp();
+    }
+
+    private boolean isFacingLeft() {
+        return direction <= 15 && direction >= 9;
+    }
+
+    private boolean isFacingDown() {
+        return direction <= 11 && direction >= 5;
+    }
+
+    private boolean isFacingRight() {
+        return direction <= 7 && direction >= 1;
+    }
+
+    private boolean isFacingUp() {
+        return (direction <= 3 && direction >= 0) || (direction <= 15 && direction >= 13);
+    }
+
+    private boolean isOnBottomTrack() {
+        return position.y + HIT_BOX_BUFFER >= track.getWrongWayBounds(BOTTOM).y;
+    }
+
+    private boolean isOnRightTrack() {
+        return position.x + HIT_BOX_BUFFER >= track.getWrongWayBounds(RIGHT).x;
+    }
+
+    private boolean isOnTopTrack() {
+        return position.y - HIT_BOX_BUFFER <= track.getWrongWayBounds(TOP).y;
+    }
+
+    private boolean isOnLeftTrack() {
+        return position.x - HIT_BOX_BUFFER <= track.getWrongWayBounds(LEFT).x;
+    }
+}
@@ -0,0 +1,168 @@
+package game.simulation;
+
+import game.common.SpatialHash;
+
+import java.awt.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The {@code Race} class runs the rules of one race over a set of karts:
+ * checkpoints and laps, and bouncing karts apart when their hit boxes meet.
+ * Karts can be added and removed from any thread while the race is updated
+ * from another. The client checks its own kart against the race each frame;
+ * headless code can call {@link #step} to advance every kart with one input
+ * each. Outcomes are reported to a {@link Listener}.
+ */
+public class Race<K extends KartPhysics> {
+
+    // Constants.
+    public static final int TOTAL_LAPS = 3;
+    // Larger than a kart hit box, so each kart sits in at most four cells.
+    private static final int COLLISION_CELL_SIZE = 64;
+    // Both clients get this long to agree on a collision before it slows the karts.
+    private static final long COLLISION_DELAY_MS = 1000;
+
+    // Object properties.
+    private final Track track;
+    private final List<K> karts = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Progress> progress = new ConcurrentHashMap<>();
+    private final SpatialHash<K> kartGrid;
+    private final Random random;
+    private Listener<K> listener = new Listener<>() {};
+
+    // Property access methods.
+    public Track getTrack()                         { return track; }
+    public List<K> getKarts()                       { return karts; }
+    public void setListener(Listener<K> listener)   { this.listener = listener; }
+
+    // Constructor.
+    public Race(Track track) {
+        this(track, new Random());
+    }
+
+    // A seeded random makes headless races repeatable.
+    public Race(Track track, Random random) {
+        this.track = track;
+        this.random = random;
+        kartGrid = new SpatialHash<>(track.getDefinition().getWidth(), track.getDefinition().getHeight(),
+                COLLISION_CELL_SIZE);
+    }
+
+    public void addKart(K kart) {
+        karts.add(kart);
+        progress.put(kart.getKartNumber(), new Progress());
+    }
+
+    public void removeKart(int kartNumber) {
+        karts.removeIf(kart -> kart.getKartNumber() == kartNumber);
+        progress.remove(kartNumber);
+    }
+
+    // The lap a kart is on, from 1 to TOTAL_LAPS.
+    public int getLap(K kart) {
+        Progress kartProgress = progress.get(kart.getKartNumber());
+        return kartProgress == null ? 1 : kartProgress.lap;
+    }
+
+    public boolean hasFinished(K kart) {
+        Progress kartProgress = progress.get(kart.getKartNumber());
+        return kartProgress != null && kartProgress.finished;
+    }
+
+    // Advance every kart by one fixed step, taking each kart's KartInput bits from the function.
+    public void step(IntUnaryOperator inputs) {
+        for (K kart : karts) {
+            int input = inputs.applyAsInt(kart.getKartNumber());
+            boolean nitro = KartInput.isSet(input, KartInput.NITRO);
+            if (nitro && !kart.isNitroActive()) kart.startNitro();
+            else if (!nitro && kart.isNitroActive()) kart.stopNitro();
+            KartInput.apply(kart, input);
+            if (kart.isMoving()) kart.reduceSpeed();
+            checkCheckpoints(kart);
+            kart.updatePosition();
+        }
+        checkCollisions();
+    }
+
+    // Count the next checkpoint if the kart has crossed it going the right way.
+    public void checkCheckpoints(K kart) {
+        Progress kartProgress = progress.get(kart.getKartNumber());
+        if (kartProgress == null || kartProgress.finished) return;
+
+        List<Rectangle> checkpoints = track.getCheckpoints();
+        boolean crossed = kart.getHitBox().intersects(checkpoints.get(kartProgress.nextCheckpoint));
+        if (!crossed || kart.isGoingWrongWay()) return;
+
+        kartProgress.nextCheckpoint++;
+        if (kartProgress.nextCheckpoint < checkpoints.size()) return;
+        if (kartProgress.lap < TOTAL_LAPS) {
+            kartProgress.lap++;
+            kartProgress.nextCheckpoint = 0;
+            listener.onLapCompleted(kart, kartProgress.lap);
+        }
+        else {
+            kartProgress.finished = true;
+            listener.onFinished(kart);
+        }
+    }
+
+    // Bounce every pair of karts whose hit boxes overlap, using the grid so only nearby karts are compared.
+    public void checkCollisions() {
+        for (K kart : karts) kartGrid.update(kart, kart.getHitBox());
+        kartGrid.removeStale();
+        kartGrid.forEachOverlappingPair(this::collide);
+    }
+
+    // Push two touching karts apart and schedule their slow-down; false if either is already recovering.
+    public boolean collide(K first, K second) {
+        long now = first.now();
+        if (first.getPendingCollisionStart() > 0 || second.getPendingCollisionStart() > 0) return false;
+        if (now < first.getSlowUntil() || now < second.getSlowUntil()) return false;
+
+        float dx = first.getPosition().x - second.getPosition().x;
+        float dy = first.getPosition().y - second.getPosition().y;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length < 1e-3f) {
+            // Positions coincide, so pick any direction.
+            dx = random.nextFloat() - 0.5f;
+            dy = random.nextFloat() - 0.5f;
+            length = (float) Math.sqrt(dx * dx + dy * dy);
+            if (length == 0f) { dx = 1f; length = 1f; }
+        }
+        // Bounce further the faster the karts were closing, up to a cap.
+        float approach = Math.min(1.5f, Math.abs(first.getSpeed()) + Math.abs(second.getSpeed()));
+        float bounceDistance = 10f + approach * 10f;
+        float nx = dx / length;
+        float ny = dy / length;
+        first.applyBounce(nx * bounceDistance, ny * bounceDistance);
+        second.applyBounce(-nx * bounceDistance, -ny * bounceDistance);
+
+        long scheduledStart = now + COLLISION_DELAY_MS;
+        float firstSpeed = first.getSpeed();
+        float secondSpeed = second.getSpeed();
+        first.scheduleCollision(scheduledStart, firstSpeed);
+        second.scheduleCollision(scheduledStart, secondSpeed);
+        listener.onKartCollision(first, second, scheduledStart, firstSpeed, secondSpeed);
+        return true;
+    }
+
+    /**
+     * Receives race outcomes. Every method does nothing by default.
+     */
+    public interface Listener<K> {
+        default void onLapCompleted(K kart, int lap) {}
+        default void onFinished(K kart) {}
+        default void onKartCollision(K first, K second, long scheduledStart, float firstSpeed, float secondSpeed) {}
+    }
+
+    private static class Progress {
+        private volatile int lap = 1;
+        private volatile int nextCheckpoint = 0;
+        private volatile boolean finished = false;
+    }
+}
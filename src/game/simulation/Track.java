@@ -0,0 +1,48 @@
+package game.simulation;
+
+import game.common.TrackDefinition;
+import game.common.TrackMask;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.util.List;
+
+/**
+ * The {@code Track} class is everything the simulation needs to know about
+ * a circuit: its {@link TrackDefinition} layout and the {@link TrackMask}
+ * karts are tested against. Tracks are immutable and shared between races;
+ * get them from {@link TrackLoader}.
+ */
+public class Track {
+
+    // Object properties.
+    private final TrackDefinition definition;
+    private final TrackMask mask;
+
+    // Property access methods.
+    public TrackDefinition getDefinition()      { return definition; }
+    public TrackMask getMask()                  { return mask; }
+    public List<Rectangle> getCheckpoints()     { return definition.getCheckpoints(); }
+    public Rectangle getWrongWayBounds(int side) { return definition.getWrongWayBounds(side); }
+    public int getStartDirection()              { return definition.getStartDirection(); }
+    public int getGridSize()                    { return definition.getStartPositions().size(); }
+
+    // Constructor.
+    public Track(TrackDefinition definition, TrackMask mask) {
+        this.definition = definition;
+        this.mask = mask;
+    }
+
+    // Grid slot of a player, numbered from 1.
+    public Point getStartPosition(int playerNumber) {
+        return new Point(definition.getStartPositions().get(playerNumber - 1));
+    }
+
+    public boolean contains(Rectangle hitBox) {
+        return mask.contains(hitBox);
+    }
+
+    public boolean getWallNormal(float x, float y, Point2D.Float normal) {
+        return mask.getWallNormal(x, y, normal);
+    }
+}
@@ -0,0 +1,120 @@
+package game.simulation;
+
+import game.common.TrackDefinition;
+import game.common.TrackMask;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code TrackLoader} utility class reads the track definition for each
+ * map from {@code tracks/racetrack<n>.track} and builds its collision mask.
+ * The resulting {@link Track} is kept in memory after the first race on a map.
+ * Masks are also saved to a cache directory, set with {@code -Dgame.trackCache}
+ * (default {@code ~/.javakartracers/tracks}), under the hash of the track
+ * geometry, so later runs read the finished distance field instead of
+ * recomputing it, and maps sharing a layout share one mask. Track files ship
+ * as classpath resources and may be in a jar, which is why the cache is not
+ * written beside them.
+ */
+public class TrackLoader {
+
+    // Constants.
+    private static final Path CACHE_DIRECTORY = Path.of(System.getProperty("game.trackCache",
+            Path.of(System.getProperty("user.home"), ".javakartracers", "tracks").toString()));
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final Map<Integer, Track> tracks = new HashMap<>();
+    private static final Map<String, TrackMask> masks = new HashMap<>();
+
+    // Prevent object creation from the implicit public constructor.
+    private TrackLoader() {
+        throw new IllegalStateException("Tried to instantiate the TrackLoader utility class");
+    }
+
+    // Throws IllegalStateException if the map has no track file or the file is invalid.
+    public static Track load(int racetrackOption) {
+        lock.lock();
+        try {
+            Track track = tracks.get(racetrackOption);
+            if (track == null) {
+                TrackDefinition definition = readDefinition("tracks/racetrack" + racetrackOption + ".track");
+                track = new Track(definition, getMask(definition));
+                tracks.put(racetrackOption, track);
+            }
+            return track;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static TrackMask getMask(TrackDefinition definition) {
+        String key = definition.getGeometryKey();
+        lock.lock();
+        try {
+            TrackMask mask = masks.get(key);
+            if (mask == null) {
+                mask = readCachedMask(key);
+                if (mask == null) {
+                    mask = TrackMask.rasterize(definition.createPlayableArea(), definition.getWidth(), definition.getHeight());
+                    writeCachedMask(key, mask);
+                }
+                masks.put(key, mask);
+            }
+            return mask;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static TrackDefinition readDefinition(String resource) {
+        InputStream in = TrackLoader.class.getResourceAsStream(resource);
+        if (in == null) throw new IllegalStateException("Missing track definition " + resource);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().toList();
+            return TrackDefinition.parse(resource, lines);
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Failed to read track definition " + resource, e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid track definition " + e.getMessage(), e);
+        }
+    }
+
+    // A missing or unreadable cache file just means the mask is rebuilt.
+    private static TrackMask readCachedMask(String key) {
+        Path file = CACHE_DIRECTORY.resolve(key + ".mask");
+        if (!Files.isRegularFile(file)) return null;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return TrackMask.read(in);
+        } catch (IOException e) {
+            System.err.println("Ignoring track cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeCachedMask(String key, TrackMask mask) {
+        try {
+            Files.createDirectories(CACHE_DIRECTORY);
+            // Write beside the final name and move, so another client never reads half a file.
+            Path temporary = Files.createTempFile(CACHE_DIRECTORY, key, ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                    mask.write(out);
+                }
+                Files.move(temporary, CACHE_DIRECTORY.resolve(key + ".mask"),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not cache track mask in " + CACHE_DIRECTORY + ": " + e.getMessage());
+        }
+    }
+}